@@ -0,0 +1,155 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import elevator_subsystem.DoorState;
+import elevator_subsystem.MotorState;
+import elevator_subsystem.Status;
+import messages.ElevatorMessage;
+import messages.FloorRequest;
+import messages.Register;
+import scheduler.DispatchMode;
+import scheduler.Scheduler;
+import views.NullSchedulerDisplay;
+
+/**
+ * Benchmarks the scheduler's dispatch path for a fleet of elevators spread over
+ * the building, each already carrying some requests.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+	@Param({ "4", "16", "64" })
+	public int fleetSize;
+
+	@Param({ "22", "100" })
+	public int numFloors;
+
+	@Param({ "0", "16", "256" })
+	public int waitlistDepth;
+
+	@Param({ "COLLECTIVE", "DESTINATION" })
+	public DispatchMode dispatchMode;
+
+	private Scheduler scheduler;
+	private List<FloorRequest> waitlist = new ArrayList<>();
+	private FloorRequest upRequest;
+	private FloorRequest downRequest;
+	private ElevatorMessage stoppedElevator;
+	private ElevatorMessage movingElevator;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		scheduler = new Scheduler(new NullSchedulerDisplay());
+		scheduler.setDispatchMode(dispatchMode);
+
+		for (int id = 0; id < fleetSize; id++) {
+			scheduler.register(new Register(id, 0));
+
+			// a third of the fleet is idle, the rest is moving with a request
+			int floor = random.nextInt(numFloors) + 1;
+			if (id % 3 == 0) {
+				scheduler.updateElevatorState(
+						new ElevatorMessage(id, floor, MotorState.STOPPED, DoorState.OPEN, Status.ARRIVED));
+			} else {
+				boolean up = random.nextBoolean();
+				scheduler.updateElevatorState(new ElevatorMessage(id, floor, up ? MotorState.UP : MotorState.DOWN,
+						DoorState.CLOSED, Status.APPROACHING));
+				int target = up ? numFloors : 1;
+				scheduler.getElevatorFloorRequestsAssigned().get(id).add(new FloorRequest(0, target, up ? 1 : numFloors));
+			}
+		}
+
+		for (int i = 0; i < waitlistDepth; i++) {
+			waitlist.add(randomRequest(random));
+		}
+
+		upRequest = new FloorRequest(0, numFloors / 2, numFloors);
+		downRequest = new FloorRequest(0, numFloors / 2, 1);
+
+		// no passenger has the stop floor as a source or destination, so the lists are only scanned
+		stoppedElevator = new ElevatorMessage(0, 0, MotorState.STOPPED, DoorState.OPEN, Status.ARRIVED);
+		movingElevator = new ElevatorMessage(1 % fleetSize, numFloors / 2, MotorState.UP, DoorState.CLOSED,
+				Status.ARRIVED);
+	}
+
+	/**
+	 * getFloorRequests removes the requests it hands out, so the waitlist and
+	 * the elevator's assignments are restored before every call of the
+	 * benchmarks that change them. The restore is not part of the measurement,
+	 * and only those benchmarks pay for a per-call setup.
+	 */
+	@State(Scope.Thread)
+	public static class Waitlist {
+		@Setup(Level.Invocation)
+		public void reset(DispatchBenchmark benchmark) {
+			Scheduler scheduler = benchmark.scheduler;
+			scheduler.getWaitlist().clear();
+			scheduler.getWaitlist().addAll(benchmark.waitlist);
+			scheduler.getElevatorFloorRequestsAssigned().get(0).clear();
+			scheduler.getElevatorFloorRequestsInService().get(0).clear();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		scheduler.closeSockets();
+	}
+
+	private FloorRequest randomRequest(Random random) {
+		int source = random.nextInt(numFloors) + 1;
+		int destination = random.nextInt(numFloors - 1) + 1;
+		if (destination >= source)
+			destination++;
+		return new FloorRequest(0, source, destination);
+	}
+
+	@Benchmark
+	public int getBestElevatorUp() {
+		return scheduler.getBestElevator(upRequest);
+	}
+
+	@Benchmark
+	public int getBestElevatorDown() {
+		return scheduler.getBestElevator(downRequest);
+	}
+
+	@Benchmark
+	public List<FloorRequest> getFloorRequests(Waitlist restored) {
+		return scheduler.getFloorRequests(stoppedElevator);
+	}
+
+	@Benchmark
+	public void updateElevatorStateMoving(Waitlist restored) {
+		scheduler.updateElevatorState(movingElevator);
+	}
+
+	@Benchmark
+	public void updateElevatorStateStopped(Waitlist restored) {
+		scheduler.updateElevatorState(stoppedElevator);
+	}
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import elevator_subsystem.DoorState;
+import elevator_subsystem.ElevatorSubsystem;
+import elevator_subsystem.Instruction;
+import elevator_subsystem.MotorState;
+import elevator_subsystem.Status;
+import messages.ElevatorMessage;
+import messages.FloorRequest;
+import views.NullElevatorDisplay;
+
+/**
+ * Benchmarks the instruction decision that the elevator subsystem makes on every
+ * step of the elevator.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElevatorSubsystemBenchmark {
+
+	@Param({ "22", "100" })
+	public int numFloors;
+
+	// number of requests held by the elevator
+	@Param({ "1", "16", "256" })
+	public int waitlistDepth;
+
+	private ElevatorSubsystem elevatorSubsystem;
+	private ElevatorMessage stopped;
+	private ElevatorMessage passingFloor;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		elevatorSubsystem = new ElevatorSubsystem(0, numFloors, new NullElevatorDisplay());
+
+		// everyone is going up from the lower half of the building to the top
+		ElevatorMessage lobby = new ElevatorMessage(0, 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		for (int i = 0; i < waitlistDepth; i++) {
+			int source = random.nextInt(numFloors / 2) + 2;
+			elevatorSubsystem.updateFloorRequest(new FloorRequest(0, source, numFloors), lobby);
+		}
+
+		stopped = new ElevatorMessage(0, 1, MotorState.STOPPED, DoorState.OPEN, Status.ARRIVED);
+		passingFloor = new ElevatorMessage(0, numFloors - 1, MotorState.UP, DoorState.CLOSED, Status.APPROACHING);
+	}
+
+	@TearDown
+	public void tearDown() {
+		elevatorSubsystem.closeSockets();
+	}
+
+	@Benchmark
+	public Instruction getNextInstructionStopped() {
+		return elevatorSubsystem.getNextInstruction(stopped);
+	}
+
+	@Benchmark
+	public Instruction getNextInstructionMoving() {
+		return elevatorSubsystem.getNextInstruction(passingFloor);
+	}
+}
@@ -0,0 +1,140 @@
+package benchmarks;
+
+import java.net.DatagramPacket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import common_classes.Subsystem;
+import elevator_subsystem.DoorState;
+import elevator_subsystem.MotorState;
+import elevator_subsystem.Status;
+import messages.ElevatorMessage;
+import messages.FloorRequest;
+import messages.Message;
+import messages.RequestListMessage;
+
+/**
+ * Benchmarks encoding and decoding of the messages sent on every elevator step
+ * and every floor request.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+	// number of requests in the request list message
+	@Param({ "1", "16", "48" })
+	public int waitlistDepth;
+
+	@Param({ "22", "100" })
+	public int numFloors;
+
+	private ElevatorMessage elevatorMessage;
+	private FloorRequest floorRequest;
+	private RequestListMessage requestListMessage;
+
+	private byte[] elevatorMessageData;
+	private byte[] floorRequestData;
+	private byte[] requestListData;
+
+	private DatagramPacket elevatorMessagePacket;
+	private DatagramPacket floorRequestPacket;
+	private DatagramPacket requestListPacket;
+
+	private Subsystem subsystem;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+
+		elevatorMessage = new ElevatorMessage(3, random.nextInt(numFloors) + 1, MotorState.UP, DoorState.CLOSED,
+				Status.APPROACHING);
+		floorRequest = new FloorRequest(50715000, random.nextInt(numFloors) + 1, random.nextInt(numFloors) + 1);
+
+		List<FloorRequest> requests = new ArrayList<>();
+		for (int i = 0; i < waitlistDepth; i++) {
+			requests.add(new FloorRequest(0, random.nextInt(numFloors) + 1, random.nextInt(numFloors) + 1));
+		}
+		requestListMessage = new RequestListMessage(requests);
+
+		elevatorMessageData = elevatorMessage.getData();
+		floorRequestData = floorRequest.getData();
+		requestListData = requestListMessage.getData();
+
+		elevatorMessagePacket = new DatagramPacket(elevatorMessageData, elevatorMessageData.length);
+		floorRequestPacket = new DatagramPacket(floorRequestData, floorRequestData.length);
+		requestListPacket = new DatagramPacket(requestListData, requestListData.length);
+
+		subsystem = new Subsystem() {
+		};
+	}
+
+	@TearDown
+	public void tearDown() {
+		subsystem.closeSockets();
+	}
+
+	@Benchmark
+	public byte[] elevatorMessageGetData() {
+		return elevatorMessage.getData();
+	}
+
+	@Benchmark
+	public Message elevatorMessageDatagramToMessage() {
+		return ElevatorMessage.datagramToMessage(elevatorMessageData);
+	}
+
+	@Benchmark
+	public byte[] floorRequestGetData() {
+		return floorRequest.getData();
+	}
+
+	@Benchmark
+	public Message floorRequestDatagramToMessage() {
+		return FloorRequest.datagramToMessage(floorRequestData);
+	}
+
+	@Benchmark
+	public byte[] requestListGetData() {
+		return requestListMessage.getData();
+	}
+
+	@Benchmark
+	public Message requestListDatagramToMessage() {
+		return RequestListMessage.datagramToMessage(requestListData);
+	}
+
+	@Benchmark
+	public Message subsystemDatagramToElevatorMessage() {
+		return subsystem.datagramToMessage(elevatorMessagePacket);
+	}
+
+	@Benchmark
+	public Message subsystemDatagramToFloorRequest() {
+		return subsystem.datagramToMessage(floorRequestPacket);
+	}
+
+	@Benchmark
+	public Message subsystemDatagramToRequestList() {
+		return subsystem.datagramToMessage(requestListPacket);
+	}
+}
@@ -0,0 +1,89 @@
+package common_classes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The constants and varint helpers of the binary trace format, which stores
+ * floor request arrivals compactly.
+ *
+ * File layout:
+ *
+ * <pre>
+ * header:  magic (int), version (byte)
+ * blocks:  length of records (int), record count (int), first timestamp (long), records
+ * record:  timestamp delta, source floor, destination floor, request ID (all varints)
+ * index:   per block: first timestamp (long), file offset (long), record count (int)
+ * footer:  index offset (long), block count (int), magic (int)
+ * </pre>
+ *
+ * Timestamps are epoch milliseconds and each record stores the difference from
+ * the previous record of its block. Floors are zigzag encoded so negative floors
+ * (basements) stay small. A request ID of 0 means the request has none. A trace
+ * whose recorder did not close it has no index or footer, and is read by
+ * scanning the blocks.
+ *
+ */
+public class BinaryTraceFormat {
+
+	public final static int MAGIC = 0x454C5654; // "ELVT"
+	public final static byte VERSION = 1;
+
+	public final static int HEADER_LENGTH = 5;
+	public final static int BLOCK_HEADER_LENGTH = 16;
+	public final static int INDEX_ENTRY_LENGTH = 20;
+	public final static int FOOTER_LENGTH = 16;
+
+	// the number of records in a full block
+	public final static int RECORDS_PER_BLOCK = 4096;
+
+	// the longest a record can be: four varints of at most 10 bytes
+	public final static int MAX_RECORD_LENGTH = 40;
+
+	/**
+	 * Writes an unsigned varint
+	 *
+	 * @param bb    the buffer to write to
+	 * @param value the value, treated as unsigned
+	 */
+	public static void putVarLong(ByteBuffer bb, long value) {
+		while ((value & ~0x7FL) != 0) {
+			bb.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		bb.put((byte) value);
+	}
+
+	/**
+	 * Reads an unsigned varint
+	 *
+	 * @param bb the buffer to read from
+	 * @return the value
+	 */
+	public static long getVarLong(ByteBuffer bb) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			if (shift > 63)
+				throw new IllegalArgumentException("Malformed varint");
+			b = bb.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Maps a signed value to an unsigned one so small negative values stay small
+	 */
+	public static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Reverses zigzag
+	 */
+	public static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -6,6 +6,7 @@ package common_classes;
  *
  */
 public class Config {
+	// the times of the standard car, elevators run at the times of their ElevatorProfile
 	public static int TIME_TO_ACCELERATE = 1000; // 1s
 	public static int TIME_TO_DECELERATE_TO_STOP = 1000; // 1s
 
@@ -17,7 +18,50 @@ public class Config {
 	public static int TIME_TO_OPEN_DOORS = 2000; // 2s
 	public static int TIME_TO_CLOSE_DOORS = 2000; // 2s
 
+	// the longest an idle elevator waits for a reply before reporting its state again, not scaled by the clock
+	public static int IDLE_REPORT_INTERVAL = 5000;
+
 	public static int MINIMUM_ELEVATOR_BREAK_TIME = 80000;
 	public static int MAXIMUM_ELEVATOR_BREAK_TIME_SUBTRACTING_MINIMUM = 190000;
 
+	// how many times faster than real time the simulation runs
+	public static double CLOCK_SPEED = 1;
+
+	/**
+	 * Runs the simulation clock speed times faster than real time by scaling
+	 * every timing constant
+	 *
+	 * @param speed the new clock speed, 1 for real time
+	 */
+	public static void setClockSpeed(double speed) {
+		if (speed <= 0)
+			throw new IllegalArgumentException("Clock speed must be positive: " + speed);
+
+		double factor = CLOCK_SPEED / speed;
+		TIME_TO_ACCELERATE = scale(TIME_TO_ACCELERATE, factor);
+		TIME_TO_DECELERATE_TO_STOP = scale(TIME_TO_DECELERATE_TO_STOP, factor);
+		TIME_TO_ARRIVE_AT_FLOOR = scale(TIME_TO_ARRIVE_AT_FLOOR, factor);
+		TIME_TO_TRAVEL_BETWEEN_FLOORS = scale(TIME_TO_TRAVEL_BETWEEN_FLOORS, factor);
+		TIME_TO_APPROACH_FLOOR = scale(TIME_TO_APPROACH_FLOOR, factor);
+		TIME_TO_OPEN_DOORS = scale(TIME_TO_OPEN_DOORS, factor);
+		TIME_TO_CLOSE_DOORS = scale(TIME_TO_CLOSE_DOORS, factor);
+		MINIMUM_ELEVATOR_BREAK_TIME = scale(MINIMUM_ELEVATOR_BREAK_TIME, factor);
+		MAXIMUM_ELEVATOR_BREAK_TIME_SUBTRACTING_MINIMUM = scale(MAXIMUM_ELEVATOR_BREAK_TIME_SUBTRACTING_MINIMUM, factor);
+		CLOCK_SPEED = speed;
+	}
+
+	/**
+	 * Gets how long a real time duration lasts at the clock speed
+	 *
+	 * @param duration the real time duration, in milliseconds
+	 * @return the simulated duration, in milliseconds
+	 */
+	public static int simulated(int duration) {
+		return scale(duration, 1 / CLOCK_SPEED);
+	}
+
+	private static int scale(int duration, double factor) {
+		return (int) Math.round(duration * factor);
+	}
+
 }
@@ -0,0 +1,202 @@
+package common_classes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The performance of one elevator car: how long it takes to start, pass a
+ * floor, stop and work its doors, and how many passengers it carries. Times
+ * are in real time milliseconds and are scaled by the clock speed when they
+ * are used.
+ *
+ * Encoded as the five times (int each) followed by the capacity (int).
+ *
+ */
+public class ElevatorProfile {
+
+	// the car every elevator was before profiles, with the times in Config
+	public static final ElevatorProfile STANDARD = new ElevatorProfile(5000, 5000, 1000, 2000, 2000, 5);
+
+	// a slow car with wide doors and a large cab
+	public static final ElevatorProfile FREIGHT = new ElevatorProfile(6500, 7000, 1500, 4000, 4000, 12);
+
+	// a fast car for long express runs
+	public static final ElevatorProfile SHUTTLE = new ElevatorProfile(2500, 4000, 1500, 1500, 1500, 8);
+
+	public static final int LENGTH = 24;
+
+	// the time to pass a floor at full speed
+	private final int floorTime;
+
+	// the time to start from rest and reach the next floor
+	private final int accelerateTime;
+
+	// the time to come to a stop at a floor
+	private final int decelerateTime;
+
+	private final int doorOpenTime;
+	private final int doorCloseTime;
+
+	// the most passengers the car is given at once
+	private final int capacity;
+
+	public ElevatorProfile(int floorTime, int accelerateTime, int decelerateTime, int doorOpenTime, int doorCloseTime,
+			int capacity) {
+		if (floorTime <= 0 || accelerateTime <= 0 || decelerateTime <= 0 || doorOpenTime <= 0 || doorCloseTime <= 0
+				|| capacity <= 0)
+			throw new IllegalArgumentException("Elevator profile times and capacity must be positive");
+		this.floorTime = floorTime;
+		this.accelerateTime = accelerateTime;
+		this.decelerateTime = decelerateTime;
+		this.doorOpenTime = doorOpenTime;
+		this.doorCloseTime = doorCloseTime;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Parses a profile, either "standard", "freight" or "shuttle", or the standard
+	 * profile with some values changed such as "floor=3000,capacity=8". The keys
+	 * are floor, accelerate, decelerate, open, close and capacity.
+	 *
+	 * @param spec the profile
+	 * @return the profile
+	 * @throws IllegalArgumentException if the spec is malformed
+	 */
+	public static ElevatorProfile parse(String spec) {
+		switch (spec.trim().toLowerCase()) {
+		case "standard":
+			return STANDARD;
+		case "freight":
+			return FREIGHT;
+		case "shuttle":
+			return SHUTTLE;
+		}
+
+		int[] values = { STANDARD.floorTime, STANDARD.accelerateTime, STANDARD.decelerateTime, STANDARD.doorOpenTime,
+				STANDARD.doorCloseTime, STANDARD.capacity };
+		for (String part : spec.split(",")) {
+			String[] pair = part.split("=");
+			if (pair.length != 2)
+				throw new IllegalArgumentException("Malformed elevator profile: " + spec);
+			int index;
+			switch (pair[0].trim().toLowerCase()) {
+			case "floor":
+				index = 0;
+				break;
+			case "accelerate":
+				index = 1;
+				break;
+			case "decelerate":
+				index = 2;
+				break;
+			case "open":
+				index = 3;
+				break;
+			case "close":
+				index = 4;
+				break;
+			case "capacity":
+				index = 5;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown elevator profile value: " + pair[0]);
+			}
+			try {
+				values[index] = Integer.parseInt(pair[1].trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Malformed elevator profile: " + spec);
+			}
+		}
+		return new ElevatorProfile(values[0], values[1], values[2], values[3], values[4], values[5]);
+	}
+
+	/**
+	 * Gets the time the car takes to reach a floor, without counting stops on the
+	 * way
+	 *
+	 * @param floors  the number of floors to the floor
+	 * @param stopped true if the car is at rest
+	 * @return the time in real time milliseconds
+	 */
+	public int getTravelTime(int floors, boolean stopped) {
+		if (floors == 0)
+			return 0;
+		return stopped ? accelerateTime + (floors - 1) * floorTime : floors * floorTime;
+	}
+
+	/**
+	 * Writes the profile to a buffer
+	 *
+	 * @param bb the buffer
+	 */
+	public void put(ByteBuffer bb) {
+		bb.putInt(floorTime);
+		bb.putInt(accelerateTime);
+		bb.putInt(decelerateTime);
+		bb.putInt(doorOpenTime);
+		bb.putInt(doorCloseTime);
+		bb.putInt(capacity);
+	}
+
+	/**
+	 * Reads a profile from a buffer
+	 *
+	 * @param bb the buffer
+	 * @return the profile
+	 */
+	public static ElevatorProfile get(ByteBuffer bb) {
+		ElevatorProfile profile = new ElevatorProfile(bb.getInt(), bb.getInt(), bb.getInt(), bb.getInt(), bb.getInt(),
+				bb.getInt());
+		return profile.equals(STANDARD) ? STANDARD : profile;
+	}
+
+	/* Getters */
+	public int getFloorTime() {
+		return floorTime;
+	}
+
+	public int getAccelerateTime() {
+		return accelerateTime;
+	}
+
+	public int getDecelerateTime() {
+		return decelerateTime;
+	}
+
+	public int getDoorOpenTime() {
+		return doorOpenTime;
+	}
+
+	public int getDoorCloseTime() {
+		return doorCloseTime;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Checks to see if the objects are equal
+	 *
+	 * @return true if the profiles have the same times and capacity, false otherwise
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof ElevatorProfile))
+			return false;
+		ElevatorProfile p = (ElevatorProfile) obj;
+		return floorTime == p.floorTime && accelerateTime == p.accelerateTime && decelerateTime == p.decelerateTime
+				&& doorOpenTime == p.doorOpenTime && doorCloseTime == p.doorCloseTime && capacity == p.capacity;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((((floorTime * 31 + accelerateTime) * 31 + decelerateTime) * 31 + doorOpenTime) * 31 + doorCloseTime)
+				* 31 + capacity;
+	}
+
+	@Override
+	public String toString() {
+		return "floor=" + floorTime + ",accelerate=" + accelerateTime + ",decelerate=" + decelerateTime + ",open="
+				+ doorOpenTime + ",close=" + doorCloseTime + ",capacity=" + capacity;
+	}
+}
@@ -8,6 +8,10 @@ public class Helper {
 	public final static byte EMPTY_REPLY_MESSAGE = 4;
 	public final static byte REGISTER_MESSAGE = 5;
 	public final static byte TERMINATE = 6;
+	public final static byte FLOOR_REGISTER_MESSAGE = 7;
+	public final static byte ZONE_MESSAGE = 8;
+	public final static byte RESYNC_MESSAGE = 9;
+	public final static byte STATE_DUMP_MESSAGE = 10;
 	
 	public final static int LENGTH_OF_HEADER = 1;
 
@@ -15,6 +19,9 @@ public class Helper {
 	public final static int SCHEDULER_PORT = 50;
 	public final static int FLOOR_PORT = 60;
 
+	// the port a scheduler streams its state to a standby scheduler on
+	public final static int REPLICATION_PORT = 70;
+
 	/**
 	 * Helper method for converting the timestamp String into an integer value
 	 *
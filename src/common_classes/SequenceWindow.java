@@ -0,0 +1,64 @@
+package common_classes;
+
+/**
+ * The sequence numbers that arrived from one sender, which tells a datagram the
+ * network duplicated or delivered late from a new one. The window holds the
+ * highest number that arrived and which of the numbers just below it did, like
+ * the anti-replay window of IPsec.
+ *
+ * Senders start counting at a random number, so a number far from the highest
+ * is taken as a sender that restarted on the same port and starts the window
+ * again.
+ */
+public class SequenceWindow {
+
+	/**
+	 * How a datagram arrived compared to the ones before it
+	 */
+	public enum Arrival {
+		// newer than every datagram before it
+		IN_ORDER,
+		// older than another datagram, but the first with its number
+		LATE,
+		// a number that already arrived, or one too old to tell
+		DUPLICATE
+	}
+
+	// the number of sequence numbers below the highest that are remembered
+	public static final int SIZE = 64;
+
+	// the distance from the highest beyond which the sender is taken to have restarted
+	private static final int RESTART_DISTANCE = 1 << 16;
+
+	private boolean started = false;
+	private int highest;
+
+	// bit i is set if the number i below the highest arrived
+	private long seen;
+
+	/**
+	 * Records that a datagram arrived
+	 *
+	 * @param sequence the sequence number of the datagram
+	 * @return how it arrived
+	 */
+	public Arrival arrive(int sequence) {
+		// the difference wraps with the numbers, so counting past the largest int works
+		int distance = sequence - highest;
+		if (!started || distance > RESTART_DISTANCE || distance < -RESTART_DISTANCE) {
+			started = true;
+			highest = sequence;
+			seen = 1;
+			return Arrival.IN_ORDER;
+		}
+		if (distance > 0) {
+			seen = distance >= SIZE ? 1 : seen << distance | 1;
+			highest = sequence;
+			return Arrival.IN_ORDER;
+		}
+		if (-distance >= SIZE || (seen & 1L << -distance) != 0)
+			return Arrival.DUPLICATE;
+		seen |= 1L << -distance;
+		return Arrival.LATE;
+	}
+}
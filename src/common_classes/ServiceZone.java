@@ -0,0 +1,151 @@
+package common_classes;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The floors an elevator serves, as a list of floor ranges such as "1,31-60"
+ * for a high-rise car that also serves the lobby. A zone with no ranges serves
+ * every floor.
+ *
+ * Encoded as a range count (short) followed by the lowest and highest floor
+ * (int, int) of each range.
+ *
+ */
+public class ServiceZone {
+
+	// the zone of a car that serves every floor
+	public static final ServiceZone ALL_FLOORS = new ServiceZone(new int[0][]);
+
+	// the lowest and highest floor of each range
+	private final int[][] ranges;
+
+	private ServiceZone(int[][] ranges) {
+		this.ranges = ranges;
+	}
+
+	/**
+	 * Parses a zone such as "1,31-60", or "all" for every floor
+	 *
+	 * @param spec the floors and floor ranges separated by commas
+	 * @return the zone
+	 * @throws IllegalArgumentException if the spec is malformed
+	 */
+	public static ServiceZone parse(String spec) {
+		if (spec.trim().equalsIgnoreCase("all"))
+			return ALL_FLOORS;
+
+		List<int[]> ranges = new ArrayList<>();
+		for (String part : spec.split(",")) {
+			part = part.trim();
+			try {
+				// a leading minus is a basement floor, not a range
+				int dash = part.indexOf('-', 1);
+				int low = Integer.parseInt(dash == -1 ? part : part.substring(0, dash).trim());
+				int high = dash == -1 ? low : Integer.parseInt(part.substring(dash + 1).trim());
+				if (low > high)
+					throw new IllegalArgumentException("Empty floor range in zone: " + spec);
+				ranges.add(new int[] { low, high });
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Malformed zone: " + spec);
+			}
+		}
+		return new ServiceZone(ranges.toArray(new int[0][]));
+	}
+
+	/**
+	 * Checks if the zone serves a floor
+	 *
+	 * @param floor the floor
+	 * @return true if the floor is in the zone, false otherwise
+	 */
+	public boolean serves(int floor) {
+		if (ranges.length == 0)
+			return true;
+		for (int[] range : ranges) {
+			if (floor >= range[0] && floor <= range[1])
+				return true;
+		}
+		return false;
+	}
+
+	public boolean isAllFloors() {
+		return ranges.length == 0;
+	}
+
+	/**
+	 * Gets the number of bytes the zone is encoded in
+	 *
+	 * @return the length
+	 */
+	public int getLength() {
+		return 2 + ranges.length * 8;
+	}
+
+	/**
+	 * Writes the zone to a buffer
+	 *
+	 * @param bb the buffer
+	 */
+	public void put(ByteBuffer bb) {
+		bb.putShort((short) ranges.length);
+		for (int[] range : ranges) {
+			bb.putInt(range[0]);
+			bb.putInt(range[1]);
+		}
+	}
+
+	/**
+	 * Reads a zone from a buffer
+	 *
+	 * @param bb the buffer
+	 * @return the zone
+	 */
+	public static ServiceZone get(ByteBuffer bb) {
+		int count = bb.getShort();
+		if (count == 0)
+			return ALL_FLOORS;
+		int[][] ranges = new int[count][];
+		for (int i = 0; i < count; i++) {
+			ranges[i] = new int[] { bb.getInt(), bb.getInt() };
+		}
+		return new ServiceZone(ranges);
+	}
+
+	/**
+	 * Checks to see if the objects are equal
+	 *
+	 * @return true if the zones have the same ranges, false otherwise
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof ServiceZone))
+			return false;
+		return Arrays.deepEquals(ranges, ((ServiceZone) obj).ranges);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.deepHashCode(ranges);
+	}
+
+	/**
+	 * The zone in the format it is parsed from
+	 */
+	@Override
+	public String toString() {
+		if (ranges.length == 0)
+			return "all";
+		StringBuilder sb = new StringBuilder();
+		for (int[] range : ranges) {
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(range[0]);
+			if (range[1] != range[0])
+				sb.append('-').append(range[1]);
+		}
+		return sb.toString();
+	}
+}
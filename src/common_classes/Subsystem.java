@@ -5,22 +5,64 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.SocketException;
+import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import common_classes.SequenceWindow.Arrival;
+import flight_recorder.MessageReceivedEvent;
+import flight_recorder.MessageSentEvent;
+import flight_recorder.RoundTripEvent;
 import messages.ElevatorMessage;
+import messages.FloorRegister;
 import messages.FloorRequest;
 import messages.Message;
 import messages.Register;
 import messages.RequestListMessage;
 import messages.Response;
+import messages.Resync;
+import messages.StateDump;
 import messages.Terminate;
+import messages.ZoneMessage;
 
 public abstract class Subsystem {
 
+	// the bytes of the sequence number that follows the header of a sequenced datagram
+	public static final int SEQUENCE_BYTES = 4;
+
+	// the most fragments a message is split into, and the most messages whose fragments are waited for
+	private static final int MAX_FRAGMENTS = 64;
+	private static final int MAX_PARTIAL_MESSAGES = 16;
+
 	protected DatagramSocket receiveSocket;
 	private DatagramSocket sendReceiveSocket;
 
+	// the sequence number of the next datagram sent, starting at random so a restarted sender is told apart
+	private final AtomicInteger nextSequence = new AtomicInteger(new Random().nextInt());
+
+	// the sequence numbers that arrived from each sender
+	private final Map<SocketAddress, SequenceWindow> sequenceWindows = new ConcurrentHashMap<>();
+
+	// the number of duplicate and out of date datagrams dropped
+	private long droppedMessages = 0;
+
+	// the fragments of the messages that have not all arrived, by sender and the number of the first fragment
+	private final Map<String, byte[][]> partialMessages = new LinkedHashMap<String, byte[][]>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, byte[][]> eldest) {
+			return size() > MAX_PARTIAL_MESSAGES;
+		}
+	};
+
 	/**
 	 * Default constructor for subsystem not hosted on a particular port
 	 */
@@ -46,6 +88,21 @@ public abstract class Subsystem {
 		}
 	}
 
+	/**
+	 * Constructor for subsystem hosted on a socket that is already bound to its
+	 * port
+	 *
+	 * @param receiveSocket the bound socket
+	 */
+	public Subsystem(DatagramSocket receiveSocket) {
+		this.receiveSocket = receiveSocket;
+		try {
+			sendReceiveSocket = new DatagramSocket();
+		} catch (SocketException e) {
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * Updates the socket time out
 	 *
@@ -66,27 +123,187 @@ public abstract class Subsystem {
 	 * @param port
 	 */
 	protected void send(Message message, int port) {
-		byte[] bytes = message.getData();
+		MessageSentEvent event = new MessageSentEvent();
+		event.begin();
+		int bytes = 0;
 		try {
-			sendReceiveSocket.send(new DatagramPacket(bytes, bytes.length, InetAddress.getLocalHost(), port));
+			for (byte[] datagram : toDatagrams(message.getData())) {
+				sendReceiveSocket.send(new DatagramPacket(datagram, datagram.length, InetAddress.getLocalHost(), port));
+				bytes += datagram.length;
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		if (event.shouldCommit()) {
+			event.messageType = message.getHeader();
+			event.bytes = bytes;
+			event.port = port;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Gets the datagram a message is sent as: the message with a sequence number
+	 * after its header, which is marked as sequenced
+	 *
+	 * @param message  the message
+	 * @param sequence the sequence number
+	 * @return the bytes of the datagram
+	 */
+	public static byte[] frame(Message message, int sequence) {
+		return frame(message.getData(), sequence);
+	}
+
+	private static byte[] frame(byte[] data, int sequence) {
+		return ByteBuffer.allocate(data.length + SEQUENCE_BYTES).put((byte) (data[0] | WireFormat.SEQUENCED))
+				.putInt(sequence).put(data, 1, data.length - 1).array();
+	}
+
+	/**
+	 * Gets the datagrams a message is sent in, splitting it into fragments with
+	 * consecutive sequence numbers when it does not fit one
+	 */
+	private List<byte[]> toDatagrams(byte[] data) {
+		if (data.length + SEQUENCE_BYTES <= WireFormat.MAX_DATAGRAM_LENGTH)
+			return Collections.singletonList(frame(data, nextSequence.getAndIncrement()));
+
+		int partLength = WireFormat.MAX_DATAGRAM_LENGTH - 1 - SEQUENCE_BYTES - WireFormat.FRAGMENT_HEADER_LENGTH;
+		int count = (data.length + partLength - 1) / partLength;
+		int first = nextSequence.getAndAdd(count);
+		List<byte[]> datagrams = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int offset = i * partLength;
+			int length = Math.min(partLength, data.length - offset);
+			ByteBuffer bb = ByteBuffer.allocate(1 + SEQUENCE_BYTES + WireFormat.FRAGMENT_HEADER_LENGTH + length);
+			bb.put((byte) (WireFormat.FRAGMENT | WireFormat.SEQUENCED));
+			bb.putInt(first + i);
+			BinaryTraceFormat.putVarLong(bb, i);
+			BinaryTraceFormat.putVarLong(bb, count);
+			bb.put(data, offset, length);
+			datagrams.add(Arrays.copyOf(bb.array(), bb.position()));
+		}
+		return datagrams;
 	}
 
 	/**
-	 * Receives a message
+	 * Receives a message, dropping the datagrams the network duplicated and the
+	 * ones the subsystem does not take late, and putting fragmented messages back
+	 * together. A datagram without a sequence number is a message on its own,
+	 * which is always received.
 	 *
 	 * @return the message
 	 * @throws IOException socket timeout
 	 */
 	protected Message receive() throws IOException {
 
-		byte[] data = new byte[100];
+		byte[] data = new byte[WireFormat.MAX_DATAGRAM_LENGTH];
 		DatagramPacket receivePacket = new DatagramPacket(data, data.length);
 
-		receiveSocket.receive(receivePacket);
-		return datagramToMessage(receivePacket);
+		while (true) {
+			receivePacket.setData(data);
+			receiveSocket.receive(receivePacket);
+
+			// too short to come from a subsystem
+			boolean sequenced = receivePacket.getLength() > 0 && WireFormat.isSequenced(data[0]);
+			if (receivePacket.getLength() < (sequenced ? 1 + SEQUENCE_BYTES : 1))
+				continue;
+
+			MessageReceivedEvent event = new MessageReceivedEvent();
+			event.begin();
+			int sequence = 0;
+			Arrival arrival = Arrival.IN_ORDER;
+			if (sequenced) {
+				sequence = unframe(receivePacket);
+				arrival = sequenceWindows.computeIfAbsent(receivePacket.getSocketAddress(), a -> new SequenceWindow())
+						.arrive(sequence);
+			}
+			if (sequenced && arrival != Arrival.DUPLICATE && data[0] == WireFormat.FRAGMENT) {
+				byte[] whole = reassemble(receivePacket, sequence);
+				if (whole == null)
+					continue;
+				// the message goes on as if it had come in one datagram, a fragmented message is never late
+				receivePacket.setData(whole);
+				arrival = Arrival.IN_ORDER;
+			}
+			Message message = arrival == Arrival.DUPLICATE ? null : datagramToMessage(receivePacket);
+			if (event.shouldCommit()) {
+				event.messageType = receivePacket.getLength() > 0 ? WireFormat.getType(receivePacket.getData()[0]) : -1;
+				event.bytes = receivePacket.getLength();
+				event.commit();
+			}
+			if (arrival == Arrival.DUPLICATE || (arrival == Arrival.LATE && !acceptsLate(message))) {
+				droppedMessages++;
+				System.out.println("Dropped " + (arrival == Arrival.LATE ? "out of date" : "duplicate") + " message "
+						+ data[0] + " from port " + receivePacket.getPort());
+				continue;
+			}
+			return message;
+		}
+	}
+
+	/**
+	 * Takes the sequence number and its mark out of a datagram, leaving the
+	 * message in it
+	 *
+	 * @return the sequence number
+	 */
+	private int unframe(DatagramPacket datagram) {
+		byte[] data = datagram.getData();
+		int length = datagram.getLength();
+		int sequence = ByteBuffer.wrap(data, 1, SEQUENCE_BYTES).getInt();
+		data[0] &= ~WireFormat.SEQUENCED;
+		System.arraycopy(data, 1 + SEQUENCE_BYTES, data, 1, length - 1 - SEQUENCE_BYTES);
+		datagram.setLength(length - SEQUENCE_BYTES);
+		return sequence;
+	}
+
+	/**
+	 * Keeps a fragment until every fragment of its message has arrived
+	 *
+	 * @param datagram the fragment, without its sequence number
+	 * @param sequence the sequence number of the fragment
+	 * @return the message, null if fragments are still missing
+	 */
+	private byte[] reassemble(DatagramPacket datagram, int sequence) {
+		ByteBuffer bb = ByteBuffer.wrap(datagram.getData(), 1, datagram.getLength() - 1);
+		int index = (int) BinaryTraceFormat.getVarLong(bb);
+		int count = (int) BinaryTraceFormat.getVarLong(bb);
+		if (index < 0 || index >= count || count > MAX_FRAGMENTS)
+			return null;
+
+		String key = datagram.getSocketAddress() + "/" + (sequence - index);
+		byte[][] parts = partialMessages.computeIfAbsent(key, k -> new byte[count][]);
+		if (parts.length != count)
+			return null;
+		parts[index] = Arrays.copyOfRange(datagram.getData(), bb.position(), datagram.getLength());
+
+		int length = 0;
+		for (byte[] part : parts) {
+			if (part == null)
+				return null;
+			length += part.length;
+		}
+		partialMessages.remove(key);
+		ByteBuffer whole = ByteBuffer.allocate(length);
+		for (byte[] part : parts)
+			whole.put(part);
+		return whole.array();
+	}
+
+	/**
+	 * Checks if a message is still of use when a newer one from its sender came
+	 * first. Every message is by default, since each carries something of its
+	 * own.
+	 *
+	 * @param message the message, null if it was not understood
+	 * @return true to receive the message, false to drop it
+	 */
+	protected boolean acceptsLate(Message message) {
+		return true;
+	}
+
+	public long getDroppedMessages() {
+		return droppedMessages;
 	}
 
 	/**
@@ -96,21 +313,31 @@ public abstract class Subsystem {
 	 * @return the response
 	 */
 	public Message rpcSendAndReceive(Message message) {
+		RoundTripEvent event = new RoundTripEvent();
+		event.begin();
+		Message reply = null;
 		int tries = 0;
 		int maxTries = 3;
 		while (tries++ < maxTries) {
 			send(message, Helper.SCHEDULER_PORT);
 			try {
-				return receive();
+				reply = receive();
+				break;
 			} catch (SocketTimeoutException e) {
 
 			} catch (Exception e) {
 				System.out.println("Socket has closed.");
 				e.printStackTrace();
-				return null;
+				break;
 			}
 		}
-		return null;
+		if (event.shouldCommit()) {
+			event.requestType = message.getHeader();
+			event.replyType = reply == null ? -1 : reply.getHeader();
+			event.tries = Math.min(tries, maxTries);
+			event.commit();
+		}
+		return reply;
 	}
 
 	/**
@@ -124,7 +351,7 @@ public abstract class Subsystem {
 
 		byte[] data = Arrays.copyOf(datagram.getData(), datagram.getLength());
 
-		switch (data[0]) {
+		switch (WireFormat.getType(data[0])) {
 		case Helper.ELEVATOR_STATE_MESSAGE:
 			message = ElevatorMessage.datagramToMessage(data);
 			break;
@@ -143,6 +370,18 @@ public abstract class Subsystem {
 		case Helper.REQUEST_LIST_MESSAGE:
 			message = RequestListMessage.datagramToMessage(data);
 			break;
+		case Helper.FLOOR_REGISTER_MESSAGE:
+			message = FloorRegister.datagramToMessage(data);
+			break;
+		case Helper.ZONE_MESSAGE:
+			message = ZoneMessage.datagramToMessage(data);
+			break;
+		case Helper.RESYNC_MESSAGE:
+			message = Resync.datagramToMessage(data);
+			break;
+		case Helper.STATE_DUMP_MESSAGE:
+			message = StateDump.datagramToMessage(data);
+			break;
 		}
 		return message;
 	}
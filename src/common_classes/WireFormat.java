@@ -0,0 +1,130 @@
+package common_classes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The constants and helpers of the versioned wire format, which the messages
+ * whose fields do not fit their original layout are sent in.
+ *
+ * Datagram layout:
+ *
+ * <pre>
+ * original:  type | SEQUENCED (byte), sequence number (int), fields
+ * versioned: type | VERSIONED | SEQUENCED (byte), sequence number (int), version (varint), fields (varints)
+ * fragment:  FRAGMENT | SEQUENCED (byte), sequence number (int), index (varint), count (varint), part of a message
+ * </pre>
+ *
+ * The original field layouts of the Helper message types are still read and
+ * sent whenever they can carry the message, so those messages keep their size
+ * and their decoders. A datagram without SEQUENCED in its header, such as one
+ * from a subsystem from before sequence numbers, is a message in its original
+ * layout and is received as it is. Signed fields are zigzag encoded as in the
+ * binary trace format. Later versions only append fields, so a message is read
+ * by the fields its reader knows.
+ *
+ * A message longer than a datagram is split into fragments with consecutive
+ * sequence numbers, and the fragment at index i of a message numbered n has the
+ * number n + i.
+ */
+public class WireFormat {
+
+	// set in the type of a message sent in the versioned format
+	public final static byte VERSIONED = (byte) 0x80;
+	public final static int VERSION = 1;
+
+	// set in the header of a datagram that has a sequence number after it
+	public final static byte SEQUENCED = 0x40;
+
+	// the type of a datagram carrying part of a message, which is always sequenced
+	public final static byte FRAGMENT = 0x3F;
+
+	// the longest datagram sent, longer messages are fragmented
+	public final static int MAX_DATAGRAM_LENGTH = 1024;
+
+	// the longest a fragment's index and count can be: two varints of at most 5 bytes
+	public final static int FRAGMENT_HEADER_LENGTH = 10;
+
+	/**
+	 * Gets the type of a message from its first byte, in either format
+	 *
+	 * @param header the first byte of the message
+	 * @return the type
+	 */
+	public static byte getType(byte header) {
+		return (byte) (header & ~VERSIONED);
+	}
+
+	/**
+	 * Checks if a message is in the versioned format
+	 *
+	 * @param header the first byte of the message
+	 * @return true if it is versioned, false if it has its original layout
+	 */
+	public static boolean isVersioned(byte header) {
+		return (header & VERSIONED) != 0;
+	}
+
+	/**
+	 * Checks if a datagram has a sequence number after its header
+	 *
+	 * @param header the first byte of the datagram
+	 * @return true if it is sequenced, false if it is a message on its own
+	 */
+	public static boolean isSequenced(byte header) {
+		return (header & SEQUENCED) != 0;
+	}
+
+	/**
+	 * Writes the type and version of a versioned message
+	 *
+	 * @param bb   the buffer to write to
+	 * @param type the type of the message
+	 */
+	public static void putHeader(ByteBuffer bb, byte type) {
+		bb.put((byte) (type | VERSIONED));
+		BinaryTraceFormat.putVarLong(bb, VERSION);
+	}
+
+	/**
+	 * Reads the type and version of a versioned message
+	 *
+	 * @param bb the buffer to read from
+	 * @return the version the message was written in
+	 */
+	public static int getHeader(ByteBuffer bb) {
+		bb.get();
+		return (int) BinaryTraceFormat.getVarLong(bb);
+	}
+
+	/**
+	 * Writes a signed int as a zigzag varint
+	 */
+	public static void putInt(ByteBuffer bb, int value) {
+		BinaryTraceFormat.putVarLong(bb, BinaryTraceFormat.zigzag(value));
+	}
+
+	/**
+	 * Reads a signed int written as a zigzag varint
+	 */
+	public static int getInt(ByteBuffer bb) {
+		return (int) BinaryTraceFormat.unzigzag(BinaryTraceFormat.getVarLong(bb));
+	}
+
+	/**
+	 * Gets how many bytes a signed int is written in
+	 */
+	public static int getLength(int value) {
+		long zigzag = BinaryTraceFormat.zigzag(value);
+		int length = 1;
+		while ((zigzag >>>= 7) != 0)
+			length++;
+		return length;
+	}
+
+	/**
+	 * Checks if a floor fits the original layouts, which send floors as a byte
+	 */
+	public static boolean fitsByte(int floor) {
+		return floor >= Byte.MIN_VALUE && floor <= Byte.MAX_VALUE;
+	}
+}
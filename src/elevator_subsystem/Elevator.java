@@ -1,7 +1,9 @@
 package elevator_subsystem;
 
 import common_classes.Config;
+import common_classes.ElevatorProfile;
 import common_classes.Helper;
+import flight_recorder.ElevatorPhaseEvent;
 import messages.ElevatorMessage;
 
 /**
@@ -32,14 +34,26 @@ public class Elevator {
 	// the time till an error occurs
 	private int timeBeforeBreaking;
 
+	// the speed and door times of the elevator
+	private ElevatorProfile profile;
+
 	/**
 	 * Create a new Elevator with its initial state on the ground floor and its
 	 * doors closed
 	 */
 
 	public Elevator(int id, int timeBeforeBreaking) {
+		this(id, timeBeforeBreaking, ElevatorProfile.STANDARD);
+	}
+
+	/**
+	 * Create a new Elevator that moves and works its doors at the times of its
+	 * profile
+	 */
+	public Elevator(int id, int timeBeforeBreaking, ElevatorProfile profile) {
 		this.id = id;
 		this.timeBeforeBreaking = timeBeforeBreaking;
+		this.profile = profile;
 	}
 
 	/**
@@ -100,14 +114,14 @@ public class Elevator {
 	public void continueElevator() {
 		// both these cases are happening at constant velocity
 		if (isApproachingNextFloor()) {
-			timePassesInElevator(Config.TIME_TO_TRAVEL_BETWEEN_FLOORS);
+			timePassesInElevator(Config.simulated(profile.getFloorTime() - arrivalTime()), "TRAVEL");
 			if (brokeWhilePerformingAction()) {
 				return;
 			}
 			status = Status.APPROACHING;
 			floor += motorState == MotorState.UP ? 1 : -1;
 		} else if (isArrivingAtFloor()) {
-			timePassesInElevator(Config.TIME_TO_ARRIVE_AT_FLOOR);
+			timePassesInElevator(Config.simulated(arrivalTime()), "ARRIVE");
 			if (brokeWhilePerformingAction()) {
 				return;
 			}
@@ -127,7 +141,7 @@ public class Elevator {
 		if (status == Status.ARRIVED) // passing floor, stop at next floor
 			continueElevator();
 
-		timePassesInElevator(Config.TIME_TO_DECELERATE_TO_STOP);
+		timePassesInElevator(Config.simulated(profile.getDecelerateTime()), "DECELERATE");
 		if (brokeWhilePerformingAction()) {
 			return;
 		}
@@ -141,7 +155,7 @@ public class Elevator {
 	 */
 	private void move() {
 		closeDoors();
-		timePassesInElevator(Config.TIME_TO_APPROACH_FLOOR);
+		timePassesInElevator(Config.simulated(profile.getAccelerateTime()), "ACCELERATE");
 		if (brokeWhilePerformingAction()) {
 			return;
 		}
@@ -155,7 +169,7 @@ public class Elevator {
 	public void openDoors() {
 		if (doorState == DoorState.OPEN)
 			return;
-		timePassesInElevator(Config.TIME_TO_OPEN_DOORS);
+		timePassesInElevator(Config.simulated(profile.getDoorOpenTime()), "DOORS_OPEN");
 		if (brokeWhilePerformingAction()) {
 			return;
 		}
@@ -168,19 +182,32 @@ public class Elevator {
 	public void closeDoors() {
 		if (doorState == DoorState.CLOSED)
 			return;
-		timePassesInElevator(Config.TIME_TO_CLOSE_DOORS);
+		timePassesInElevator(Config.simulated(profile.getDoorCloseTime()), "DOORS_CLOSE");
 		if (brokeWhilePerformingAction()) {
 			return;
 		}
 		doorState = DoorState.CLOSED;
 	}
 
+	/**
+	 * Gets the part of the time to pass a floor spent arriving at it, the last
+	 * twentieth as in the standard car
+	 */
+	private int arrivalTime() {
+		return profile.getFloorTime() / 20;
+	}
+
 	/**
 	 * Checks if time taken to do action results in breaking
 	 *
 	 * @param duration the time to do action
+	 * @param phase    the name of the action, recorded in the flight recorder
 	 */
-	private void timePassesInElevator(int duration) {
+	private void timePassesInElevator(int duration, String phase) {
+		ElevatorPhaseEvent event = new ElevatorPhaseEvent();
+		event.begin();
+		int startFloor = floor;
+
 		if (duration >= timeBeforeBreaking) {
 			Helper.sleep(timeBeforeBreaking);
 			timeBeforeBreaking = 0;
@@ -190,6 +217,14 @@ public class Elevator {
 			Helper.sleep(duration);
 			timeBeforeBreaking -= duration;
 		}
+
+		if (event.shouldCommit()) {
+			event.elevatorId = id;
+			event.phase = phase;
+			event.floor = startFloor;
+			event.broken = status == Status.BROKEN;
+			event.commit();
+		}
 	}
 
 	/* GETTERS */
@@ -213,6 +248,10 @@ public class Elevator {
 		return id;
 	}
 
+	public ElevatorProfile getProfile() {
+		return profile;
+	}
+
 	public boolean brokeWhilePerformingAction() {
 		return (status == Status.BROKEN);
 	}
@@ -7,14 +7,18 @@ import java.util.List;
 import java.util.Map;
 
 import common_classes.Config;
+import common_classes.ElevatorProfile;
+import common_classes.ServiceZone;
 import common_classes.Subsystem;
 import messages.ElevatorMessage;
 import messages.FloorRequest;
 import messages.Message;
 import messages.Register;
 import messages.RequestListMessage;
+import messages.Resync;
+import messages.StateDump;
 import messages.Terminate;
-import views.ElevatorView;
+import views.ElevatorDisplay;
 
 /**
  * The elevator subsystem consists of the buttons and lamps inside of the
@@ -43,22 +47,45 @@ public class ElevatorSubsystem extends Subsystem implements Runnable {
 	// the floor requests to pick passengers up
 	private List<FloorRequest> floorRequestsAssigned = new ArrayList<>();
 
-	private ElevatorView view;
+	// the display that the elevator state is reported to
+	private ElevatorDisplay view;
+
+	// the floors the elevator serves
+	private ServiceZone zone;
 
 	/**
 	 * Create a new Elevator subsystem
 	 */
-	public ElevatorSubsystem(int elevatorID, int numFloors, ElevatorView view) {
+	public ElevatorSubsystem(int elevatorID, int numFloors, ElevatorDisplay view) {
+		this(elevatorID, numFloors, view, ServiceZone.ALL_FLOORS);
+	}
+
+	/**
+	 * Create a new Elevator subsystem for an elevator that serves only some floors,
+	 * which only has buttons for those floors
+	 */
+	public ElevatorSubsystem(int elevatorID, int numFloors, ElevatorDisplay view, ServiceZone zone) {
+		this(elevatorID, numFloors, view, zone, ElevatorProfile.STANDARD);
+	}
+
+	/**
+	 * Create a new Elevator subsystem for an elevator with its own speed, door
+	 * times and capacity
+	 */
+	public ElevatorSubsystem(int elevatorID, int numFloors, ElevatorDisplay view, ServiceZone zone,
+			ElevatorProfile profile) {
 		super();
 
 		this.view = view;
+		this.zone = zone;
 
 		// the initial elevator state
-		elevator = new Elevator(elevatorID, generateRandomBreakingTime());
+		elevator = new Elevator(elevatorID, generateRandomBreakingTime(), profile);
 
 		
 		for (int i = 1; i <= numFloors; i++) {
-			buttons.put(i, new ElevatorButton(i));
+			if (zone.serves(i))
+				buttons.put(i, new ElevatorButton(i));
 		}
 	}
 
@@ -80,7 +107,8 @@ public class ElevatorSubsystem extends Subsystem implements Runnable {
 		System.out.println("ELEVATOR SUBSYSTEM " + elevator.getId() + ": STARTED");
 
 		// register with scheduler
-		Message message = rpcSendAndReceive(new Register(elevator.getId(), receiveSocket.getLocalPort()));
+		Message message = rpcSendAndReceive(new Register(elevator.getId(), receiveSocket.getLocalPort(), zone,
+				elevator.getProfile()));
 
 		// Initialize elevator view
 		view.setMotorState(elevator.getMotorState());
@@ -89,13 +117,19 @@ public class ElevatorSubsystem extends Subsystem implements Runnable {
 
 		while (isRunning || hasRequests()) {
 			if (elevator.getMotorState() == MotorState.STOPPED && !hasRequests())
-				updateSocketTimeout(0);
+				updateSocketTimeout(Config.IDLE_REPORT_INTERVAL);
 			else
 				updateSocketTimeout(500);
 
 			if (isRunning)
 				message = rpcSendAndReceive(elevator.getState());
 
+			// the scheduler restarted and lost track of the elevator, the dump gets the usual reply to a state
+			if (message instanceof Resync) {
+				System.out.println("ELEVATOR-" + elevator.getId() + ": Resyncing with the scheduler");
+				message = rpcSendAndReceive(getStateDump());
+			}
+
 			if (message == null) {
 				System.out.println("ELEVATOR-" + elevator.getId() + ": IDLING");
 			} else if (message instanceof RequestListMessage) {
@@ -134,6 +168,12 @@ public class ElevatorSubsystem extends Subsystem implements Runnable {
 	 * @param fr the floor request
 	 */
 	public void updateFloorRequest(FloorRequest fr, ElevatorMessage e) {
+		// passengers cancel parking
+		if (!fr.isParking()) {
+			floorRequestsInService.removeIf(FloorRequest::isParking);
+			floorRequestsAssigned.removeIf(FloorRequest::isParking);
+		}
+
 		if (fr.getSourceFloor() == e.getFloor()) {
 			floorRequestsInService.add(fr);
 		} else {
@@ -143,6 +183,17 @@ public class ElevatorSubsystem extends Subsystem implements Runnable {
 		System.out.println("ELEVATOR-" + elevator.getId() + ": Received Floor Request: " + fr);
 	}
 
+	/**
+	 * Gets everything the scheduler needs to take the elevator back after a
+	 * restart
+	 *
+	 * @return the state dump
+	 */
+	public StateDump getStateDump() {
+		return new StateDump(new Register(elevator.getId(), receiveSocket.getLocalPort(), zone, elevator.getProfile()),
+				elevator.getState(), new ArrayList<>(floorRequestsInService), new ArrayList<>(floorRequestsAssigned));
+	}
+
 	/**
 	 * Handles the passenger movement between elevator and floor
 	 */
@@ -154,7 +205,10 @@ public class ElevatorSubsystem extends Subsystem implements Runnable {
 			while (iter1.hasNext()) {
 				FloorRequest fr = iter1.next();
 				if (fr.getSourceFloor() == floor) {
-					buttons.get(fr.getDestinationFloor()).lightOn(); // turn the destination lights on
+					// turn the destination lights on, there is no button if the zone changed since the car started
+					ElevatorButton button = buttons.get(fr.getDestinationFloor());
+					if (button != null)
+						button.lightOn();
 					floorRequestsInService.add(fr);
 					iter1.remove();
 				}
@@ -168,7 +222,8 @@ public class ElevatorSubsystem extends Subsystem implements Runnable {
 				}
 			}
 
-			buttons.get(floor).lightOff();
+			if (buttons.containsKey(floor))
+				buttons.get(floor).lightOff();
 		}
 		// view.updateButtons(buttons);
 	}
@@ -0,0 +1,44 @@
+package flight_recorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded each time the scheduler picks an elevator for a floor request
+ *
+ */
+@Name("elevator.DispatchDecision")
+@Label("Dispatch Decision")
+@Category({ "Elevator", "Scheduler" })
+@Description("The scheduler picked an elevator for a floor request")
+@StackTrace(false)
+public class DispatchDecisionEvent extends Event {
+
+	@Label("Source Floor")
+	public int sourceFloor;
+
+	@Label("Destination Floor")
+	public int destinationFloor;
+
+	@Label("Candidate Count")
+	public int candidateCount;
+
+	@Label("Candidates")
+	@Description("The IDs of the elevators that could service the request")
+	public String candidates;
+
+	@Label("Chosen Elevator")
+	@Description("The ID of the chosen elevator, -1 if there was none")
+	public int chosenElevator;
+
+	@Label("Waitlist Size")
+	public int waitlistSize;
+
+	@Label("Parallel")
+	@Description("True if the candidates were scored on the fork-join pool")
+	public boolean parallel;
+}
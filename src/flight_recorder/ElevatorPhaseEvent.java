@@ -0,0 +1,35 @@
+package flight_recorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for each timed phase of an elevator: accelerating, travelling,
+ * arriving, decelerating, and opening or closing the doors. The duration is the
+ * time the phase took.
+ *
+ */
+@Name("elevator.ElevatorPhase")
+@Label("Elevator Phase")
+@Category({ "Elevator", "Motion" })
+@StackTrace(false)
+public class ElevatorPhaseEvent extends Event {
+
+	@Label("Elevator ID")
+	public int elevatorId;
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("Floor")
+	@Description("The floor the elevator was at when the phase started")
+	public int floor;
+
+	@Label("Broken")
+	@Description("True if the elevator broke during the phase")
+	public boolean broken;
+}
@@ -0,0 +1,25 @@
+package flight_recorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for each datagram a subsystem receives. The duration is the time
+ * spent decoding the message, not the time spent waiting for it.
+ *
+ */
+@Name("elevator.MessageReceived")
+@Label("Message Received")
+@Category({ "Elevator", "Messaging" })
+@StackTrace(false)
+public class MessageReceivedEvent extends Event {
+
+	@Label("Message Type")
+	public int messageType;
+
+	@Label("Bytes")
+	public int bytes;
+}
@@ -0,0 +1,27 @@
+package flight_recorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for each datagram a subsystem sends
+ *
+ */
+@Name("elevator.MessageSent")
+@Label("Message Sent")
+@Category({ "Elevator", "Messaging" })
+@StackTrace(false)
+public class MessageSentEvent extends Event {
+
+	@Label("Message Type")
+	public int messageType;
+
+	@Label("Bytes")
+	public int bytes;
+
+	@Label("Port")
+	public int port;
+}
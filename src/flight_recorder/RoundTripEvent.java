@@ -0,0 +1,31 @@
+package flight_recorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for each request sent to the scheduler that expects a reply. The
+ * duration is the round trip time including retries.
+ *
+ */
+@Name("elevator.RoundTrip")
+@Label("Round Trip")
+@Category({ "Elevator", "Messaging" })
+@Description("A request was sent to the scheduler and a reply was received or the retries ran out")
+@StackTrace(false)
+public class RoundTripEvent extends Event {
+
+	@Label("Request Type")
+	public int requestType;
+
+	@Label("Reply Type")
+	@Description("The type of the reply, -1 if there was no reply")
+	public int replyType;
+
+	@Label("Tries")
+	public int tries;
+}
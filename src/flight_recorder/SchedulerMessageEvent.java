@@ -0,0 +1,32 @@
+package flight_recorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for each message the scheduler handles. The duration is the time
+ * spent handling the message.
+ *
+ */
+@Name("elevator.SchedulerMessage")
+@Label("Scheduler Message")
+@Category({ "Elevator", "Scheduler" })
+@Description("The scheduler handled a message")
+@StackTrace(false)
+public class SchedulerMessageEvent extends Event {
+
+	@Label("Message Type")
+	public int messageType;
+
+	@Label("Batch Size")
+	@Description("The number of messages received together with this one")
+	public int batchSize;
+
+	@Label("Waitlist Size")
+	@Description("The waitlist size after the message was handled")
+	public int waitlistSize;
+}
@@ -0,0 +1,246 @@
+package floor_subsystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import common_classes.BinaryTraceFormat;
+import messages.FloorRequest;
+
+/**
+ * Replays a trace recorded by the scheduler in the binary trace format. Blocks
+ * are read one at a time as the replay advances, and the block index lets the
+ * replay start at any time without reading the blocks before it.
+ *
+ * The timestamps of the requests are milliseconds since midnight of the day the
+ * trace starts, the same as text traces, so 08:00 on the second day is
+ * 32:00:00.
+ *
+ * @see BinaryTraceFormat
+ */
+public class BinaryTraceReader implements FloorRequestSource {
+
+	private final FileChannel channel;
+
+	// the first timestamp, offset and record count of each block
+	private final List<long[]> index = new ArrayList<>();
+
+	// epoch time of midnight on the first day of the trace
+	private final long baseTime;
+
+	// the block being read and the records left in it
+	private int blockNumber = -1;
+	private ByteBuffer block;
+	private int recordsLeft = 0;
+	private long previousTime;
+
+	// the epoch time after which the replay stops
+	private long endTime = Long.MAX_VALUE;
+
+	// the request read ahead by hasNext or seek
+	private FloorRequest next;
+
+	/**
+	 * Opens a binary trace
+	 *
+	 * @param path the path of the trace
+	 * @throws IOException if the file cannot be read or is not a binary trace
+	 */
+	public BinaryTraceReader(String path) throws IOException {
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+
+		ByteBuffer header = read(0, BinaryTraceFormat.HEADER_LENGTH);
+		if (header.getInt() != BinaryTraceFormat.MAGIC || header.get() != BinaryTraceFormat.VERSION) {
+			channel.close();
+			throw new IOException("Not a binary trace: " + path);
+		}
+
+		if (!readIndex())
+			scanBlocks();
+
+		baseTime = index.isEmpty() ? 0
+				: Instant.ofEpochMilli(index.get(0)[0]).atZone(ZoneId.systemDefault()).toLocalDate()
+						.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * Checks if a file is a binary trace
+	 *
+	 * @param path the path of the file
+	 * @return true if the file starts with the binary trace magic, false otherwise
+	 */
+	public static boolean isBinaryTrace(String path) {
+		try (FileChannel fc = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			ByteBuffer bb = ByteBuffer.allocate(4);
+			while (bb.hasRemaining() && fc.read(bb) >= 0)
+				;
+			return !bb.hasRemaining() && bb.getInt(0) == BinaryTraceFormat.MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the block index from the footer
+	 *
+	 * @return true if the trace has a valid footer, false otherwise
+	 */
+	private boolean readIndex() throws IOException {
+		long size = channel.size();
+		if (size < BinaryTraceFormat.HEADER_LENGTH + BinaryTraceFormat.FOOTER_LENGTH)
+			return false;
+
+		ByteBuffer footer = read(size - BinaryTraceFormat.FOOTER_LENGTH, BinaryTraceFormat.FOOTER_LENGTH);
+		long indexOffset = footer.getLong();
+		int blocks = footer.getInt();
+		if (footer.getInt() != BinaryTraceFormat.MAGIC
+				|| indexOffset + (long) blocks * BinaryTraceFormat.INDEX_ENTRY_LENGTH != size - BinaryTraceFormat.FOOTER_LENGTH)
+			return false;
+
+		ByteBuffer bb = read(indexOffset, blocks * BinaryTraceFormat.INDEX_ENTRY_LENGTH);
+		for (int i = 0; i < blocks; i++) {
+			index.add(new long[] { bb.getLong(), bb.getLong(), bb.getInt() });
+		}
+		return true;
+	}
+
+	/**
+	 * Builds the block index from the block headers, for traces that were not
+	 * closed by their recorder
+	 */
+	private void scanBlocks() throws IOException {
+		long size = channel.size();
+		long offset = BinaryTraceFormat.HEADER_LENGTH;
+		while (offset + BinaryTraceFormat.BLOCK_HEADER_LENGTH <= size) {
+			ByteBuffer header = read(offset, BinaryTraceFormat.BLOCK_HEADER_LENGTH);
+			int length = header.getInt();
+			int records = header.getInt();
+			long firstTime = header.getLong();
+			if (length < 0 || offset + BinaryTraceFormat.BLOCK_HEADER_LENGTH + length > size)
+				break; // the last block was only partly written
+			index.add(new long[] { firstTime, offset, records });
+			offset += BinaryTraceFormat.BLOCK_HEADER_LENGTH + length;
+		}
+	}
+
+	/**
+	 * Moves the replay to the first request at or after a time, using the block
+	 * index to skip the blocks before it
+	 *
+	 * @param timestamp the time in milliseconds since midnight of the first day
+	 */
+	public void seek(long timestamp) {
+		long time = baseTime + timestamp;
+
+		// the last block that starts at or before the time
+		int low = 0, high = index.size() - 1, start = 0;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (index.get(mid)[0] <= time) {
+				start = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		blockNumber = start - 1;
+		recordsLeft = 0;
+		next = null;
+		while (hasNext() && baseTime + next.getTimestamp() < time)
+			next = null;
+	}
+
+	/**
+	 * Stops the replay after a time
+	 *
+	 * @param timestamp the time in milliseconds since midnight of the first day
+	 */
+	public void setEnd(long timestamp) {
+		endTime = baseTime + timestamp;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null)
+			next = readRequest();
+		return next != null;
+	}
+
+	@Override
+	public FloorRequest next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		FloorRequest fr = next;
+		next = null;
+		return fr;
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Reads the next request, loading the next block when the current one is done
+	 *
+	 * @return the request, null at the end of the trace or replay
+	 */
+	private FloorRequest readRequest() {
+		try {
+			while (recordsLeft == 0) {
+				if (++blockNumber >= index.size())
+					return null;
+				long[] entry = index.get(blockNumber);
+				ByteBuffer header = read(entry[1], BinaryTraceFormat.BLOCK_HEADER_LENGTH);
+				int length = header.getInt();
+				recordsLeft = header.getInt();
+				previousTime = header.getLong();
+				block = read(entry[1] + BinaryTraceFormat.BLOCK_HEADER_LENGTH, length);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		long time = previousTime + BinaryTraceFormat.unzigzag(BinaryTraceFormat.getVarLong(block));
+		int source = (int) BinaryTraceFormat.unzigzag(BinaryTraceFormat.getVarLong(block));
+		int destination = (int) BinaryTraceFormat.unzigzag(BinaryTraceFormat.getVarLong(block));
+		int requestId = (int) BinaryTraceFormat.getVarLong(block);
+		previousTime = time;
+		recordsLeft--;
+
+		if (time > endTime) {
+			blockNumber = index.size();
+			recordsLeft = 0;
+			return null;
+		}
+		FloorRequest fr = new FloorRequest((int) (time - baseTime), source, destination);
+		fr.setRequestId(requestId);
+		return fr;
+	}
+
+	/**
+	 * Reads part of the file
+	 */
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer bb = ByteBuffer.allocate(length);
+		while (bb.hasRemaining()) {
+			if (channel.read(bb, position + bb.position()) < 0)
+				throw new IOException("Unexpected end of trace");
+		}
+		bb.flip();
+		return bb;
+	}
+}
@@ -0,0 +1,21 @@
+package floor_subsystem;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import messages.FloorRequest;
+
+/**
+ * A source of floor requests that the floor subsystem replays in order. Requests
+ * are produced lazily as the replay advances, so a source never needs to hold
+ * the whole trace in memory.
+ *
+ */
+public interface FloorRequestSource extends Iterator<FloorRequest>, Closeable {
+
+	/**
+	 * Releases the resources held by the source
+	 */
+	@Override
+	void close();
+}
@@ -1,14 +1,19 @@
 package floor_subsystem;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import common_classes.Config;
 import common_classes.Helper;
 import common_classes.Subsystem;
+import messages.FloorRegister;
 import messages.FloorRequest;
+import messages.Message;
+import messages.Response;
 import messages.Terminate;
 
 /**
@@ -24,13 +29,67 @@ public class FloorSubsystem extends Subsystem {
 
 	String path;
 
+	// the id of this floor client, 0 for the single floor subsystem on the floor port
+	private final int clientId;
+
+	// the floors whose requests this client sends
+	private final int lowestFloor;
+	private final int highestFloor;
+	private boolean registered = false;
+
+	// the part of the trace that is replayed, in trace milliseconds
+	private long replayFrom = 0;
+	private long replayTo = Long.MAX_VALUE;
+
+	// the source replayed instead of the request file, if any
+	private FloorRequestSource requestSource;
+
+	// paces the replay, created when the replay starts
+	private ReplayClock replayClock;
+
+	// open loop sends requests on schedule without waiting for their responses
+	private boolean openLoop = false;
+	private int ackWindow = 64;
+	private int ackTimeout = 500; // ms
+	private static final int MAX_RETRANSMITS = 3;
+
+	// the requests waiting for a response, by request ID, oldest first
+	private final ConcurrentSkipListMap<Integer, PendingRequest> pending = new ConcurrentSkipListMap<>();
+	private int nextRequestId = 1;
+	private volatile boolean receivingAcks;
+
+	// open loop statistics
+	private long requestsSent = 0;
+	private long retransmits = 0;
+	private long requestsLost = 0;
+	private final AtomicLong requestsAcked = new AtomicLong();
+	private final AtomicLong totalAckNanos = new AtomicLong();
+	private final AtomicLong maxAckNanos = new AtomicLong();
+
 	/**
 	 * Constructor for FloorSubsystem.
 	 *
 	 * @param scheduler The Scheduler messages will be passed to.
 	 */
 	public FloorSubsystem(String pathToRequestFile) {
-		super(Helper.FLOOR_PORT);
+		this(pathToRequestFile, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor for a floor client that sends the requests of a range of floors.
+	 * A client other than client 0 receives its responses on a port of its own and
+	 * registers it with the scheduler, so several clients can run at once.
+	 *
+	 * @param pathToRequestFile the request file to replay
+	 * @param clientId          the id of the client, 0 to use the floor port
+	 * @param lowestFloor       the lowest source floor the client sends
+	 * @param highestFloor      the highest source floor the client sends
+	 */
+	public FloorSubsystem(String pathToRequestFile, int clientId, int lowestFloor, int highestFloor) {
+		super(clientId == 0 ? Helper.FLOOR_PORT : 0);
+		this.clientId = clientId;
+		this.lowestFloor = lowestFloor;
+		this.highestFloor = highestFloor;
 
 		if (pathToRequestFile.isEmpty())
 			path = "Resources/requestDocument.txt";
@@ -38,6 +97,21 @@ public class FloorSubsystem extends Subsystem {
 			path = pathToRequestFile;
 	}
 
+	/**
+	 * Registers the client's port and floors with the scheduler. The floor
+	 * subsystem on the floor port does not need to register.
+	 *
+	 * @return true if the client is registered, false if the scheduler did not
+	 *         respond
+	 */
+	public boolean register() {
+		if (clientId == 0 || registered)
+			return true;
+		registered = rpcSendAndReceive(
+				new FloorRegister(clientId, receiveSocket.getLocalPort(), lowestFloor, highestFloor)) != null;
+		return registered;
+	}
+
 	/**
 	 * When FloorSubsystem is used to create a thread, starting the thread will
 	 * execute this method.
@@ -45,27 +119,281 @@ public class FloorSubsystem extends Subsystem {
 	 * @throws Exception
 	 */
 	public void run() {
-		Thread.currentThread().setName("FLOOR SUBSYSTEM");
+		Thread.currentThread().setName(clientId == 0 ? "FLOOR SUBSYSTEM" : "FLOOR-" + clientId);
 		System.out.println("FLOOR SUBSYSTEM: STARTED");
-		ArrayList<FloorRequest> floorReqs = getFloorRequests(path);
-		int prevTime = -1;
-		for (FloorRequest fr : floorReqs) {
-			if (prevTime == -1) {
-				prevTime = fr.getTimestamp();
-			} else {
-				int duration = fr.getTimestamp() - prevTime;
-				Helper.sleep(duration);
-				prevTime = fr.getTimestamp();
-			}
+		if (!register()) {
+			System.out.println("FLOOR SUBSYSTEM: scheduler did not respond to register");
+			closeSockets();
+			return;
+		}
+		FloorRequestSource floorReqs = requestSource != null ? requestSource : openFloorRequests(path);
+		if (floorReqs instanceof BinaryTraceReader)
+			((BinaryTraceReader) floorReqs).seek(replayFrom);
+		replayClock = new ReplayClock(Config.CLOCK_SPEED);
+		if (openLoop)
+			runOpenLoop(floorReqs);
+		else
+			runClosedLoop(floorReqs);
+		floorReqs.close();
+		replayClock.printStatistics();
+
+		rpcSendAndReceive(new Terminate(clientId));
+		closeSockets();
+		System.out.println("FLOOR SUBSYSTEM: TERMINATED");
+	}
+
+	/**
+	 * Sends each request and waits for its response before sending the next one.
+	 * A request whose response is slow is sent late, but the requests after it are
+	 * still due at their own times.
+	 *
+	 * @param floorReqs the requests
+	 */
+	private void runClosedLoop(FloorRequestSource floorReqs) {
+		// a request whose response is lost, such as to a scheduler that died, is sent again
+		updateSocketTimeout(1000);
+		while (floorReqs.hasNext()) {
+			FloorRequest fr = floorReqs.next();
+			if (fr.getTimestamp() < replayFrom)
+				continue;
+			if (fr.getTimestamp() > replayTo)
+				break;
+			if (fr.getSourceFloor() < lowestFloor || fr.getSourceFloor() > highestFloor)
+				continue; // handled by another floor client
+			fr.setClientId(clientId);
+			// the ID lets the scheduler tell a request sent again after a lost response from a new one
+			assignRequestId(fr);
+
+			long deadline = replayClock.deadlineOf(fr.getTimestamp());
+			replayClock.awaitDeadline(deadline);
+			replayClock.recordSend(deadline);
 
 			if (rpcSendAndReceive(fr) == null)
 				break;
 			System.out.println("FLOOR SUBSYSTEM: sent Floor Request: " + fr);
 		}
+	}
 
-		rpcSendAndReceive(new Terminate());
-		closeSockets();
-		System.out.println("FLOOR SUBSYSTEM: TERMINATED");
+	/**
+	 * Sends each request at its time whether or not earlier requests have been
+	 * acknowledged. A second thread receives the responses. Requests that are not
+	 * acknowledged within the timeout are retransmitted, and are lost once the
+	 * retransmits run out or once the window of unacknowledged requests is full.
+	 *
+	 * @param floorReqs the requests
+	 */
+	private void runOpenLoop(FloorRequestSource floorReqs) {
+		receivingAcks = true;
+		updateSocketTimeout(Math.max(1, ackTimeout / 4));
+		Thread ackReceiver = new Thread(this::receiveAcks, "FLOOR ACK RECEIVER");
+		ackReceiver.start();
+
+		while (floorReqs.hasNext()) {
+			FloorRequest fr = floorReqs.next();
+			if (fr.getTimestamp() < replayFrom)
+				continue;
+			if (fr.getTimestamp() > replayTo)
+				break;
+			if (fr.getSourceFloor() < lowestFloor || fr.getSourceFloor() > highestFloor)
+				continue; // handled by another floor client
+			fr.setClientId(clientId);
+
+			long deadline = replayClock.deadlineOf(fr.getTimestamp());
+			waitUntil(deadline);
+
+			// a full window means the oldest request will never be acknowledged in time
+			while (pending.size() >= ackWindow) {
+				Map.Entry<Integer, PendingRequest> oldest = pending.pollFirstEntry();
+				if (oldest != null) {
+					requestsLost++;
+					System.out.println("FLOOR SUBSYSTEM: window full, lost Floor Request: " + oldest.getValue().request);
+				}
+			}
+
+			assignRequestId(fr);
+			PendingRequest pr = new PendingRequest(fr, System.nanoTime());
+			pending.put(fr.getRequestId(), pr);
+			replayClock.recordSend(deadline);
+			send(fr, Helper.SCHEDULER_PORT);
+			requestsSent++;
+			System.out.println("FLOOR SUBSYSTEM: sent Floor Request: " + fr);
+		}
+
+		// give the last requests their chance to be acknowledged
+		while (!pending.isEmpty()) {
+			waitUntil(System.nanoTime() + ackTimeout * 1000000L / 4);
+		}
+
+		receivingAcks = false;
+		try {
+			ackReceiver.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		updateSocketTimeout(0);
+		printOpenLoopStatistics();
+	}
+
+	/**
+	 * Gives a request the next ID of this client. A request replayed from a
+	 * recorded trace keeps its recorded ID while the IDs keep rising, so a
+	 * recording of one client replays with the IDs it was recorded with.
+	 *
+	 * @param fr the request
+	 */
+	private void assignRequestId(FloorRequest fr) {
+		if (fr.getRequestId() < nextRequestId)
+			fr.setRequestId(nextRequestId);
+		nextRequestId = fr.getRequestId() + 1;
+	}
+
+	/**
+	 * Waits until a time, retransmitting the requests whose responses are late in
+	 * the meantime
+	 *
+	 * @param deadline the System.nanoTime to wait until
+	 */
+	private void waitUntil(long deadline) {
+		long tick = ackTimeout * 1000000L / 4;
+		long now;
+		while ((now = System.nanoTime()) < deadline) {
+			retransmitLateRequests(now);
+			replayClock.awaitDeadline(Math.min(deadline, now + tick));
+		}
+		retransmitLateRequests(System.nanoTime());
+	}
+
+	/**
+	 * Retransmits the requests that have not been acknowledged within the timeout
+	 */
+	private void retransmitLateRequests(long now) {
+		for (PendingRequest pr : pending.values()) {
+			if (now - pr.lastSent < ackTimeout * 1000000L)
+				continue;
+			if (pr.transmissions > MAX_RETRANSMITS) {
+				if (pending.remove(pr.request.getRequestId()) != null) {
+					requestsLost++;
+					System.out.println("FLOOR SUBSYSTEM: lost Floor Request: " + pr.request);
+				}
+			} else {
+				pr.transmissions++;
+				pr.lastSent = now;
+				send(pr.request, Helper.SCHEDULER_PORT);
+				retransmits++;
+			}
+		}
+	}
+
+	/**
+	 * Receives the responses of the open loop until it is done
+	 */
+	private void receiveAcks() {
+		while (receivingAcks) {
+			Message message;
+			try {
+				message = receive();
+			} catch (IOException e) {
+				continue; // timed out, check if still receiving
+			}
+			if (!(message instanceof Response))
+				continue;
+			PendingRequest pr = pending.remove(((Response) message).getRequestId());
+			if (pr != null) {
+				long ackNanos = System.nanoTime() - pr.firstSent;
+				requestsAcked.incrementAndGet();
+				totalAckNanos.addAndGet(ackNanos);
+				maxAckNanos.accumulateAndGet(ackNanos, Math::max);
+			}
+		}
+	}
+
+	/**
+	 * Prints the open loop statistics
+	 */
+	private void printOpenLoopStatistics() {
+		long acked = requestsAcked.get();
+		System.out.printf(
+				"FLOOR SUBSYSTEM: sent %d requests, %d acknowledged, %d retransmits, %d lost, ack time avg %.2f ms max %.2f ms%n",
+				requestsSent, acked, retransmits, requestsLost,
+				acked == 0 ? 0.0 : totalAckNanos.get() / 1e6 / acked, maxAckNanos.get() / 1e6);
+	}
+
+	/**
+	 * Sends requests on schedule instead of waiting for each response
+	 *
+	 * @param ackWindow  the most requests that can wait for a response
+	 * @param ackTimeout the time before a request is retransmitted, in milliseconds
+	 */
+	public void setOpenLoop(int ackWindow, int ackTimeout) {
+		this.openLoop = true;
+		this.ackWindow = ackWindow;
+		this.ackTimeout = ackTimeout;
+	}
+
+	/**
+	 * Gets the clock that paced the last replay
+	 *
+	 * @return the clock, null if no replay has started
+	 */
+	public ReplayClock getReplayClock() {
+		return replayClock;
+	}
+
+	/* Open loop statistics */
+	public long getRequestsSent() {
+		return requestsSent;
+	}
+
+	public long getRequestsAcked() {
+		return requestsAcked.get();
+	}
+
+	public long getRetransmits() {
+		return retransmits;
+	}
+
+	public long getRequestsLost() {
+		return requestsLost;
+	}
+
+	/**
+	 * Replays only the requests between two times of the trace
+	 *
+	 * @param from the time of the first request replayed, in milliseconds
+	 * @param to   the time of the last request replayed, in milliseconds
+	 */
+	public void setReplayWindow(long from, long to) {
+		replayFrom = from;
+		replayTo = to;
+	}
+
+	/**
+	 * Replays requests from a source, such as a traffic generator, instead of the
+	 * request file
+	 *
+	 * @param requestSource the source of the requests
+	 */
+	public void setRequestSource(FloorRequestSource requestSource) {
+		this.requestSource = requestSource;
+	}
+
+	/**
+	 * Opens a request file for streaming. The requests are read as the replay
+	 * advances instead of all at once. The file can be a text trace or a binary
+	 * trace recorded by the scheduler.
+	 *
+	 * @param fileName the filename of the trace.
+	 * @return the source of the requests, empty if the file could not be read.
+	 */
+	public FloorRequestSource openFloorRequests(String fileName) {
+		try {
+			if (BinaryTraceReader.isBinaryTrace(fileName))
+				return new BinaryTraceReader(fileName);
+			return new TextTraceReader(fileName);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return new EmptySource();
+		}
 	}
 
 	/**
@@ -74,32 +402,52 @@ public class FloorSubsystem extends Subsystem {
 	 *
 	 * @param fileName the filename of the text file.
 	 * @return A list of Messages containing passenger information.
-	 * @throws IOException is thrown if there is an error reading the file.
 	 */
 	public ArrayList<FloorRequest> getFloorRequests(String fileName) {
-		final int TIME = 0;
-		final int FLOOR_NUMBER = 1;
-		final int CAR_BUTTON = 3;
-
 		ArrayList<FloorRequest> floorReqs = new ArrayList<>();
-		try {
-			BufferedReader reader = new BufferedReader(new FileReader(fileName));
-			String line = reader.readLine();
-			while (line != null) {
-				String[] splitLine = line.split(" ");
-
-				floorReqs.add(new FloorRequest(Helper.timeStringToMilliseconds(splitLine[TIME]),
-						Integer.parseInt(splitLine[FLOOR_NUMBER]), Integer.parseInt(splitLine[CAR_BUTTON])));
-				line = reader.readLine();
-			}
-			reader.close();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
+		FloorRequestSource source = openFloorRequests(fileName);
+		while (source.hasNext()) {
+			floorReqs.add(source.next());
 		}
+		source.close();
 
 		return floorReqs;
 	}
 
+	/**
+	 * A request sent in the open loop that is waiting for its response
+	 */
+	private static class PendingRequest {
+		final FloorRequest request;
+		final long firstSent;
+		volatile long lastSent;
+		int transmissions = 1;
+
+		PendingRequest(FloorRequest request, long sent) {
+			this.request = request;
+			this.firstSent = sent;
+			this.lastSent = sent;
+		}
+	}
+
+	/**
+	 * The source used when a request file cannot be read
+	 */
+	private static class EmptySource implements FloorRequestSource {
+
+		@Override
+		public boolean hasNext() {
+			return false;
+		}
+
+		@Override
+		public FloorRequest next() {
+			throw new NoSuchElementException();
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
 }
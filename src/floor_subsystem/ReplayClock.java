@@ -0,0 +1,114 @@
+package floor_subsystem;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a replay against absolute deadlines. The deadline of each request is
+ * computed from the time the replay started and the request's trace time, so
+ * late sends and sleep overshoot do not add up over the run. Waits park until
+ * shortly before the deadline and spin the rest of the way, which keeps
+ * arrivals within tens of microseconds of the trace.
+ *
+ * The drift of every send from its deadline is measured and can be printed at
+ * the end of the run.
+ *
+ */
+public class ReplayClock {
+
+	public static final double MIN_SPEED = 0.1;
+	public static final double MAX_SPEED = 1000;
+
+	// waits end with a spin this long, since parking can overshoot by about as much
+	private static final long SPIN_NANOS = 200000;
+
+	private final double speed;
+
+	// the System.nanoTime and trace time the replay started at
+	private long originNanos;
+	private long originTimestamp = -1;
+
+	// drift statistics, in nanoseconds
+	private long sends = 0;
+	private long totalDrift = 0;
+	private long maxDrift = 0;
+	private long lastDrift = 0;
+
+	/**
+	 * Creates a clock
+	 *
+	 * @param speed how many times faster than real time the trace is replayed
+	 */
+	public ReplayClock(double speed) {
+		if (speed < MIN_SPEED || speed > MAX_SPEED)
+			throw new IllegalArgumentException("Replay speed must be between " + MIN_SPEED + " and " + MAX_SPEED);
+		this.speed = speed;
+	}
+
+	/**
+	 * Gets the deadline of a trace time. The first call starts the replay, so the
+	 * first request is due immediately.
+	 *
+	 * @param timestamp the trace time, in milliseconds
+	 * @return the System.nanoTime the request is due at
+	 */
+	public long deadlineOf(long timestamp) {
+		if (originTimestamp == -1) {
+			originTimestamp = timestamp;
+			originNanos = System.nanoTime();
+		}
+		return originNanos + (long) ((timestamp - originTimestamp) * 1000000.0 / speed);
+	}
+
+	/**
+	 * Waits until a deadline
+	 *
+	 * @param deadline the System.nanoTime to wait until
+	 */
+	public void awaitDeadline(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+			LockSupport.parkNanos(remaining - SPIN_NANOS);
+		}
+		while (deadline - System.nanoTime() > 0) {
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Records that the request due at a deadline was sent now
+	 *
+	 * @param deadline the deadline of the request
+	 */
+	public void recordSend(long deadline) {
+		long drift = System.nanoTime() - deadline;
+		sends++;
+		totalDrift += drift;
+		maxDrift = Math.max(maxDrift, drift);
+		lastDrift = drift;
+	}
+
+	/**
+	 * Prints the drift of the sends from their deadlines
+	 */
+	public void printStatistics() {
+		System.out.printf("FLOOR SUBSYSTEM: replay at %.1fx, %d requests, drift avg %.3f ms max %.3f ms final %.3f ms%n",
+				speed, sends, sends == 0 ? 0.0 : totalDrift / 1e6 / sends, maxDrift / 1e6, lastDrift / 1e6);
+	}
+
+	/* Getters */
+	public long getSends() {
+		return sends;
+	}
+
+	public long getAverageDriftNanos() {
+		return sends == 0 ? 0 : totalDrift / sends;
+	}
+
+	public long getMaxDriftNanos() {
+		return maxDrift;
+	}
+
+	public long getFinalDriftNanos() {
+		return lastDrift;
+	}
+}
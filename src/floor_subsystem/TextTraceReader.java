@@ -0,0 +1,222 @@
+package floor_subsystem;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+
+import messages.FloorRequest;
+
+/**
+ * Streams floor requests from a text trace in the "HH:MM:SS.mmm floor direction
+ * car" format. The file is memory mapped a window at a time and each line is
+ * parsed directly from the mapped bytes, so no line Strings are created and only
+ * the current window is resident.
+ *
+ */
+public class TextTraceReader implements FloorRequestSource {
+
+	// the largest part of the file that is mapped at once
+	private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+	// the longest line that is guaranteed to be parsed from one window
+	private static final long MAX_LINE_LENGTH = 4096;
+
+	private static final int HOURS_TO_MILLISECONDS = 3600000;
+	private static final int MINUTES_TO_MILLISECONDS = 60000;
+	private static final int SECONDS_TO_MILLISECONDS = 1000;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long size;
+
+	// the mapped window and the file offset it starts at
+	private MappedByteBuffer window;
+	private long windowStart;
+
+	// the file offset of the next unread byte
+	private long position = 0;
+
+	// the number of the next line, for error messages
+	private int lineNumber = 1;
+
+	// the request read ahead by hasNext
+	private FloorRequest next;
+
+	/**
+	 * Opens a text trace
+	 *
+	 * @param fileName the path of the trace
+	 * @throws IOException if the file cannot be opened or mapped
+	 */
+	public TextTraceReader(String fileName) throws IOException {
+		file = new RandomAccessFile(fileName, "r");
+		channel = file.getChannel();
+		size = channel.size();
+		mapWindow(0);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null)
+			next = readRequest();
+		return next != null;
+	}
+
+	@Override
+	public FloorRequest next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		FloorRequest fr = next;
+		next = null;
+		return fr;
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+			file.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Maps the window of the file starting at an offset
+	 */
+	private void mapWindow(long start) throws IOException {
+		windowStart = start;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW, size - start));
+	}
+
+	/**
+	 * Reads the next request, skipping blank lines
+	 *
+	 * @return the request, null at the end of the file
+	 */
+	private FloorRequest readRequest() {
+		try {
+			while (position < size) {
+				// start a new window at this line if the line could run past the current one
+				long windowEnd = windowStart + window.limit();
+				if (windowEnd < size && windowEnd - position < MAX_LINE_LENGTH)
+					mapWindow(position);
+
+				window.position((int) (position - windowStart));
+				FloorRequest fr = parseLine();
+				position = windowStart + window.position();
+				lineNumber++;
+				if (fr != null)
+					return fr;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Parses one line from the current window position, leaving the position at
+	 * the start of the next line
+	 *
+	 * @return the request, null if the line was blank
+	 */
+	private FloorRequest parseLine() {
+		skipSpaces();
+		if (atEndOfLine()) {
+			skipLineEnding();
+			return null;
+		}
+
+		int hours = parseNumber(':');
+		int minutes = parseNumber(':');
+		int seconds = parseDigits();
+		int milliseconds = 0;
+		if (window.hasRemaining() && peek() == '.') {
+			window.get();
+			// the fraction is in seconds, so ".24" is 240 milliseconds; digits past the third are dropped
+			int scale = 100;
+			while (window.hasRemaining() && isDigit(peek())) {
+				int digit = window.get() - '0';
+				milliseconds += digit * scale;
+				scale /= 10;
+			}
+		}
+		int timestamp = hours * HOURS_TO_MILLISECONDS + minutes * MINUTES_TO_MILLISECONDS
+				+ seconds * SECONDS_TO_MILLISECONDS + milliseconds;
+
+		skipSpaces();
+		int sourceFloor = parseDigits();
+		skipSpaces();
+		skipToken(); // the direction is implied by the floors
+		skipSpaces();
+		int destinationFloor = parseDigits();
+
+		skipSpaces();
+		if (!atEndOfLine())
+			throw malformed();
+		skipLineEnding();
+
+		return new FloorRequest(timestamp, sourceFloor, destinationFloor);
+	}
+
+	/**
+	 * Parses a number followed by a separator, consuming the separator
+	 */
+	private int parseNumber(char separator) {
+		int value = parseDigits();
+		if (!window.hasRemaining() || window.get() != separator)
+			throw malformed();
+		return value;
+	}
+
+	/**
+	 * Parses an unsigned decimal number
+	 */
+	private int parseDigits() {
+		if (!window.hasRemaining() || !isDigit(peek()))
+			throw malformed();
+		int value = 0;
+		while (window.hasRemaining() && isDigit(peek())) {
+			value = value * 10 + (window.get() - '0');
+		}
+		return value;
+	}
+
+	private void skipSpaces() {
+		while (window.hasRemaining() && (peek() == ' ' || peek() == '\t'))
+			window.get();
+	}
+
+	private void skipToken() {
+		if (atEndOfLine())
+			throw malformed();
+		while (window.hasRemaining() && peek() != ' ' && peek() != '\t' && !atEndOfLine())
+			window.get();
+	}
+
+	private boolean atEndOfLine() {
+		return !window.hasRemaining() || peek() == '\n' || peek() == '\r';
+	}
+
+	private void skipLineEnding() {
+		if (window.hasRemaining() && peek() == '\r')
+			window.get();
+		if (window.hasRemaining() && peek() == '\n')
+			window.get();
+	}
+
+	private byte peek() {
+		return window.get(window.position());
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private IllegalArgumentException malformed() {
+		return new IllegalArgumentException("Malformed floor request on line " + lineNumber);
+	}
+}
@@ -0,0 +1,169 @@
+package floor_subsystem;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import messages.FloorRequest;
+
+/**
+ * Generates floor requests from a traffic model instead of a trace. Passengers
+ * arrive as a Poisson process at the given rate, and the model decides which
+ * floors they travel between. The lobby is floor 1.
+ *
+ * The generator is a request source, so it can feed the floor subsystem
+ * directly, or it can write the requests to a text trace.
+ *
+ */
+public class TrafficGenerator implements FloorRequestSource {
+
+	/**
+	 * The traffic patterns of an office building through the day
+	 */
+	public enum TrafficModel {
+		// morning arrivals, mostly from the lobby up
+		UP_PEAK(0.85, 0.05),
+		// evening departures, mostly down to the lobby
+		DOWN_PEAK(0.05, 0.85),
+		// trips both out of and back to the lobby
+		LUNCH(0.45, 0.45),
+		// trips between random floors
+		INTERFLOOR(0, 0);
+
+		// the share of passengers going up from the lobby and down to the lobby, the
+		// rest travel between upper floors
+		private final double fromLobby;
+		private final double toLobby;
+
+		TrafficModel(double fromLobby, double toLobby) {
+			this.fromLobby = fromLobby;
+			this.toLobby = toLobby;
+		}
+	}
+
+	private static final int LOBBY = 1;
+	private static final int HOURS_TO_MILLISECONDS = 3600000;
+
+	private final TrafficModel model;
+	private final int numFloors;
+	private final double arrivalsPerMillisecond;
+	private final long endTime;
+	private final Random random;
+
+	// the time of the last arrival, in milliseconds since midnight
+	private double time;
+
+	// the request generated ahead by hasNext
+	private FloorRequest next;
+
+	/**
+	 * Creates a generator
+	 *
+	 * @param model             the traffic model
+	 * @param numFloors         the number of floors, at least 2
+	 * @param passengersPerHour the mean arrival rate of the whole building
+	 * @param startTime         the time of day the traffic starts, in milliseconds
+	 * @param duration          how long the traffic lasts, in milliseconds
+	 * @param seed              the seed of the random numbers, so runs can be
+	 *                          repeated
+	 */
+	public TrafficGenerator(TrafficModel model, int numFloors, double passengersPerHour, long startTime, long duration,
+			long seed) {
+		if (numFloors < 2)
+			throw new IllegalArgumentException("Traffic needs at least 2 floors");
+		if (passengersPerHour <= 0)
+			throw new IllegalArgumentException("The arrival rate must be positive");
+
+		this.model = model;
+		this.numFloors = numFloors;
+		this.arrivalsPerMillisecond = passengersPerHour / HOURS_TO_MILLISECONDS;
+		this.time = startTime;
+		this.endTime = startTime + duration;
+		this.random = new Random(seed);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null)
+			next = generateRequest();
+		return next != null;
+	}
+
+	@Override
+	public FloorRequest next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		FloorRequest fr = next;
+		next = null;
+		return fr;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Generates the next arrival
+	 *
+	 * @return the request, null once the duration has passed
+	 */
+	private FloorRequest generateRequest() {
+		// the gaps between Poisson arrivals are exponentially distributed
+		time += -Math.log(1 - random.nextDouble()) / arrivalsPerMillisecond;
+		if (time > endTime)
+			return null;
+
+		int source, destination;
+		double trip = random.nextDouble();
+		if (trip < model.fromLobby) {
+			source = LOBBY;
+			destination = upperFloor();
+		} else if (trip < model.fromLobby + model.toLobby) {
+			source = upperFloor();
+			destination = LOBBY;
+		} else {
+			// interfloor traffic uses every floor, the rest of a peak stays off the lobby
+			boolean anyFloor = model == TrafficModel.INTERFLOOR || numFloors < 3;
+			source = anyFloor ? randomFloor() : upperFloor();
+			do {
+				destination = anyFloor ? randomFloor() : upperFloor();
+			} while (destination == source);
+		}
+		return new FloorRequest((int) time, source, destination);
+	}
+
+	private int upperFloor() {
+		return LOBBY + 1 + random.nextInt(numFloors - 1);
+	}
+
+	private int randomFloor() {
+		return 1 + random.nextInt(numFloors);
+	}
+
+	/**
+	 * Writes the remaining requests to a text trace that the floor subsystem can
+	 * replay
+	 *
+	 * @param path the path of the trace
+	 * @throws IOException if the trace cannot be written
+	 */
+	public void writeTrace(String path) throws IOException {
+		try (FileWriter writer = new FileWriter(path)) {
+			while (hasNext()) {
+				FloorRequest fr = next();
+				writer.write(formatTime(fr.getTimestamp()) + " " + fr.getSourceFloor() + " "
+						+ (fr.getDestinationFloor() > fr.getSourceFloor() ? "Up" : "Down") + " "
+						+ fr.getDestinationFloor() + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Formats a time as HH:MM:SS.mmm
+	 */
+	private static String formatTime(int timestamp) {
+		return String.format("%02d:%02d:%02d.%03d", timestamp / HOURS_TO_MILLISECONDS, timestamp / 60000 % 60,
+				timestamp / 1000 % 60, timestamp % 1000);
+	}
+}
@@ -0,0 +1,181 @@
+package launcher;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import common_classes.Config;
+import elevator_subsystem.ElevatorSubsystem;
+import floor_subsystem.FloorSubsystem;
+import scheduler.Scheduler;
+import scheduler.ShardedScheduler;
+import views.NullElevatorDisplay;
+import views.NullSchedulerDisplay;
+
+/**
+ * Runs the whole system headless with a given trace, elevator count and floor
+ * count, and reports passengers per hour, wait and ride times, scheduler cost
+ * per message, message rates and garbage collection as JSON or CSV. A CSV
+ * output file is appended to so several runs can be compared.
+ *
+ * Takes the same options as the {@link Launcher}, plus --report and --output.
+ */
+public class BenchmarkHarness {
+
+	private final LaunchOptions options;
+
+	public BenchmarkHarness(LaunchOptions options) {
+		this.options = options;
+	}
+
+	/**
+	 * Runs the system until the scheduler terminates
+	 *
+	 * @return the report of the run
+	 */
+	public KpiReport run() {
+		Config.setClockSpeed(options.getClockSpeed());
+
+		long gcCountBefore = gcCount();
+		long gcMillisBefore = gcMillis();
+		long start = System.nanoTime();
+
+		Scheduler scheduler = null;
+		ShardedScheduler sharded = null;
+		Thread schedulerThread;
+		if (options.getShards() > 1) {
+			sharded = Launcher.createShardedScheduler(options);
+			schedulerThread = new Thread(sharded, "SCHEDULER");
+		} else {
+			scheduler = new Scheduler(new NullSchedulerDisplay());
+			scheduler.setDispatchMode(options.getDispatchMode());
+			scheduler.setParallelDispatchThreshold(options.getParallelDispatchThreshold());
+			scheduler.setDemandProfile(Launcher.createDemandProfile(options));
+			Launcher.openJournal(options, scheduler);
+			schedulerThread = new Thread(scheduler::run, "SCHEDULER");
+		}
+		schedulerThread.start();
+
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < options.getNumElevators(); i++) {
+			int id = options.getFirstElevatorId() + i;
+			ElevatorSubsystem elevatorSubsystem = new ElevatorSubsystem(id, options.getNumFloors(),
+					new NullElevatorDisplay(), options.getZone(id), options.getProfile(id));
+			Thread thread = new Thread(elevatorSubsystem);
+			thread.start();
+			threads.add(thread);
+		}
+
+		List<FloorSubsystem> floorSubsystems = Launcher.createFloorSubsystems(options);
+		for (FloorSubsystem fs : floorSubsystems) {
+			Thread floorThread = new Thread(fs::run);
+			floorThread.start();
+			threads.add(floorThread);
+		}
+
+		try {
+			schedulerThread.join();
+			long wallNanos = System.nanoTime() - start;
+			for (Thread thread : threads)
+				thread.join();
+			KpiReport report;
+			if (sharded != null) {
+				report = new KpiReport(options, sharded.getStatistics(), wallNanos, gcCount() - gcCountBefore,
+						gcMillis() - gcMillisBefore);
+				report.addHallCallStatistics(sharded.getHallCalls());
+				report.addShardStatistics(sharded.getRouter());
+			} else {
+				Launcher.saveDemandProfile(options, scheduler.getDemandProfile());
+				report = new KpiReport(options, scheduler.getStatistics(), wallNanos, gcCount() - gcCountBefore,
+						gcMillis() - gcMillisBefore);
+				report.addHallCallStatistics(Collections.singletonList(scheduler.getHallCalls()));
+				report.addShardStatistics(null);
+			}
+			report.addReplayStatistics(floorSubsystems);
+			report.addOpenLoopStatistics(floorSubsystems);
+			return report;
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the report to the output file, or to stdout if there is none
+	 *
+	 * @param report the report
+	 * @throws IOException if the output file cannot be written
+	 */
+	public void write(KpiReport report) throws IOException {
+		boolean json = options.getReportFormat() == LaunchOptions.ReportFormat.JSON;
+
+		if (options.getOutputPath().isEmpty()) {
+			System.out.print(json ? report.toJson() : report.toCsvHeader() + report.toCsvLine());
+			return;
+		}
+
+		File file = new File(options.getOutputPath());
+		if (json) {
+			try (FileWriter writer = new FileWriter(file)) {
+				writer.write(report.toJson());
+			}
+		} else {
+			boolean newFile = !file.exists() || file.length() == 0;
+			try (FileWriter writer = new FileWriter(file, true)) {
+				if (newFile)
+					writer.write(report.toCsvHeader());
+				writer.write(report.toCsvLine());
+			}
+		}
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, gc.getCollectionCount());
+		return count;
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			millis += Math.max(0, gc.getCollectionTime());
+		return millis;
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		LaunchOptions options;
+		try {
+			options = LaunchOptions.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println(LaunchOptions.USAGE);
+			System.exit(1);
+			return;
+		}
+
+		if (options.isHelp()) {
+			System.out.println(LaunchOptions.USAGE);
+			return;
+		}
+
+		BenchmarkHarness harness = new BenchmarkHarness(options);
+		KpiReport report = harness.run();
+		if (report == null)
+			System.exit(1);
+
+		try {
+			harness.write(report);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package launcher;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import common_classes.Helper;
+import floor_subsystem.FloorSubsystem;
+import floor_subsystem.ReplayClock;
+import scheduler.HallCallRegister;
+import scheduler.SchedulerMessageReceiver.Lane;
+import scheduler.SchedulerStatistics;
+import scheduler.ShardRouter;
+
+/**
+ * The key performance indicators of one benchmark run, in a machine readable
+ * format. Wait and ride times are in simulated seconds, so runs with different
+ * clock speeds can be compared.
+ *
+ */
+public class KpiReport {
+
+	private static final double NANOSECONDS_PER_SECOND = 1e9;
+
+	// the indicators in the order they are written
+	private final Map<String, Object> values = new LinkedHashMap<>();
+
+	/**
+	 * Creates the report of a run
+	 *
+	 * @param options        the options the run was started with
+	 * @param statistics     the statistics collected by the scheduler
+	 * @param wallNanos      the real time the run took
+	 * @param gcCount        the number of garbage collections during the run
+	 * @param gcMillis       the time spent in garbage collection during the run
+	 */
+	public KpiReport(LaunchOptions options, SchedulerStatistics statistics, long wallNanos, long gcCount,
+			long gcMillis) {
+		double speed = options.getClockSpeed();
+		double wallSeconds = wallNanos / NANOSECONDS_PER_SECOND;
+		double simulatedSeconds = wallSeconds * speed;
+		long messages = statistics.getTotalMessages();
+
+		values.put("elevators", options.getNumElevators());
+		values.put("dispatch", options.getDispatchMode().toString().toLowerCase());
+		values.put("floors", options.getNumFloors());
+		values.put("trace", options.getTracePath().isEmpty() ? "default" : options.getTracePath());
+		values.put("clockSpeed", speed);
+		values.put("wallSeconds", wallSeconds);
+		values.put("simulatedSeconds", simulatedSeconds);
+
+		values.put("passengersCompleted", statistics.getCompletedRequests());
+		values.put("passengersPerHour",
+				simulatedSeconds > 0 ? statistics.getCompletedRequests() * 3600 / simulatedSeconds : 0);
+
+		putTimes("wait", statistics.getWaitTimes(), speed);
+		putTimes("ride", statistics.getRideTimes(), speed);
+
+		values.put("roundTrips", statistics.getRoundTrips());
+		values.put("stopsPerRoundTrip", statistics.getAverageStopsPerRoundTrip());
+		values.put("parkingMoves", statistics.getParkingMoves());
+		values.put("silencedElevators", statistics.getSilencedElevators());
+
+		values.put("schedulerMessages", messages);
+		values.put("schedulerCpuMicrosPerMessage", messages > 0 ? statistics.getCpuNanos() / 1000.0 / messages : 0);
+		values.put("schedulerAllocatedBytesPerMessage",
+				messages > 0 ? (double) statistics.getAllocatedBytes() / messages : 0);
+		values.put("messagesPerSecond", wallSeconds > 0 ? messages / wallSeconds : 0);
+		values.put("floorRequestsPerSecond",
+				wallSeconds > 0 ? statistics.getMessageCount(Helper.FLOOR_REQUEST_MESSAGE) / wallSeconds : 0);
+		values.put("elevatorStatesPerSecond",
+				wallSeconds > 0 ? statistics.getMessageCount(Helper.ELEVATOR_STATE_MESSAGE) / wallSeconds : 0);
+		values.put("peakControlLaneDepth", statistics.getPeakLaneDepth(Lane.CONTROL));
+		values.put("peakHallCallLaneDepth", statistics.getPeakLaneDepth(Lane.HALL_CALLS));
+		values.put("peakStateLaneDepth", statistics.getPeakLaneDepth(Lane.STATES));
+
+		values.put("schedulerAllocatedBytes", statistics.getAllocatedBytes());
+		values.put("gcCount", gcCount);
+		values.put("gcMillis", gcMillis);
+	}
+
+	/**
+	 * Adds how many floor requests joined a hall call that was already open
+	 *
+	 * @param hallCalls the hall calls of the scheduler, one register per shard
+	 */
+	public void addHallCallStatistics(List<HallCallRegister> hallCalls) {
+		long coalesced = 0;
+		for (HallCallRegister register : hallCalls)
+			coalesced += register.getCoalesced();
+		values.put("hallCallsCoalesced", coalesced);
+	}
+
+	/**
+	 * Adds the number of shards and how many floor requests the router of a
+	 * sharded scheduler sent to a shard other than the one owning their floor. A
+	 * run without shards adds one shard, so its CSV line has the same columns.
+	 *
+	 * @param router the router, null if the scheduler is not sharded
+	 */
+	public void addShardStatistics(ShardRouter router) {
+		values.put("shards", router == null ? 1 : router.getShards().size());
+		values.put("rebalancedHallCalls", router == null ? 0 : router.getRebalancedRequests());
+	}
+
+	/**
+	 * Adds how far the floor requests were sent from their trace times, over
+	 * every floor client
+	 *
+	 * @param floorSubsystems the floor clients of the run
+	 */
+	public void addReplayStatistics(List<FloorSubsystem> floorSubsystems) {
+		long sends = 0, totalDrift = 0, maxDrift = 0, finalDrift = 0;
+		for (FloorSubsystem fs : floorSubsystems) {
+			ReplayClock clock = fs.getReplayClock();
+			if (clock == null)
+				continue;
+			sends += clock.getSends();
+			totalDrift += clock.getAverageDriftNanos() * clock.getSends();
+			maxDrift = Math.max(maxDrift, clock.getMaxDriftNanos());
+			finalDrift = Math.max(finalDrift, clock.getFinalDriftNanos());
+		}
+		values.put("replayDriftAvgMillis", sends == 0 ? 0 : totalDrift / 1e6 / sends);
+		values.put("replayDriftMaxMillis", maxDrift / 1e6);
+		values.put("replayDriftFinalMillis", finalDrift / 1e6);
+	}
+
+	/**
+	 * Adds the acknowledgement counts of the open loop floor clients, which are
+	 * zero for closed loop clients, so every CSV line has the same columns
+	 *
+	 * @param floorSubsystems the floor clients of the run
+	 */
+	public void addOpenLoopStatistics(List<FloorSubsystem> floorSubsystems) {
+		long sent = 0, acked = 0, retransmits = 0, lost = 0;
+		for (FloorSubsystem fs : floorSubsystems) {
+			sent += fs.getRequestsSent();
+			acked += fs.getRequestsAcked();
+			retransmits += fs.getRetransmits();
+			lost += fs.getRequestsLost();
+		}
+		values.put("floorRequestsSent", sent);
+		values.put("floorRequestsAcked", acked);
+		values.put("floorRetransmits", retransmits);
+		values.put("floorRequestsLost", lost);
+	}
+
+	/**
+	 * Adds the average, 95th percentile and maximum of a list of real times
+	 */
+	private void putTimes(String name, List<Long> times, double speed) {
+		double scale = speed / NANOSECONDS_PER_SECOND;
+		values.put(name + "AvgSeconds", SchedulerStatistics.average(times) * scale);
+		values.put(name + "P95Seconds", SchedulerStatistics.percentile(times, 95) * scale);
+		values.put(name + "MaxSeconds", SchedulerStatistics.percentile(times, 100) * scale);
+	}
+
+	/**
+	 * Gets the report as a JSON object
+	 *
+	 * @return the JSON
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder("{\n");
+		int i = 0;
+		for (Map.Entry<String, Object> entry : values.entrySet()) {
+			sb.append("  \"").append(entry.getKey()).append("\": ").append(jsonValue(entry.getValue()));
+			sb.append(++i < values.size() ? ",\n" : "\n");
+		}
+		return sb.append("}\n").toString();
+	}
+
+	/**
+	 * Gets the header line of the CSV format
+	 *
+	 * @return the header line
+	 */
+	public String toCsvHeader() {
+		return String.join(",", values.keySet()) + "\n";
+	}
+
+	/**
+	 * Gets the report as one CSV line
+	 *
+	 * @return the line
+	 */
+	public String toCsvLine() {
+		StringBuilder sb = new StringBuilder();
+		for (Object value : values.values()) {
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(value instanceof String ? "\"" + ((String) value).replace("\"", "\"\"") + "\"" : value);
+		}
+		return sb.append("\n").toString();
+	}
+
+	private static String jsonValue(Object value) {
+		if (value instanceof String)
+			return "\"" + ((String) value).replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+		return String.valueOf(value);
+	}
+
+	public Map<String, Object> getValues() {
+		return values;
+	}
+}
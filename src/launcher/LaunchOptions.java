@@ -0,0 +1,468 @@
+package launcher;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import common_classes.ElevatorProfile;
+import common_classes.Helper;
+import common_classes.ServiceZone;
+import floor_subsystem.ReplayClock;
+import floor_subsystem.TrafficGenerator;
+import floor_subsystem.TrafficGenerator.TrafficModel;
+import scheduler.DispatchMode;
+import scheduler.Scheduler;
+
+/**
+ * The command line options of the headless launcher
+ *
+ */
+public class LaunchOptions {
+
+	/**
+	 * The subsystems started by one launcher process
+	 */
+	public enum Mode {
+		ALL, SCHEDULER, STANDBY, ELEVATOR, FLOOR, ZONE;
+	}
+
+	/**
+	 * How the simulation clock relates to real time
+	 */
+	public enum ClockMode {
+		REAL, FAST;
+	}
+
+	/**
+	 * The format of the benchmark harness report
+	 */
+	public enum ReportFormat {
+		JSON, CSV;
+	}
+
+	public static final String USAGE = "Usage: Launcher [options]\n"
+			+ "  --mode all|scheduler|standby|elevator|floor|zone  subsystems to start in this process, standby follows\n"
+			+ "                                        a --replicate scheduler and takes over if it dies, zone sends the\n"
+			+ "                                        --zones to a running scheduler and exits (default all)\n"
+			+ "  --elevators N                         number of elevators (default 4)\n"
+			+ "  --first-elevator ID                   ID of the first elevator started (default 0)\n"
+			+ "  --floors N                            number of floors (default 22)\n"
+			+ "  --zones ID=FLOORS;...                 floors served by each elevator, such as \"0=1-30;1=1,31-60\"\n"
+			+ "                                        (default every elevator serves all floors)\n"
+			+ "  --profiles ID=PROFILE;...             speed, door times and capacity of each elevator, standard, freight,\n"
+			+ "                                        shuttle or values such as \"2=freight;3=floor=3000,capacity=8\"\n"
+			+ "                                        (default every elevator is standard)\n"
+			+ "  --floor-clients N                     number of floor clients that register with the scheduler, each sending\n"
+			+ "                                        the requests of part of the floor range (default 0: one floor subsystem\n"
+			+ "                                        on the floor port)\n"
+			+ "  --first-floor-client ID               ID of the first floor client started (default 1)\n"
+			+ "  --floor-range LOW-HIGH                floors the floor clients of this process handle (default all floors)\n"
+			+ "  --dispatch collective|destination     how the scheduler picks cars for passengers (default collective)\n"
+			+ "  --parallel-dispatch N                 score the candidate elevators for a request on every core when there are\n"
+			+ "                                        more than N elevators (default 64)\n"
+			+ "  --parking                             park idle elevators at the floors that will be busy next, learned from\n"
+			+ "                                        the completed requests\n"
+			+ "  --demand-profile PATH                 demand profile to start parking from, saved again at the end of the\n"
+			+ "                                        run, implies --parking\n"
+			+ "  --journal PATH                        write the scheduler state to a journal, and recover from it if the last\n"
+			+ "                                        run crashed\n"
+			+ "  --replicate                           stream the scheduler state to a standby scheduler\n"
+			+ "  --shards N                            split the scheduler into N shards on their own threads, each owning a\n"
+			+ "                                        bank of elevators and a range of floors, not with --journal,\n"
+			+ "                                        --replicate, --record or --demand-profile (default 1)\n"
+			+ "  --trace PATH                          request file to replay (default Resources/requestDocument.txt)\n"
+			+ "  --from HH:MM:SS                       time of the trace the replay starts at, hours can pass 24 (default start)\n"
+			+ "  --to HH:MM:SS                         time of the trace the replay stops after (default end)\n"
+			+ "  --traffic up-peak|down-peak|lunch|interfloor  generate requests from a traffic model instead of a trace\n"
+			+ "  --rate N                              passengers per hour of the generated traffic (default 600)\n"
+			+ "  --start HH:MM:SS                      time of day the generated traffic starts (default 08:00:00)\n"
+			+ "  --duration HH:MM:SS                   how long the generated traffic lasts (default 01:00:00)\n"
+			+ "  --seed N                              seed of the generated traffic (default 1)\n"
+			+ "  --write-trace PATH                    write the generated traffic to a trace file and exit\n"
+			+ "  --open-loop                           send requests on schedule without waiting for responses\n"
+			+ "  --ack-window N                        most unacknowledged requests in the open loop (default 64)\n"
+			+ "  --ack-timeout MS                      time before an open loop request is retransmitted (default 500)\n"
+			+ "  --record PATH                         record the floor requests the scheduler receives to a binary trace\n"
+			+ "  --clock real|fast                     run in real time or faster than real time (default real)\n"
+			+ "  --speed FACTOR                        clock speed used by the fast clock, 0.1 to 1000 (default 10)\n"
+			+ "  --transport udp                       transport between the subsystems (default udp)\n"
+			+ "  --report json|csv                     format of the benchmark harness report (default json)\n"
+			+ "  --output PATH                         file the benchmark harness report is written to (default stdout)\n"
+			+ "  --help                                print this message";
+
+	private Mode mode = Mode.ALL;
+	private int numElevators = 4;
+	private int firstElevatorId = 0;
+	private int numFloors = 22;
+	private Map<Integer, ServiceZone> zones = new HashMap<>();
+	private Map<Integer, ElevatorProfile> profiles = new HashMap<>();
+	private int numFloorClients = 0;
+	private int firstFloorClientId = 1;
+	private int lowestFloor = 1;
+	private int highestFloor = -1; // the top floor unless set
+	private DispatchMode dispatchMode = DispatchMode.COLLECTIVE;
+	private int parallelDispatchThreshold = Scheduler.DEFAULT_PARALLEL_DISPATCH_THRESHOLD;
+	private boolean parking = false;
+	private String demandProfilePath = "";
+	private String journalPath = "";
+	private boolean replicate = false;
+	private int shards = 1;
+	private String tracePath = "";
+	private long replayFrom = 0;
+	private long replayTo = Long.MAX_VALUE;
+	private String recordPath = "";
+	private TrafficModel trafficModel;
+	private double trafficRate = 600;
+	private long trafficStart = Helper.timeStringToMilliseconds("08:00:00");
+	private long trafficDuration = Helper.timeStringToMilliseconds("01:00:00");
+	private long trafficSeed = 1;
+	private String writeTracePath = "";
+	private boolean openLoop = false;
+	private int ackWindow = 64;
+	private int ackTimeout = 500;
+	private ClockMode clockMode = ClockMode.REAL;
+	private double speed = 10;
+	private String transport = "udp";
+	private ReportFormat reportFormat = ReportFormat.JSON;
+	private String outputPath = "";
+	private boolean help = false;
+
+	/**
+	 * Parses the command line arguments
+	 *
+	 * @param args the command line arguments
+	 * @return the options
+	 * @throws IllegalArgumentException if an option is unknown or has a bad value
+	 */
+	public static LaunchOptions parse(String[] args) {
+		LaunchOptions options = new LaunchOptions();
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			switch (arg) {
+			case "--help":
+				options.help = true;
+				break;
+			case "--mode":
+				options.mode = Mode.valueOf(value(args, ++i, arg).toUpperCase());
+				break;
+			case "--elevators":
+				options.numElevators = positive(value(args, ++i, arg), arg);
+				break;
+			case "--first-elevator":
+				options.firstElevatorId = Integer.parseInt(value(args, ++i, arg));
+				break;
+			case "--floors":
+				options.numFloors = positive(value(args, ++i, arg), arg);
+				break;
+			case "--zones":
+				for (String zone : value(args, ++i, arg).split(";")) {
+					String[] parts = zone.split("=");
+					if (parts.length != 2)
+						throw new IllegalArgumentException(arg + " must be ID=FLOORS;...");
+					options.zones.put(Integer.parseInt(parts[0].trim()), ServiceZone.parse(parts[1]));
+				}
+				break;
+			case "--profiles":
+				for (String profile : value(args, ++i, arg).split(";")) {
+					String[] parts = profile.split("=", 2);
+					if (parts.length != 2)
+						throw new IllegalArgumentException(arg + " must be ID=PROFILE;...");
+					options.profiles.put(Integer.parseInt(parts[0].trim()), ElevatorProfile.parse(parts[1]));
+				}
+				break;
+			case "--floor-clients":
+				options.numFloorClients = positive(value(args, ++i, arg), arg);
+				break;
+			case "--first-floor-client":
+				options.firstFloorClientId = positive(value(args, ++i, arg), arg);
+				break;
+			case "--floor-range":
+				String[] range = value(args, ++i, arg).split("-");
+				if (range.length != 2)
+					throw new IllegalArgumentException(arg + " must be LOW-HIGH");
+				options.lowestFloor = Integer.parseInt(range[0]);
+				options.highestFloor = Integer.parseInt(range[1]);
+				if (options.lowestFloor > options.highestFloor)
+					throw new IllegalArgumentException(arg + " must be LOW-HIGH");
+				break;
+			case "--dispatch":
+				options.dispatchMode = DispatchMode.valueOf(value(args, ++i, arg).toUpperCase());
+				break;
+			case "--parallel-dispatch":
+				options.parallelDispatchThreshold = Integer.parseInt(value(args, ++i, arg));
+				if (options.parallelDispatchThreshold < 0)
+					throw new IllegalArgumentException(arg + " must not be negative");
+				break;
+			case "--parking":
+				options.parking = true;
+				break;
+			case "--demand-profile":
+				options.demandProfilePath = value(args, ++i, arg);
+				options.parking = true;
+				break;
+			case "--journal":
+				options.journalPath = value(args, ++i, arg);
+				break;
+			case "--replicate":
+				options.replicate = true;
+				break;
+			case "--shards":
+				options.shards = positive(value(args, ++i, arg), arg);
+				break;
+			case "--trace":
+				options.tracePath = value(args, ++i, arg);
+				break;
+			case "--from":
+				options.replayFrom = Helper.timeStringToMilliseconds(value(args, ++i, arg));
+				break;
+			case "--to":
+				options.replayTo = Helper.timeStringToMilliseconds(value(args, ++i, arg));
+				break;
+			case "--traffic":
+				options.trafficModel = TrafficModel.valueOf(value(args, ++i, arg).toUpperCase().replace('-', '_'));
+				break;
+			case "--rate":
+				options.trafficRate = Double.parseDouble(value(args, ++i, arg));
+				if (options.trafficRate <= 0)
+					throw new IllegalArgumentException(arg + " must be positive");
+				break;
+			case "--start":
+				options.trafficStart = Helper.timeStringToMilliseconds(value(args, ++i, arg));
+				break;
+			case "--duration":
+				options.trafficDuration = Helper.timeStringToMilliseconds(value(args, ++i, arg));
+				break;
+			case "--seed":
+				options.trafficSeed = Long.parseLong(value(args, ++i, arg));
+				break;
+			case "--write-trace":
+				options.writeTracePath = value(args, ++i, arg);
+				break;
+			case "--open-loop":
+				options.openLoop = true;
+				break;
+			case "--ack-window":
+				options.ackWindow = positive(value(args, ++i, arg), arg);
+				break;
+			case "--ack-timeout":
+				options.ackTimeout = positive(value(args, ++i, arg), arg);
+				break;
+			case "--record":
+				options.recordPath = value(args, ++i, arg);
+				break;
+			case "--clock":
+				options.clockMode = ClockMode.valueOf(value(args, ++i, arg).toUpperCase());
+				break;
+			case "--speed":
+				options.speed = Double.parseDouble(value(args, ++i, arg));
+				if (options.speed < ReplayClock.MIN_SPEED || options.speed > ReplayClock.MAX_SPEED)
+					throw new IllegalArgumentException(
+							arg + " must be between " + ReplayClock.MIN_SPEED + " and " + ReplayClock.MAX_SPEED);
+				break;
+			case "--transport":
+				options.transport = value(args, ++i, arg).toLowerCase();
+				if (!options.transport.equals("udp"))
+					throw new IllegalArgumentException("Unsupported transport: " + options.transport);
+				break;
+			case "--report":
+				options.reportFormat = ReportFormat.valueOf(value(args, ++i, arg).toUpperCase());
+				break;
+			case "--output":
+				options.outputPath = value(args, ++i, arg);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+		if (options.mode == Mode.ZONE && options.zones.isEmpty())
+			throw new IllegalArgumentException("--mode zone requires --zones");
+		if (!options.writeTracePath.isEmpty() && options.trafficModel == null)
+			throw new IllegalArgumentException("--write-trace requires --traffic");
+		// the journal, replication, recording and demand profile each hold the state of a single scheduler
+		if (options.shards > 1 && (!options.journalPath.isEmpty() || options.replicate
+				|| !options.recordPath.isEmpty() || !options.demandProfilePath.isEmpty()))
+			throw new IllegalArgumentException(
+					"--shards cannot be used with --journal, --replicate, --record or --demand-profile");
+		return options;
+	}
+
+	/**
+	 * Gets the value following an option
+	 */
+	private static String value(String[] args, int i, String option) {
+		if (i >= args.length)
+			throw new IllegalArgumentException(option + " requires a value");
+		return args[i];
+	}
+
+	/**
+	 * Parses a value that must be a positive integer
+	 */
+	private static int positive(String value, String option) {
+		int n = Integer.parseInt(value);
+		if (n <= 0)
+			throw new IllegalArgumentException(option + " must be positive");
+		return n;
+	}
+
+	/* Getters */
+	public Mode getMode() {
+		return mode;
+	}
+
+	public int getNumElevators() {
+		return numElevators;
+	}
+
+	public int getFirstElevatorId() {
+		return firstElevatorId;
+	}
+
+	public int getNumFloors() {
+		return numFloors;
+	}
+
+	public Map<Integer, ServiceZone> getZones() {
+		return zones;
+	}
+
+	/**
+	 * Gets the floors an elevator serves
+	 *
+	 * @param id the elevator
+	 * @return the zone, all floors if none was given
+	 */
+	public ServiceZone getZone(int id) {
+		return zones.getOrDefault(id, ServiceZone.ALL_FLOORS);
+	}
+
+	/**
+	 * Gets the speed, door times and capacity of an elevator
+	 *
+	 * @param id the elevator
+	 * @return the profile, the standard car if none was given
+	 */
+	public ElevatorProfile getProfile(int id) {
+		return profiles.getOrDefault(id, ElevatorProfile.STANDARD);
+	}
+
+	public int getNumFloorClients() {
+		return numFloorClients;
+	}
+
+	public int getFirstFloorClientId() {
+		return firstFloorClientId;
+	}
+
+	public int getLowestFloor() {
+		return lowestFloor;
+	}
+
+	public int getHighestFloor() {
+		return highestFloor == -1 ? numFloors : highestFloor;
+	}
+
+	public DispatchMode getDispatchMode() {
+		return dispatchMode;
+	}
+
+	public int getParallelDispatchThreshold() {
+		return parallelDispatchThreshold;
+	}
+
+	public boolean isParking() {
+		return parking;
+	}
+
+	public String getDemandProfilePath() {
+		return demandProfilePath;
+	}
+
+	public int getShards() {
+		return shards;
+	}
+
+	public String getJournalPath() {
+		return journalPath;
+	}
+
+	public boolean isReplicating() {
+		return replicate;
+	}
+
+	public String getTracePath() {
+		return tracePath;
+	}
+
+	public long getReplayFrom() {
+		return replayFrom;
+	}
+
+	public long getReplayTo() {
+		return replayTo;
+	}
+
+	public String getRecordPath() {
+		return recordPath;
+	}
+
+	public TrafficModel getTrafficModel() {
+		return trafficModel;
+	}
+
+	public String getWriteTracePath() {
+		return writeTracePath;
+	}
+
+	/**
+	 * Creates a generator for the traffic options
+	 *
+	 * @return the generator, null if no traffic model was given
+	 */
+	public TrafficGenerator createTrafficGenerator() {
+		if (trafficModel == null)
+			return null;
+		return new TrafficGenerator(trafficModel, numFloors, trafficRate, trafficStart, trafficDuration, trafficSeed);
+	}
+
+	public boolean isOpenLoop() {
+		return openLoop;
+	}
+
+	public int getAckWindow() {
+		return ackWindow;
+	}
+
+	public int getAckTimeout() {
+		return ackTimeout;
+	}
+
+	public ClockMode getClockMode() {
+		return clockMode;
+	}
+
+	/**
+	 * Gets the clock speed, which is always 1 with the real clock
+	 *
+	 * @return the clock speed
+	 */
+	public double getClockSpeed() {
+		return clockMode == ClockMode.FAST ? speed : 1;
+	}
+
+	public String getTransport() {
+		return transport;
+	}
+
+	public ReportFormat getReportFormat() {
+		return reportFormat;
+	}
+
+	public String getOutputPath() {
+		return outputPath;
+	}
+
+	public boolean isHelp() {
+		return help;
+	}
+}
@@ -0,0 +1,370 @@
+package launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import common_classes.Config;
+import common_classes.Helper;
+import common_classes.ServiceZone;
+import common_classes.Subsystem;
+import elevator_subsystem.ElevatorSubsystem;
+import floor_subsystem.FloorSubsystem;
+import messages.ZoneMessage;
+import scheduler.DemandProfile;
+import scheduler.Scheduler;
+import scheduler.SchedulerJournal;
+import scheduler.SchedulerReplicator;
+import scheduler.SchedulerStandby;
+import scheduler.ShardedScheduler;
+import scheduler.TraceRecorder;
+import views.NullElevatorDisplay;
+import views.NullSchedulerDisplay;
+
+/**
+ * Starts the system without any views, for hosts that have no display. The
+ * whole system can be started in one process, or each subsystem can be started
+ * in its own process with --mode.
+ *
+ * @see LaunchOptions#USAGE
+ */
+public class Launcher {
+
+	private final LaunchOptions options;
+
+	// the scheduler started by this process, if any
+	private Scheduler scheduler;
+
+	// set when a subsystem of this process could not run
+	private volatile boolean failed = false;
+
+	/**
+	 * Creates a launcher for the given options
+	 *
+	 * @param options the parsed command line options
+	 */
+	public Launcher(LaunchOptions options) {
+		this.options = options;
+	}
+
+	/**
+	 * Starts the subsystems selected by the mode and waits for them to terminate
+	 *
+	 * @return true if every subsystem ran, false if one could not
+	 */
+	public boolean launch() {
+		Config.setClockSpeed(options.getClockSpeed());
+
+		List<Thread> threads = new ArrayList<>();
+		switch (options.getMode()) {
+		case ALL:
+			threads.add(startScheduler());
+			threads.addAll(startElevators());
+			threads.addAll(startFloor());
+			break;
+		case SCHEDULER:
+			threads.add(startScheduler());
+			break;
+		case STANDBY:
+			threads.add(startStandby());
+			break;
+		case ELEVATOR:
+			threads.addAll(startElevators());
+			break;
+		case FLOOR:
+			threads.addAll(startFloor());
+			break;
+		case ZONE:
+			sendZones();
+			break;
+		}
+
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		if (scheduler != null)
+			saveDemandProfile(options, scheduler.getDemandProfile());
+		return !failed;
+	}
+
+	/**
+	 * Starts a scheduler with no view
+	 */
+	private Thread startScheduler() {
+		if (options.getShards() > 1)
+			return startShardedScheduler();
+		scheduler = new Scheduler(new NullSchedulerDisplay());
+		scheduler.setDispatchMode(options.getDispatchMode());
+		scheduler.setParallelDispatchThreshold(options.getParallelDispatchThreshold());
+		scheduler.setDemandProfile(createDemandProfile(options));
+		openJournal(options, scheduler);
+		if (!options.getRecordPath().isEmpty()) {
+			try {
+				scheduler.setTraceRecorder(new TraceRecorder(options.getRecordPath()));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		Thread thread = new Thread(scheduler::run, "SCHEDULER");
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Starts a scheduler split into shards, with no view
+	 */
+	private Thread startShardedScheduler() {
+		Thread thread = new Thread(createShardedScheduler(options), "SCHEDULER");
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Creates a scheduler split into the shards of the options
+	 *
+	 * @param options the launch options
+	 * @return the sharded scheduler, which has not started
+	 */
+	static ShardedScheduler createShardedScheduler(LaunchOptions options) {
+		List<Scheduler> shards = new ArrayList<>();
+		for (int i = 0; i < options.getShards(); i++) {
+			Scheduler shard = new Scheduler(new NullSchedulerDisplay());
+			shard.setDispatchMode(options.getDispatchMode());
+			shard.setParallelDispatchThreshold(options.getParallelDispatchThreshold());
+			shard.setDemandProfile(createDemandProfile(options));
+			shards.add(shard);
+		}
+		return new ShardedScheduler(shards, options.getNumFloors());
+	}
+
+	/**
+	 * Starts a standby scheduler with no view, which follows the scheduler and
+	 * runs in its place if it dies
+	 */
+	private Thread startStandby() {
+		scheduler = new Scheduler(new NullSchedulerDisplay());
+		scheduler.setDispatchMode(options.getDispatchMode());
+		scheduler.setParallelDispatchThreshold(options.getParallelDispatchThreshold());
+		scheduler.setDemandProfile(createDemandProfile(options));
+		SchedulerStandby standby = new SchedulerStandby(scheduler);
+		Thread thread = new Thread(() -> {
+			if (!standby.follow(Helper.REPLICATION_PORT)) {
+				standby.closeSockets();
+				return;
+			}
+			if (!standby.claimSchedulerPort()) {
+				standby.closeSockets();
+				failed = true;
+				return;
+			}
+			// a new standby can follow this scheduler once it has taken over
+			if (options.isReplicating())
+				startReplicator(standby.getJournal());
+			standby.takeOver();
+		}, "SCHEDULER STANDBY");
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Starts the elevator subsystems with no views
+	 */
+	private List<Thread> startElevators() {
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < options.getNumElevators(); i++) {
+			int id = options.getFirstElevatorId() + i;
+			ElevatorSubsystem elevatorSubsystem = new ElevatorSubsystem(id, options.getNumFloors(),
+					new NullElevatorDisplay(), options.getZone(id), options.getProfile(id));
+			Thread thread = new Thread(elevatorSubsystem);
+			thread.start();
+			threads.add(thread);
+		}
+		return threads;
+	}
+
+	/**
+	 * Sends the zones to a running scheduler, which changes the floors the
+	 * elevators serve without restarting them
+	 */
+	private void sendZones() {
+		try (DatagramSocket socket = new DatagramSocket()) {
+			int sequence = new Random().nextInt();
+			for (Map.Entry<Integer, ServiceZone> zone : options.getZones().entrySet()) {
+				byte[] bytes = Subsystem.frame(new ZoneMessage(zone.getKey(), zone.getValue()), sequence++);
+				socket.send(new DatagramPacket(bytes, bytes.length, InetAddress.getLocalHost(), Helper.SCHEDULER_PORT));
+				System.out.println("LAUNCHER: Elevator-" + zone.getKey() + " now serves floors " + zone.getValue());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Starts the floor subsystem, or the floor clients, replaying the trace
+	 */
+	private List<Thread> startFloor() {
+		List<Thread> threads = new ArrayList<>();
+		for (FloorSubsystem fs : createFloorSubsystems(options)) {
+			Thread thread = new Thread(fs::run);
+			thread.start();
+			threads.add(thread);
+		}
+		return threads;
+	}
+
+	/**
+	 * Creates the floor subsystem, or one floor client for each part of the floor
+	 * range. Clients are registered before any of them starts, so the scheduler
+	 * does not terminate when the first one finishes.
+	 *
+	 * @param options the launch options
+	 * @return the floor subsystems
+	 */
+	static List<FloorSubsystem> createFloorSubsystems(LaunchOptions options) {
+		List<FloorSubsystem> floorSubsystems = new ArrayList<>();
+		int clients = options.getNumFloorClients();
+		if (clients == 0) {
+			floorSubsystems.add(new FloorSubsystem(options.getTracePath()));
+		} else {
+			int low = options.getLowestFloor();
+			int floors = options.getHighestFloor() - low + 1;
+			for (int i = 0; i < clients; i++) {
+				// split the floors as evenly as possible
+				int first = low + floors * i / clients;
+				int last = low + floors * (i + 1) / clients - 1;
+				floorSubsystems.add(new FloorSubsystem(options.getTracePath(), options.getFirstFloorClientId() + i, first,
+						last));
+			}
+		}
+
+		for (FloorSubsystem fs : floorSubsystems) {
+			fs.setReplayWindow(options.getReplayFrom(), options.getReplayTo());
+			fs.setRequestSource(options.createTrafficGenerator());
+			if (options.isOpenLoop())
+				fs.setOpenLoop(options.getAckWindow(), options.getAckTimeout());
+			fs.register();
+		}
+		return floorSubsystems;
+	}
+
+	/**
+	 * Creates the demand profile idle elevators are parked by, starting from the
+	 * saved profile if there is one
+	 *
+	 * @param options the launch options
+	 * @return the profile, null if parking is off
+	 */
+	static DemandProfile createDemandProfile(LaunchOptions options) {
+		if (!options.isParking())
+			return null;
+		DemandProfile profile = new DemandProfile();
+		String path = options.getDemandProfilePath();
+		if (!path.isEmpty() && new File(path).exists()) {
+			try {
+				profile.load(path);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * Opens the journal the scheduler writes its state to, recovering the state
+	 * of a run that crashed
+	 *
+	 * @param options   the launch options
+	 * @param scheduler the scheduler, which has not started
+	 */
+	static void openJournal(LaunchOptions options, Scheduler scheduler) {
+		SchedulerJournal journal = null;
+		if (!options.getJournalPath().isEmpty()) {
+			try {
+				journal = SchedulerJournal.open(options.getJournalPath(), scheduler);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		// the records streamed to a standby are the journal's, whether or not they are written to a file
+		if (options.isReplicating()) {
+			if (journal == null)
+				journal = SchedulerJournal.withoutFile(scheduler);
+			startReplicator(journal);
+		}
+		if (journal != null)
+			scheduler.setJournal(journal);
+	}
+
+	/**
+	 * Streams the records of a journal to the standby that connects to the
+	 * replication port
+	 *
+	 * @param journal the journal
+	 */
+	static void startReplicator(SchedulerJournal journal) {
+		try {
+			journal.setReplicator(new SchedulerReplicator(Helper.REPLICATION_PORT));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Saves what the demand profile learned during the run, so the next run
+	 * starts from it
+	 *
+	 * @param options the launch options
+	 * @param profile the profile, null if parking is off
+	 */
+	static void saveDemandProfile(LaunchOptions options, DemandProfile profile) {
+		if (profile == null || options.getDemandProfilePath().isEmpty())
+			return;
+		try {
+			profile.save(options.getDemandProfilePath());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		LaunchOptions options;
+		try {
+			options = LaunchOptions.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println(LaunchOptions.USAGE);
+			System.exit(1);
+			return;
+		}
+
+		if (options.isHelp()) {
+			System.out.println(LaunchOptions.USAGE);
+			return;
+		}
+
+		if (!options.getWriteTracePath().isEmpty()) {
+			try {
+				options.createTrafficGenerator().writeTrace(options.getWriteTracePath());
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.exit(1);
+			}
+			return;
+		}
+
+		if (!new Launcher(options).launch())
+			System.exit(1);
+	}
+}
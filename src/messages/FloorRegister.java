@@ -0,0 +1,107 @@
+package messages;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import common_classes.Helper;
+
+public class FloorRegister extends Message {
+	private int id;
+	private int portNumber;
+	private int lowestFloor;
+	private int highestFloor;
+
+	/**
+	 * The floor register message holds the port a floor client receives its
+	 * responses on and the floors it handles
+	 * 
+	 * @param id           the id of the floor client
+	 * @param port         the port that the floor client is hosted on
+	 * @param lowestFloor  the lowest floor the client handles
+	 * @param highestFloor the highest floor the client handles
+	 */
+	public FloorRegister(int id, int port, int lowestFloor, int highestFloor) {
+		super(Helper.FLOOR_REGISTER_MESSAGE);
+		this.id = id;
+		this.portNumber = port;
+		this.lowestFloor = lowestFloor;
+		this.highestFloor = highestFloor;
+	}
+
+	/**
+	 * Converts the FloorRegister Message to a byte array.
+	 *
+	 * @return the converted byte array.
+	 */
+	@Override
+	public byte[] getData() {
+		ByteBuffer bb = ByteBuffer.allocate(17);
+		bb.put(Helper.FLOOR_REGISTER_MESSAGE);
+		bb.putInt(id);
+		bb.putInt(portNumber);
+		bb.putInt(lowestFloor);
+		bb.putInt(highestFloor);
+		return bb.array();
+	}
+
+	/**
+	 * This converts a datagram to a FloorRegister Message
+	 *
+	 * @param datagram the datagram to be converted.
+	 * @return the converted message.
+	 */
+	public static Message datagramToMessage(byte[] data) {
+		ByteBuffer bb = ByteBuffer.wrap(data);
+
+		bb.get();
+		int id = bb.getInt();
+		int port = bb.getInt();
+		int lowestFloor = bb.getInt();
+		int highestFloor = bb.getInt();
+
+		return new FloorRegister(id, port, lowestFloor, highestFloor);
+	}
+
+	/* Getters */
+	public int getID() {
+		return id;
+	}
+
+	public int getPort() {
+		return portNumber;
+	}
+
+	public int getLowestFloor() {
+		return lowestFloor;
+	}
+
+	public int getHighestFloor() {
+		return highestFloor;
+	}
+
+	/**
+	 * Checks to see if the objects are equal
+	 *
+	 * @return true if the objects are equal, false otherwise
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof FloorRegister))
+			return false;
+
+		FloorRegister r = (FloorRegister) obj;
+		return r.id == id && r.portNumber == portNumber && r.lowestFloor == lowestFloor
+				&& r.highestFloor == highestFloor;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id, portNumber, lowestFloor, highestFloor);
+	}
+
+	@Override
+	public String toString() {
+		return "FLOOR REGISTER: " + id + " " + portNumber + " floors " + lowestFloor + "-" + highestFloor;
+	}
+
+}
@@ -3,6 +3,7 @@ package messages;
 import java.nio.ByteBuffer;
 
 import common_classes.Helper;
+import common_classes.WireFormat;
 
 public class FloorRequest extends Message implements Comparable {
 
@@ -10,6 +11,12 @@ public class FloorRequest extends Message implements Comparable {
 	private int sourceFloor;
 	private int destinationFloor;
 
+	// identifies the request in acknowledgements, 0 if it has none
+	private int requestId;
+
+	// the floor client that sent the request, 0 for the floor subsystem on the floor port
+	private int clientId;
+
 	public FloorRequest() {
 		super(Helper.FLOOR_REQUEST_MESSAGE);
 	}
@@ -61,17 +68,34 @@ public class FloorRequest extends Message implements Comparable {
 	}
 
 	/**
-	 * Converts the FloorRequest to a byte array.
+	 * Converts the FloorRequest to a byte array. The request ID and then the
+	 * client ID are only appended when they are needed. A request whose floors do
+	 * not fit a byte is sent in the versioned format, with the timestamp, floors
+	 * and IDs as varints.
 	 *
 	 * @return the converted byte array.
 	 */
 	@Override
 	public byte[] getData() {
-		ByteBuffer qq = ByteBuffer.allocate(7);
+		if (!WireFormat.fitsByte(sourceFloor) || !WireFormat.fitsByte(destinationFloor)) {
+			ByteBuffer bb = ByteBuffer.allocate(2 + getVersionedLength());
+			WireFormat.putHeader(bb, Helper.FLOOR_REQUEST_MESSAGE);
+			WireFormat.putInt(bb, timestamp);
+			putFloors(bb);
+			WireFormat.putInt(bb, requestId);
+			WireFormat.putInt(bb, clientId);
+			return bb.array();
+		}
+
+		ByteBuffer qq = ByteBuffer.allocate(clientId != 0 ? 15 : requestId != 0 ? 11 : 7);
 		qq.put(Helper.FLOOR_REQUEST_MESSAGE);
 		qq.putInt(timestamp);
 		qq.put((byte) sourceFloor);
 		qq.put((byte) destinationFloor);
+		if (requestId != 0 || clientId != 0)
+			qq.putInt(requestId);
+		if (clientId != 0)
+			qq.putInt(clientId);
 
 		return qq.array();
 	}
@@ -83,13 +107,60 @@ public class FloorRequest extends Message implements Comparable {
 	 * @return the converted message.
 	 */
 	public static Message datagramToMessage(byte[] data) {
+		if (WireFormat.isVersioned(data[0])) {
+			ByteBuffer bb = ByteBuffer.wrap(data);
+			WireFormat.getHeader(bb);
+			FloorRequest fr = new FloorRequest(WireFormat.getInt(bb), WireFormat.getInt(bb), WireFormat.getInt(bb));
+			fr.setRequestId(WireFormat.getInt(bb));
+			fr.setClientId(WireFormat.getInt(bb));
+			return fr;
+		}
+
 		ByteBuffer qq = ByteBuffer.wrap(data);
 		qq.get();
 		int time = qq.getInt();
 		int source = qq.get();
 		int dest = qq.get();
 
-		return new FloorRequest(time, source, dest);
+		FloorRequest fr = new FloorRequest(time, source, dest);
+		if (qq.remaining() >= 4)
+			fr.setRequestId(qq.getInt());
+		if (qq.remaining() >= 4)
+			fr.setClientId(qq.getInt());
+		return fr;
+	}
+
+	/**
+	 * Writes the source and destination floor as varints, the way the versioned
+	 * messages carry a request
+	 *
+	 * @param bb the buffer to write to
+	 */
+	public void putFloors(ByteBuffer bb) {
+		WireFormat.putInt(bb, sourceFloor);
+		WireFormat.putInt(bb, destinationFloor);
+	}
+
+	/**
+	 * Reads a request written by putFloors
+	 *
+	 * @param bb the buffer to read from
+	 * @return the request, with no timestamp
+	 */
+	public static FloorRequest getFloors(ByteBuffer bb) {
+		return new FloorRequest(0, WireFormat.getInt(bb), WireFormat.getInt(bb));
+	}
+
+	/**
+	 * Gets how many bytes the floors are written in by putFloors
+	 */
+	public int getFloorsLength() {
+		return WireFormat.getLength(sourceFloor) + WireFormat.getLength(destinationFloor);
+	}
+
+	private int getVersionedLength() {
+		return WireFormat.getLength(timestamp) + getFloorsLength() + WireFormat.getLength(requestId)
+				+ WireFormat.getLength(clientId);
 	}
 
 	/* Getters & Setters */
@@ -101,6 +172,22 @@ public class FloorRequest extends Message implements Comparable {
 		this.destinationFloor = destinationFloor;
 	}
 
+	public void setRequestId(int requestId) {
+		this.requestId = requestId;
+	}
+
+	public int getRequestId() {
+		return requestId;
+	}
+
+	public void setClientId(int clientId) {
+		this.clientId = clientId;
+	}
+
+	public int getClientId() {
+		return clientId;
+	}
+
 	public int getTimestamp() {
 		return timestamp;
 	}
@@ -118,6 +205,15 @@ public class FloorRequest extends Message implements Comparable {
 		return destinationFloor > sourceFloor;
 	}
 
+	/**
+	 * Checks to see if the request only moves an idle elevator to a floor
+	 *
+	 * @return true if the request has no passenger, false otherwise
+	 */
+	public boolean isParking() {
+		return destinationFloor == sourceFloor;
+	}
+
 	@Override
 	public int compareTo(Object arg0) {
 		if (!(arg0 instanceof FloorRequest)) {
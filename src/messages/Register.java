@@ -2,11 +2,15 @@ package messages;
 
 import java.nio.ByteBuffer;
 
+import common_classes.ElevatorProfile;
 import common_classes.Helper;
+import common_classes.ServiceZone;
 
 public class Register extends Message {
 	private int portNumber;
 	private int id;
+	private ServiceZone zone;
+	private ElevatorProfile profile;
 
 	/**
 	 * The register message holds a port and an integer
@@ -14,9 +18,32 @@ public class Register extends Message {
 	 * @param port the port that the elevator is hosted on
 	 */
 	public Register(int id, int port) {
+		this(id, port, ServiceZone.ALL_FLOORS);
+	}
+
+	/**
+	 * The register message of an elevator that serves only some floors
+	 * @param id the id of the elevator
+	 * @param port the port that the elevator is hosted on
+	 * @param zone the floors the elevator serves
+	 */
+	public Register(int id, int port, ServiceZone zone) {
+		this(id, port, zone, ElevatorProfile.STANDARD);
+	}
+
+	/**
+	 * The register message of an elevator with its own performance profile
+	 * @param id the id of the elevator
+	 * @param port the port that the elevator is hosted on
+	 * @param zone the floors the elevator serves
+	 * @param profile the speed, door times and capacity of the elevator
+	 */
+	public Register(int id, int port, ServiceZone zone, ElevatorProfile profile) {
 		super(Helper.REGISTER_MESSAGE);
 		this.id = id;
 		this.portNumber = port;
+		this.zone = zone;
+		this.profile = profile;
 	}
 
 	/**
@@ -28,16 +55,41 @@ public class Register extends Message {
 	}
 
 	/**
-	 * Converts the Register Message to a byte array.
+	 * Gets the floors the elevator serves
+	 * @return zone
+	 */
+	public ServiceZone getZone() {
+		return zone;
+	}
+
+	/**
+	 * Gets the performance profile of the elevator
+	 * @return profile
+	 */
+	public ElevatorProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Converts the Register Message to a byte array. The zone is only appended
+	 * when the elevator does not serve every floor or is not a standard car, and
+	 * the profile follows the zone when it is not a standard car.
 	 *
 	 * @return the converted byte array.
 	 */
 	@Override
 	public byte[] getData() {
-		ByteBuffer bb = ByteBuffer.allocate(9);
+		boolean standard = profile.equals(ElevatorProfile.STANDARD);
+		boolean writeZone = !zone.isAllFloors() || !standard;
+		ByteBuffer bb = ByteBuffer.allocate(9 + (writeZone ? zone.getLength() : 0)
+				+ (standard ? 0 : ElevatorProfile.LENGTH));
 		bb.put(Helper.REGISTER_MESSAGE);
 		bb.putInt(id);
 		bb.putInt(portNumber);
+		if (writeZone)
+			zone.put(bb);
+		if (!standard)
+			profile.put(bb);
 		return bb.array();
 	}
 
@@ -53,8 +105,10 @@ public class Register extends Message {
 		bb.get();
 		int id = bb.getInt();
 		int port = bb.getInt();
+		ServiceZone zone = bb.hasRemaining() ? ServiceZone.get(bb) : ServiceZone.ALL_FLOORS;
+		ElevatorProfile profile = bb.hasRemaining() ? ElevatorProfile.get(bb) : ElevatorProfile.STANDARD;
 
-		return new Register(id, port);
+		return new Register(id, port, zone, profile);
 	}
 
 	/**
@@ -76,12 +130,13 @@ public class Register extends Message {
 			return false;
 
 		Register r = (Register) obj;
-		return r.id == id && r.portNumber == portNumber;
+		return r.id == id && r.portNumber == portNumber && r.zone.equals(zone) && r.profile.equals(profile);
 	}
 
 	@Override
 	public String toString() {
-		return "REGISTER: " + id + " " + portNumber;
+		return "REGISTER: " + id + " " + portNumber + (zone.isAllFloors() ? "" : " floors " + zone)
+				+ (profile.equals(ElevatorProfile.STANDARD) ? "" : " profile " + profile);
 
 	}
 
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Set;
 
 import common_classes.Helper;
+import common_classes.WireFormat;
 
 public class RequestListMessage extends Message {
 	// List of requests handled by the elevator. The Key is the source floor. The
@@ -25,12 +26,26 @@ public class RequestListMessage extends Message {
 	}
 
 	/**
-	 * Converts the FloorRequest to a byte array.
+	 * Converts the FloorRequest to a byte array: the source and destination floor
+	 * of every request, a byte each, or in the versioned format the number of
+	 * requests and the floors as varints when a floor does not fit a byte.
 	 *
 	 * @return the converted byte array.
 	 */
 	@Override
 	public byte[] getData() {
+		if (!fitsOriginalLayout(requestList)) {
+			int length = 2 + WireFormat.getLength(requestList.size());
+			for (FloorRequest fr : requestList)
+				length += fr.getFloorsLength();
+			ByteBuffer bb = ByteBuffer.allocate(length);
+			WireFormat.putHeader(bb, Helper.REQUEST_LIST_MESSAGE);
+			WireFormat.putInt(bb, requestList.size());
+			for (FloorRequest fr : requestList)
+				fr.putFloors(bb);
+			return bb.array();
+		}
+
 		ByteBuffer zz = ByteBuffer.allocate(1 + requestList.size() * 2);
 		zz.put(Helper.REQUEST_LIST_MESSAGE);
 		for(FloorRequest fr : requestList) {
@@ -48,9 +63,16 @@ public class RequestListMessage extends Message {
 	 */
 	public static Message datagramToMessage(byte[] data) {
 		ByteBuffer zz = ByteBuffer.wrap(data);
-		zz.get();
-
 		List<FloorRequest> requests = new ArrayList<FloorRequest>();
+		if (WireFormat.isVersioned(data[0])) {
+			WireFormat.getHeader(zz);
+			int count = WireFormat.getInt(zz);
+			for (int i = 0; i < count; i++)
+				requests.add(FloorRequest.getFloors(zz));
+			return new RequestListMessage(requests);
+		}
+
+		zz.get();
 		while (zz.hasRemaining()) {
 			FloorRequest fr = new FloorRequest(0, zz.get(), zz.get());
 			requests.add(fr);
@@ -59,6 +81,21 @@ public class RequestListMessage extends Message {
 		return new RequestListMessage(requests);
 	}
 
+	/**
+	 * Checks if the floors of every request fit a byte, as the original layout
+	 * sends them
+	 *
+	 * @param requests the requests
+	 * @return true if the original layout can carry the requests
+	 */
+	public static boolean fitsOriginalLayout(List<FloorRequest> requests) {
+		for (FloorRequest fr : requests) {
+			if (!WireFormat.fitsByte(fr.getSourceFloor()) || !WireFormat.fitsByte(fr.getDestinationFloor()))
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Returns a string representation of the list
 	 */
@@ -1,25 +1,41 @@
 package messages;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 
 import common_classes.Helper;
 
 public class Response extends Message {
 
+	// the ID of the floor request being acknowledged, 0 if none
+	private int requestId;
+
 	public Response() {
 		super(Helper.EMPTY_REPLY_MESSAGE);
 	}
 
 	/**
-	 * Converts the Response Message to a byte array.
+	 * Constructs a response acknowledging a floor request
+	 *
+	 * @param requestId the ID of the request, 0 if it has none
+	 */
+	public Response(int requestId) {
+		super(Helper.EMPTY_REPLY_MESSAGE);
+		this.requestId = requestId;
+	}
+
+	/**
+	 * Converts the Response Message to a byte array. The request ID is only
+	 * appended when there is one.
 	 *
 	 * @return the converted byte array.
 	 */
 	@Override
 	public byte[] getData() {
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-		outputStream.write(Helper.EMPTY_REPLY_MESSAGE);
-		return outputStream.toByteArray();
+		ByteBuffer bb = ByteBuffer.allocate(requestId == 0 ? 1 : 5);
+		bb.put(Helper.EMPTY_REPLY_MESSAGE);
+		if (requestId != 0)
+			bb.putInt(requestId);
+		return bb.array();
 	}
 
 	/**
@@ -29,8 +45,14 @@ public class Response extends Message {
 	 * @return the converted message.
 	 */
 	public static Message datagramToMessage(byte[] data) {
+		if (data.length >= 5)
+			return new Response(ByteBuffer.wrap(data, 1, 4).getInt());
 		return new Response();
 	}
+
+	public int getRequestId() {
+		return requestId;
+	}
 	
 	/**
 	 * Checks to see if the objects are equal
@@ -0,0 +1,50 @@
+package messages;
+
+import common_classes.Helper;
+
+public class Resync extends Message {
+
+	/**
+	 * The resync message is the scheduler's reply to an elevator it does not
+	 * know, such as after the scheduler restarted, asking for the elevator's
+	 * whole state before any requests are sent to it
+	 */
+	public Resync() {
+		super(Helper.RESYNC_MESSAGE);
+	}
+
+	/**
+	 * Converts the Resync Message to a byte array.
+	 *
+	 * @return the converted byte array.
+	 */
+	@Override
+	public byte[] getData() {
+		return new byte[] { Helper.RESYNC_MESSAGE };
+	}
+
+	/**
+	 * This converts a datagram to a Resync Message
+	 *
+	 * @param datagram the datagram to be converted.
+	 * @return the converted message.
+	 */
+	public static Message datagramToMessage(byte[] data) {
+		return new Resync();
+	}
+
+	/**
+	 * Checks to see if the objects are equal
+	 *
+	 * @return true if the objects are equal, false otherwise
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Resync;
+	}
+
+	@Override
+	public int hashCode() {
+		return Helper.RESYNC_MESSAGE;
+	}
+}
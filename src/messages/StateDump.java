@@ -0,0 +1,207 @@
+package messages;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import common_classes.ElevatorProfile;
+import common_classes.Helper;
+import common_classes.ServiceZone;
+import common_classes.WireFormat;
+import elevator_subsystem.DoorState;
+import elevator_subsystem.MotorState;
+import elevator_subsystem.Status;
+
+public class StateDump extends Message {
+	// what the elevator registered with
+	private Register register;
+
+	// the position of the elevator
+	private ElevatorMessage state;
+
+	// the passengers in the elevator and the passengers it is on its way to
+	private List<FloorRequest> inService;
+	private List<FloorRequest> assigned;
+
+	/**
+	 * The state dump is an elevator's answer to a resync: everything the scheduler
+	 * needs to take the elevator back, including the requests it is serving
+	 *
+	 * @param register  the register message of the elevator
+	 * @param state     the state of the elevator
+	 * @param inService the requests of the passengers in the elevator
+	 * @param assigned  the requests of the passengers the elevator is picking up
+	 */
+	public StateDump(Register register, ElevatorMessage state, List<FloorRequest> inService,
+			List<FloorRequest> assigned) {
+		super(Helper.STATE_DUMP_MESSAGE);
+		this.register = register;
+		this.state = state;
+		this.inService = inService;
+		this.assigned = assigned;
+	}
+
+	/**
+	 * Converts the State Dump to a byte array: the state without its header, the
+	 * port, the number of requests in service and assigned (byte each), the source
+	 * and destination floor (byte each) of every request, and then the zone and
+	 * profile as they trail a Register Message. When a floor does not fit a byte,
+	 * or there are more requests than a byte counts, the versioned format has the
+	 * id, floor, port, counts and floors as varints instead.
+	 *
+	 * @return the converted byte array.
+	 */
+	@Override
+	public byte[] getData() {
+		byte[] stateData = state.getData();
+		byte[] registerData = register.getData();
+		int requests = inService.size() + assigned.size();
+		if (!fitsOriginalLayout()) {
+			int length = 5 + WireFormat.getLength(state.getId()) + WireFormat.getLength(state.getFloor())
+					+ WireFormat.getLength(register.getPort()) + WireFormat.getLength(inService.size())
+					+ WireFormat.getLength(assigned.size()) + registerData.length - 9;
+			for (FloorRequest fr : inService)
+				length += fr.getFloorsLength();
+			for (FloorRequest fr : assigned)
+				length += fr.getFloorsLength();
+			ByteBuffer bb = ByteBuffer.allocate(length);
+			WireFormat.putHeader(bb, Helper.STATE_DUMP_MESSAGE);
+			WireFormat.putInt(bb, state.getId());
+			WireFormat.putInt(bb, state.getFloor());
+			bb.put(stateData, stateData.length - 3, 3);
+			WireFormat.putInt(bb, register.getPort());
+			WireFormat.putInt(bb, inService.size());
+			WireFormat.putInt(bb, assigned.size());
+			for (FloorRequest fr : inService)
+				fr.putFloors(bb);
+			for (FloorRequest fr : assigned)
+				fr.putFloors(bb);
+			bb.put(registerData, 9, registerData.length - 9);
+			return bb.array();
+		}
+
+		ByteBuffer bb = ByteBuffer.allocate(stateData.length + 6 + requests * 2 + registerData.length - 9);
+		bb.put(Helper.STATE_DUMP_MESSAGE);
+		bb.put(stateData, 1, stateData.length - 1);
+		bb.putInt(register.getPort());
+		bb.put((byte) inService.size());
+		bb.put((byte) assigned.size());
+		for (FloorRequest fr : inService) {
+			bb.put((byte) fr.getSourceFloor());
+			bb.put((byte) fr.getDestinationFloor());
+		}
+		for (FloorRequest fr : assigned) {
+			bb.put((byte) fr.getSourceFloor());
+			bb.put((byte) fr.getDestinationFloor());
+		}
+		bb.put(registerData, 9, registerData.length - 9);
+		return bb.array();
+	}
+
+	/**
+	 * This converts a datagram to a State Dump
+	 *
+	 * @param datagram the datagram to be converted.
+	 * @return the converted message.
+	 */
+	public static Message datagramToMessage(byte[] data) {
+		if (WireFormat.isVersioned(data[0]))
+			return versionedToMessage(ByteBuffer.wrap(data));
+
+		ByteBuffer bb = ByteBuffer.wrap(data);
+
+		bb.get();
+		int id = bb.getInt();
+		int floor = bb.getInt();
+		ElevatorMessage state = new ElevatorMessage(id, floor, MotorState.get(bb.get()), DoorState.get(bb.get()),
+				Status.get(bb.get()));
+		int port = bb.getInt();
+		int inServiceCount = bb.get(), assignedCount = bb.get();
+		List<FloorRequest> inService = new ArrayList<>();
+		for (int i = 0; i < inServiceCount; i++)
+			inService.add(new FloorRequest(0, bb.get(), bb.get()));
+		List<FloorRequest> assigned = new ArrayList<>();
+		for (int i = 0; i < assignedCount; i++)
+			assigned.add(new FloorRequest(0, bb.get(), bb.get()));
+		ServiceZone zone = bb.hasRemaining() ? ServiceZone.get(bb) : ServiceZone.ALL_FLOORS;
+		ElevatorProfile profile = bb.hasRemaining() ? ElevatorProfile.get(bb) : ElevatorProfile.STANDARD;
+
+		return new StateDump(new Register(id, port, zone, profile), state, inService, assigned);
+	}
+
+	/**
+	 * Converts a State Dump in the versioned format
+	 */
+	private static Message versionedToMessage(ByteBuffer bb) {
+		WireFormat.getHeader(bb);
+		int id = WireFormat.getInt(bb);
+		int floor = WireFormat.getInt(bb);
+		ElevatorMessage state = new ElevatorMessage(id, floor, MotorState.get(bb.get()), DoorState.get(bb.get()),
+				Status.get(bb.get()));
+		int port = WireFormat.getInt(bb);
+		int inServiceCount = WireFormat.getInt(bb), assignedCount = WireFormat.getInt(bb);
+		List<FloorRequest> inService = new ArrayList<>();
+		for (int i = 0; i < inServiceCount; i++)
+			inService.add(FloorRequest.getFloors(bb));
+		List<FloorRequest> assigned = new ArrayList<>();
+		for (int i = 0; i < assignedCount; i++)
+			assigned.add(FloorRequest.getFloors(bb));
+		ServiceZone zone = bb.hasRemaining() ? ServiceZone.get(bb) : ServiceZone.ALL_FLOORS;
+		ElevatorProfile profile = bb.hasRemaining() ? ElevatorProfile.get(bb) : ElevatorProfile.STANDARD;
+		return new StateDump(new Register(id, port, zone, profile), state, inService, assigned);
+	}
+
+	private boolean fitsOriginalLayout() {
+		return inService.size() <= Byte.MAX_VALUE && assigned.size() <= Byte.MAX_VALUE
+				&& RequestListMessage.fitsOriginalLayout(inService) && RequestListMessage.fitsOriginalLayout(assigned);
+	}
+
+	/* Getters */
+	public int getId() {
+		return state.getId();
+	}
+
+	public Register getRegister() {
+		return register;
+	}
+
+	public ElevatorMessage getState() {
+		return state;
+	}
+
+	public List<FloorRequest> getInService() {
+		return inService;
+	}
+
+	public List<FloorRequest> getAssigned() {
+		return assigned;
+	}
+
+	/**
+	 * Checks to see if the objects are equal
+	 *
+	 * @return true if the objects are equal, false otherwise
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof StateDump))
+			return false;
+
+		StateDump d = (StateDump) obj;
+		return d.register.equals(register) && d.state.equals(state) && d.inService.equals(inService)
+				&& d.assigned.equals(assigned);
+	}
+
+	// the messages it holds have no hash codes of their own, so only what equals compares by value is hashed
+	@Override
+	public int hashCode() {
+		return Objects.hash(state.getId(), inService.size(), assigned.size());
+	}
+
+	@Override
+	public String toString() {
+		return "STATE DUMP: " + state + " | port:" + register.getPort() + " | in service " + inService
+				+ " | assigned " + assigned;
+	}
+}
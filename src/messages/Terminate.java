@@ -1,11 +1,14 @@
 package messages;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 
 import common_classes.Helper;
 
 public class Terminate extends Message {
 
+	// the floor client that is finished, 0 if none
+	private int clientId;
+
 	/**
 	 * Default constructor
 	 */
@@ -13,17 +16,30 @@ public class Terminate extends Message {
 		super(Helper.TERMINATE);
 	}
 
+	/**
+	 * Constructs a terminate sent by a floor client that is finished
+	 *
+	 * @param clientId the id of the floor client
+	 */
+	public Terminate(int clientId) {
+		super(Helper.TERMINATE);
+		this.clientId = clientId;
+	}
+
 
 	/**
-	 * Converts the Response Message to a byte array.
+	 * Converts the Response Message to a byte array. The client ID is only
+	 * appended when there is one.
 	 *
 	 * @return the converted byte array.
 	 */
 	@Override
 	public byte[] getData() {
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-		outputStream.write(Helper.TERMINATE);
-		return outputStream.toByteArray();
+		ByteBuffer bb = ByteBuffer.allocate(clientId == 0 ? 1 : 5);
+		bb.put(Helper.TERMINATE);
+		if (clientId != 0)
+			bb.putInt(clientId);
+		return bb.array();
 	}
 
 	/**
@@ -33,8 +49,14 @@ public class Terminate extends Message {
 	 * @return the converted message.
 	 */
 	public static Message datagramToMessage(byte[] data) {
+		if (data.length >= 5)
+			return new Terminate(ByteBuffer.wrap(data, 1, 4).getInt());
 		return new Terminate();
 	}
+
+	public int getClientId() {
+		return clientId;
+	}
 	
 	/**
 	 * Checks to see if the objects are equal
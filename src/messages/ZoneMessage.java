@@ -0,0 +1,89 @@
+package messages;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import common_classes.Helper;
+import common_classes.ServiceZone;
+
+public class ZoneMessage extends Message {
+	private int id;
+	private ServiceZone zone;
+
+	/**
+	 * The zone message changes the floors an elevator serves while the system is
+	 * running
+	 * 
+	 * @param id   the id of the elevator
+	 * @param zone the floors the elevator serves from now on
+	 */
+	public ZoneMessage(int id, ServiceZone zone) {
+		super(Helper.ZONE_MESSAGE);
+		this.id = id;
+		this.zone = zone;
+	}
+
+	/**
+	 * Converts the Zone Message to a byte array.
+	 *
+	 * @return the converted byte array.
+	 */
+	@Override
+	public byte[] getData() {
+		ByteBuffer bb = ByteBuffer.allocate(5 + zone.getLength());
+		bb.put(Helper.ZONE_MESSAGE);
+		bb.putInt(id);
+		zone.put(bb);
+		return bb.array();
+	}
+
+	/**
+	 * This converts a datagram to a Zone Message
+	 *
+	 * @param datagram the datagram to be converted.
+	 * @return the converted message.
+	 */
+	public static Message datagramToMessage(byte[] data) {
+		ByteBuffer bb = ByteBuffer.wrap(data);
+
+		bb.get();
+		int id = bb.getInt();
+		ServiceZone zone = ServiceZone.get(bb);
+
+		return new ZoneMessage(id, zone);
+	}
+
+	/* Getters */
+	public int getID() {
+		return id;
+	}
+
+	public ServiceZone getZone() {
+		return zone;
+	}
+
+	/**
+	 * Checks to see if the objects are equal
+	 *
+	 * @return true if the objects are equal, false otherwise
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof ZoneMessage))
+			return false;
+
+		ZoneMessage z = (ZoneMessage) obj;
+		return z.id == id && z.zone.equals(zone);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id, zone);
+	}
+
+	@Override
+	public String toString() {
+		return "ZONE: " + id + " floors " + zone;
+	}
+
+}
@@ -0,0 +1,137 @@
+package scheduler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import messages.FloorRequest;
+
+/**
+ * Learns how many passengers call from each floor, in each direction, in each
+ * quarter hour of the day. The scheduler records every completed request and
+ * asks the profile which floors are about to get busy, so it can park idle
+ * cars there before the passengers arrive.
+ *
+ * A profile can be saved at the end of a run and loaded at the start of the
+ * next one, so what is learned on one day is used the next.
+ *
+ */
+public class DemandProfile {
+
+	public static final int BUCKET_MILLIS = 15 * 60 * 1000;
+	public static final int BUCKETS = 24 * 60 * 60 * 1000 / BUCKET_MILLIS;
+
+	// the fewest calls in a quarter hour that make a floor worth parking at
+	private static final int MIN_DEMAND = 2;
+
+	// the up and down calls of each quarter hour, by floor
+	private final Map<Integer, int[]> demandByFloor = new TreeMap<>();
+
+	/**
+	 * Records the call of a completed request
+	 *
+	 * @param fr the floor request, whose timestamp is the time of day it was made
+	 */
+	public void record(FloorRequest fr) {
+		record(fr.getSourceFloor(), fr.isGoingUp(), fr.getTimestamp(), 1);
+	}
+
+	private void record(int floor, boolean up, long time, int calls) {
+		int[] demand = demandByFloor.computeIfAbsent(floor, f -> new int[BUCKETS * 2]);
+		demand[bucketOf(time) * 2 + (up ? 1 : 0)] += calls;
+	}
+
+	/**
+	 * Gets the number of calls from a floor in the quarter hour of a time
+	 *
+	 * @param floor the floor
+	 * @param time  the time of day, in milliseconds
+	 * @return the up and down calls
+	 */
+	public int getDemand(int floor, long time) {
+		int[] demand = demandByFloor.get(floor);
+		if (demand == null)
+			return 0;
+		int bucket = bucketOf(time);
+		return demand[bucket * 2] + demand[bucket * 2 + 1];
+	}
+
+	/**
+	 * Gets the floors worth parking at in the quarter hour of a time
+	 *
+	 * @param time the time of day, in milliseconds
+	 * @return the floors, busiest first and the lowest first on a tie
+	 */
+	public List<Integer> getHotFloors(long time) {
+		List<Integer> floors = new ArrayList<>();
+		for (int floor : demandByFloor.keySet()) {
+			if (getDemand(floor, time) >= MIN_DEMAND)
+				floors.add(floor);
+		}
+		// the floors are in order already, and the sort is stable
+		floors.sort((f1, f2) -> Integer.compare(getDemand(f2, time), getDemand(f1, time)));
+		return floors;
+	}
+
+	/**
+	 * Writes the profile as lines of "HH:MM floor up down" for every quarter hour
+	 * that had calls
+	 *
+	 * @param path the path of the profile
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(String path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(path))) {
+			for (Map.Entry<Integer, int[]> entry : demandByFloor.entrySet()) {
+				int[] demand = entry.getValue();
+				for (int bucket = 0; bucket < BUCKETS; bucket++) {
+					int down = demand[bucket * 2], up = demand[bucket * 2 + 1];
+					if (up == 0 && down == 0)
+						continue;
+					int minutes = bucket * BUCKET_MILLIS / 60000;
+					writer.write(String.format("%02d:%02d %d %d %d%n", minutes / 60, minutes % 60, entry.getKey(), up,
+							down));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the calls of a saved profile to this one
+	 *
+	 * @param path the path of the profile
+	 * @throws IOException if the file cannot be read or is malformed
+	 */
+	public void load(String path) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(path))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank())
+					continue;
+				String[] fields = line.trim().split("\\s+");
+				try {
+					String[] time = fields[0].split(":");
+					long millis = (Integer.parseInt(time[0]) * 60 + Integer.parseInt(time[1])) * 60000L;
+					int floor = Integer.parseInt(fields[1]);
+					record(floor, true, millis, Integer.parseInt(fields[2]));
+					record(floor, false, millis, Integer.parseInt(fields[3]));
+				} catch (RuntimeException e) {
+					throw new IOException("Malformed demand profile line: " + line);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the quarter hour of a time, wrapping traces that pass midnight
+	 */
+	private static int bucketOf(long time) {
+		return (int) (Math.floorMod(time, (long) BUCKETS * BUCKET_MILLIS) / BUCKET_MILLIS);
+	}
+}
@@ -0,0 +1,13 @@
+package scheduler;
+
+/**
+ * How the scheduler picks a car for a passenger
+ *
+ */
+public enum DispatchMode {
+	// the closest candidate car that is going the passenger's way
+	COLLECTIVE,
+	// the candidate car whose stops the passenger adds the fewest new ones to, so
+	// passengers with the same or nearby destinations ride together
+	DESTINATION;
+}
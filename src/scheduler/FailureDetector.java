@@ -0,0 +1,185 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A phi accrual failure detector for the elevators. It learns how long each car
+ * goes between messages and, instead of a fixed timeout, gives the suspicion
+ * that a silent car is dead as phi: the minus log10 of the chance that a car
+ * this regular would have stayed silent this long. A phi of 8 means a live car
+ * is that quiet once in a hundred million messages.
+ *
+ * An idle car whose reply is withheld only reports again when its timeout runs
+ * out, so the silence after such a message is checked against the report
+ * interval rather than the car's history, and is left out of the history.
+ *
+ * Times are in milliseconds of a monotonic clock.
+ */
+public class FailureDetector {
+
+	// the suspicion a car is taken out of service at
+	public static final double DEFAULT_THRESHOLD = 8;
+
+	// the number of recent intervals a car is judged by
+	private static final int WINDOW = 100;
+
+	// the intervals a car needs before its history is trusted over the first estimate
+	private static final int MIN_SAMPLES = 3;
+
+	// keeps a car that reports like clockwork from being suspected over a little jitter
+	private static final double MIN_STD_DEVIATION = 100;
+
+	// the pause any car is allowed on top of its mean, for a stalled thread or a busy scheduler
+	private static final double ACCEPTABLE_PAUSE = 1000;
+
+	private final double threshold;
+	private final double firstEstimate;
+	private final long idleReportInterval;
+
+	private final Map<Integer, History> histories = new HashMap<>();
+
+	/**
+	 * Creates a failure detector
+	 *
+	 * @param threshold          the phi a car is suspected at
+	 * @param firstEstimate      the interval expected of a car before it has a
+	 *                           history, the longest a car should take to move
+	 * @param idleReportInterval the longest an idle car waits for a reply before
+	 *                           reporting again
+	 */
+	public FailureDetector(double threshold, double firstEstimate, long idleReportInterval) {
+		this.threshold = threshold;
+		this.firstEstimate = firstEstimate;
+		this.idleReportInterval = idleReportInterval;
+	}
+
+	/**
+	 * Records that a message arrived from a car, which starts watching it
+	 *
+	 * @param id  the car
+	 * @param now the time the message arrived
+	 */
+	public void heartbeat(int id, long now) {
+		History history = histories.computeIfAbsent(id, k -> new History());
+		if (history.lastArrival != -1 && !history.idle)
+			history.add(now - history.lastArrival);
+		history.lastArrival = now;
+		history.idle = false;
+	}
+
+	/**
+	 * Records that the car's last message was not answered, so it stays silent
+	 * until its report interval runs out
+	 *
+	 * @param id the car
+	 */
+	public void idle(int id) {
+		History history = histories.get(id);
+		if (history != null)
+			history.idle = true;
+	}
+
+	/**
+	 * Stops watching a car
+	 *
+	 * @param id the car
+	 */
+	public void remove(int id) {
+		histories.remove(id);
+	}
+
+	/**
+	 * Gets the suspicion that a car is dead
+	 *
+	 * @param id  the car
+	 * @param now the current time
+	 * @return phi, 0 for a car that is not watched
+	 */
+	public double phi(int id, long now) {
+		History history = histories.get(id);
+		if (history == null)
+			return 0;
+
+		double elapsed = now - history.lastArrival;
+		if (history.idle)
+			elapsed -= idleReportInterval;
+		double mean = history.count < MIN_SAMPLES ? firstEstimate : history.mean();
+		double deviation = history.count < MIN_SAMPLES ? firstEstimate / 4 : history.deviation();
+		return phi(elapsed, mean + ACCEPTABLE_PAUSE, Math.max(deviation, MIN_STD_DEVIATION));
+	}
+
+	/**
+	 * Gets the minus log10 of the chance a normally distributed interval is longer
+	 * than the elapsed time, with the logistic approximation of the normal
+	 * distribution, which does not underflow far out in the tail
+	 */
+	static double phi(double elapsed, double mean, double deviation) {
+		double y = (elapsed - mean) / deviation;
+		double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+		if (elapsed > mean)
+			return -Math.log10(e / (1 + e));
+		return -Math.log10(1 - 1 / (1 + e));
+	}
+
+	/**
+	 * Gets the cars that have been silent for too long
+	 *
+	 * @param now the current time
+	 * @return the ids of the suspected cars
+	 */
+	public List<Integer> getSuspects(long now) {
+		List<Integer> suspects = new ArrayList<>();
+		for (int id : histories.keySet()) {
+			if (phi(id, now) >= threshold)
+				suspects.add(id);
+		}
+		return suspects;
+	}
+
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * The recent intervals between a car's messages, kept in a ring with running
+	 * sums
+	 */
+	private static class History {
+		private final long[] intervals = new long[WINDOW];
+		private int count = 0;
+		private int next = 0;
+		private double sum = 0;
+		private double sumOfSquares = 0;
+
+		// the time the last message arrived, -1 before the first
+		private long lastArrival = -1;
+
+		// true if the last message was left unanswered
+		private boolean idle = false;
+
+		private void add(long interval) {
+			if (count == WINDOW) {
+				sum -= intervals[next];
+				sumOfSquares -= (double) intervals[next] * intervals[next];
+			} else {
+				count++;
+			}
+			intervals[next] = interval;
+			next = (next + 1) % WINDOW;
+			sum += interval;
+			sumOfSquares += (double) interval * interval;
+		}
+
+		private double mean() {
+			return sum / count;
+		}
+
+		private double deviation() {
+			double mean = mean();
+			return Math.sqrt(Math.max(0, sumOfSquares / count - mean * mean));
+		}
+	}
+}
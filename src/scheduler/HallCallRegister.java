@@ -0,0 +1,163 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import messages.FloorRequest;
+
+/**
+ * The up and down hall calls of every floor. Passengers who press the same
+ * button on the same floor while a call is open join that call instead of
+ * making a new one, so the scheduler makes one dispatch decision per call and
+ * the car assigned to the call picks up all of its riders.
+ *
+ * A call stays open until its car stops at the floor and picks its riders up.
+ *
+ */
+public class HallCallRegister {
+
+	/**
+	 * The passengers waiting behind one hall button
+	 */
+	public static class HallCall {
+		private final int floor;
+		private final boolean up;
+
+		// the elevator the call is assigned to, -1 if it is unassigned
+		private int elevator = -1;
+
+		// the riders of the call that have not been picked up, in arrival order
+		private final List<FloorRequest> riders = new ArrayList<>();
+
+		private HallCall(int floor, boolean up) {
+			this.floor = floor;
+			this.up = up;
+		}
+
+		public int getFloor() {
+			return floor;
+		}
+
+		public boolean isUp() {
+			return up;
+		}
+
+		public int getElevator() {
+			return elevator;
+		}
+
+		public boolean isAssigned() {
+			return elevator != -1;
+		}
+
+		public List<FloorRequest> getRiders() {
+			return riders;
+		}
+	}
+
+	// the open calls by floor and direction
+	private final Map<Integer, HallCall> calls = new HashMap<>();
+
+	// the call of every rider that has not been picked up
+	private final Map<FloorRequest, HallCall> callOfRider = new IdentityHashMap<>();
+
+	// the number of requests that joined an open call
+	private long coalesced = 0;
+
+	/**
+	 * Adds a rider to the call of their floor and direction, opening the call if
+	 * there is none
+	 *
+	 * @param fr the floor request of the rider
+	 * @return the call
+	 */
+	public HallCall add(FloorRequest fr) {
+		int key = key(fr.getSourceFloor(), fr.isGoingUp());
+		HallCall call = calls.get(key);
+		if (call == null) {
+			call = new HallCall(fr.getSourceFloor(), fr.isGoingUp());
+			calls.put(key, call);
+		} else {
+			coalesced++;
+		}
+		call.riders.add(fr);
+		callOfRider.put(fr, call);
+		return call;
+	}
+
+	/**
+	 * Gets the call of a rider
+	 *
+	 * @param fr the floor request of the rider
+	 * @return the call, null if the rider has none or was picked up
+	 */
+	public HallCall getCall(FloorRequest fr) {
+		return callOfRider.get(fr);
+	}
+
+	/**
+	 * Assigns the call of a rider to an elevator
+	 *
+	 * @param fr the floor request of the rider
+	 * @param id the elevator
+	 */
+	public void assign(FloorRequest fr, int id) {
+		HallCall call = callOfRider.get(fr);
+		if (call != null)
+			call.elevator = id;
+	}
+
+	/**
+	 * Removes a rider who was picked up from their call. The call is closed once
+	 * it has no riders left, and is otherwise unassigned so the riders left behind
+	 * get a new car.
+	 *
+	 * @param fr the floor request of the rider
+	 */
+	public void pickedUp(FloorRequest fr) {
+		HallCall call = callOfRider.remove(fr);
+		if (call == null)
+			return;
+		call.riders.remove(fr);
+		call.elevator = -1;
+		if (call.riders.isEmpty())
+			calls.remove(key(call.floor, call.up));
+	}
+
+	/**
+	 * Unassigns the calls of an elevator, such as one that broke down
+	 *
+	 * @param id the elevator
+	 */
+	public void unassign(int id) {
+		for (HallCall call : calls.values()) {
+			if (call.elevator == id)
+				call.elevator = -1;
+		}
+	}
+
+	/**
+	 * Gets the number of open calls
+	 *
+	 * @return the number of calls
+	 */
+	public int size() {
+		return calls.size();
+	}
+
+	/**
+	 * Gets the number of requests that joined a call that was already open
+	 *
+	 * @return the number of coalesced requests
+	 */
+	public long getCoalesced() {
+		return coalesced;
+	}
+
+	private static int key(int floor, boolean up) {
+		return floor * 2 + (up ? 1 : 0);
+	}
+}
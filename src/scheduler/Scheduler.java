@@ -1,23 +1,42 @@
 package scheduler;
 
+import java.net.DatagramSocket;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import common_classes.Config;
+import common_classes.ElevatorProfile;
 import common_classes.Helper;
+import common_classes.ServiceZone;
 import common_classes.Subsystem;
 import elevator_subsystem.MotorState;
 import elevator_subsystem.Status;
+import flight_recorder.DispatchDecisionEvent;
+import flight_recorder.SchedulerMessageEvent;
 import messages.ElevatorMessage;
+import messages.FloorRegister;
 import messages.FloorRequest;
 import messages.Message;
 import messages.Register;
 import messages.RequestListMessage;
 import messages.Response;
+import messages.Resync;
+import messages.StateDump;
 import messages.Terminate;
-import views.SchedulerView;
+import messages.ZoneMessage;
+import scheduler.HallCallRegister.HallCall;
+import scheduler.SchedulerMessageReceiver.Lane;
+import views.SchedulerDisplay;
 
 /**
  * The scheduler to act as the communication channel between the floor and
@@ -39,7 +58,8 @@ public class Scheduler extends Subsystem {
 	private boolean running = true;
 
 	// The message receiver
-	private SchedulerMessageReceiver schedulerMessageReceiver = new SchedulerMessageReceiver();
+	// bound to the scheduler port when the scheduler starts, so a standby can be created beside a running scheduler
+	private SchedulerMessageReceiver schedulerMessageReceiver;
 
 	// Maintains the elevator state
 	private Map<Integer, ElevatorMessage> elevators = new HashMap<>();
@@ -47,6 +67,12 @@ public class Scheduler extends Subsystem {
 	// Maintains the elevator ports
 	private Map<Integer, Integer> elevatorPorts = new HashMap<>();
 
+	// The floors each elevator serves
+	private Map<Integer, ServiceZone> elevatorZones = new HashMap<>();
+
+	// The ports of the floor clients that registered and have not terminated
+	private Map<Integer, Integer> floorClientPorts = new HashMap<>();
+
 	// Maintains the the floor requests of each elevator to pick passengers up
 	private Map<Integer, List<FloorRequest>> elevatorFloorRequestsAssigned = new HashMap<>();
 
@@ -56,8 +82,69 @@ public class Scheduler extends Subsystem {
 	// The floor requests that have not been sent to an elevator
 	private List<FloorRequest> waitlist = new ArrayList<>();
 
-	// The passenger limit for an elevator
-	private int maxCapacity = 5;
+	// The up and down calls of every floor, which group the riders waiting behind each button
+	private HallCallRegister hallCalls = new HallCallRegister();
+
+	// the IDs of the latest floor requests, so retransmitted requests are only acknowledged
+	private static final int RECENT_REQUEST_IDS = 4096;
+	private LinkedHashSet<Long> recentRequestIds = new LinkedHashSet<>();
+
+	// The speed, door times and passenger limit of each elevator
+	private Map<Integer, ElevatorProfile> elevatorProfiles = new HashMap<>();
+
+	// How cars are picked for passengers
+	private DispatchMode dispatchMode = DispatchMode.COLLECTIVE;
+
+	// In destination dispatch, how many floors of the car's travel one extra stop is worth
+	private static final int STOP_COST_IN_FLOORS = 3;
+
+	// the fleet size above which the candidates for a request are scored in parallel
+	public static final int DEFAULT_PARALLEL_DISPATCH_THRESHOLD = 64;
+	private int parallelDispatchThreshold = DEFAULT_PARALLEL_DISPATCH_THRESHOLD;
+
+	// The learned demand idle elevators are parked by, null if they stay where they stop
+	private DemandProfile demandProfile;
+
+	// How far ahead of the demand idle elevators are parked, in trace milliseconds
+	private static final int PARKING_LOOKAHEAD = 5 * 60 * 1000;
+
+	// The floor each idle elevator is being parked at
+	private Map<Integer, Integer> parkingFloors = new HashMap<>();
+
+	// The trace time of the latest floor request and the System.nanoTime it arrived at
+	private long latestTimestamp = -1;
+	private long latestTimestampNanos;
+
+	// The elevators whose requests may differ from the car's own, which are asked for their state
+	private Set<Integer> unsynced = new HashSet<>();
+
+	// Takes cars that go silent out of service, judged by how often each one reports
+	private FailureDetector failureDetector = new FailureDetector(FailureDetector.DEFAULT_THRESHOLD,
+			2 * Config.TIME_TO_APPROACH_FLOOR, Config.IDLE_REPORT_INTERVAL);
+
+	// The elevators taken out of service for going silent, which are terminated if they report again
+	private Set<Integer> silencedElevators = new HashSet<>();
+
+	// False for the shards of a sharded scheduler but the first, so a floor client gets one response
+	private boolean answersFloorClients = true;
+
+	// The number of waiting requests after the last batch, which the router of a sharded scheduler balances by
+	private volatile int backlog = 0;
+
+	// set once the event loop has ended, after which a router sends the scheduler nothing
+	private volatile boolean stopped = false;
+
+	// How often the failure detector is checked while no message arrives, in milliseconds
+	private static final int FAILURE_CHECK_INTERVAL = 100;
+
+	// The journal the state changes are written to, null if the state is only kept in memory
+	private SchedulerJournal journal;
+
+	// The floor requests whose responses wait for the journal to be written
+	private List<FloorRequest> unacknowledged = new ArrayList<>();
+
+	// The number of floors each elevator has stopped at for passengers since it was last idle
+	private Map<Integer, Integer> stopsThisRoundTrip = new HashMap<>();
 
 	// The starting time of the scheduler
 	private long startingTime;
@@ -79,9 +166,15 @@ public class Scheduler extends Subsystem {
 	
 	// Saves the durations of the requests 
 	private StringBuilder requestDurations = new StringBuilder();
+
+	// The wait, ride and message handling measurements of this run
+	private SchedulerStatistics statistics = new SchedulerStatistics();
 	
+	// Records the floor requests that arrive, null if they are not recorded
+	private TraceRecorder traceRecorder;
+
 	// The view of the scheduler
-	private SchedulerView schedulerView;
+	private SchedulerDisplay schedulerView;
 
 
 	
@@ -90,7 +183,7 @@ public class Scheduler extends Subsystem {
 	 *
 	 * @param sv the view to which the scheduler will display attributes
 	 */
-	public Scheduler(SchedulerView sv) {
+	public Scheduler(SchedulerDisplay sv) {
 		schedulerView = sv;
 		this.startTimer();
 	}
@@ -100,6 +193,23 @@ public class Scheduler extends Subsystem {
 	 * Starts the scheduler message receiver
 	 */
 	public void startMessageReceiver() {
+		if (schedulerMessageReceiver != null)
+			return;
+		startMessageReceiver(new SchedulerMessageReceiver());
+	}
+
+	/**
+	 * Starts the scheduler message receiver on a socket that is already bound to
+	 * the scheduler port
+	 *
+	 * @param socket the socket
+	 */
+	public void startMessageReceiver(DatagramSocket socket) {
+		startMessageReceiver(new SchedulerMessageReceiver(socket));
+	}
+
+	private void startMessageReceiver(SchedulerMessageReceiver receiver) {
+		schedulerMessageReceiver = receiver;
 		Thread thread = new Thread(schedulerMessageReceiver);
 		thread.start();
 	}
@@ -116,6 +226,11 @@ public class Scheduler extends Subsystem {
 		elevators.put(id, e);
 
 		if (e.hasStopped()) {
+			boolean passengersMoved = false;
+
+			if (parkingFloors.containsKey(id) && parkingFloors.get(id) == e.getFloor())
+				parkingFloors.remove(id);
+
 			// passengers get off
 			Iterator<FloorRequest> iter1 = elevatorFloorRequestsInService.get(id).iterator();
 			while (iter1.hasNext()) {
@@ -127,6 +242,12 @@ public class Scheduler extends Subsystem {
 					
 					averageTimeForRequest = (averageTimeForRequest*numRequestsFinished + duration)/(numRequestsFinished+1);
 					numRequestsFinished++;
+					statistics.passengerDroppedOff(fr);
+					if (journal != null)
+						journal.droppedOff(fr, id);
+					if (demandProfile != null)
+						demandProfile.record(fr);
+					passengersMoved = true;
 					
 					iter1.remove();
 				}
@@ -138,9 +259,22 @@ public class Scheduler extends Subsystem {
 				FloorRequest fr = iter2.next();
 				if (fr.getSourceFloor() == e.getFloor()) {	
 					elevatorFloorRequestsInService.get(id).add(fr);
+					statistics.passengerPickedUp(fr);
+					hallCalls.pickedUp(fr);
+					if (journal != null)
+						journal.pickedUp(fr, id);
+					passengersMoved = true;
 					iter2.remove();
 				}
 			}
+
+			// a round trip ends when the elevator has no passengers left
+			int stops = stopsThisRoundTrip.getOrDefault(id, 0) + (passengersMoved ? 1 : 0);
+			if (isElevatorWaiting(id) && stops > 0) {
+				statistics.roundTripCompleted(stops);
+				stops = 0;
+			}
+			stopsThisRoundTrip.put(id, stops);
 		}
 	}
 
@@ -158,6 +292,10 @@ public class Scheduler extends Subsystem {
 		return elevatorFloorRequestsAssigned.get(id).isEmpty() && elevatorFloorRequestsInService.get(id).isEmpty();
 	}
 
+	private boolean isElevatorParking(int id) {
+		return parkingFloors.containsKey(id);
+	}
+
 
 	private boolean isElevatorMovingUp(ElevatorMessage e) {
 		int id = e.getId();
@@ -199,7 +337,10 @@ public class Scheduler extends Subsystem {
 		int id = e.getId();
 		int sourceFloor = fr.getSourceFloor();
 
-		if ((elevatorFloorRequestsAssigned.get(id).size() + elevatorFloorRequestsInService.get(id).size()) > maxCapacity)
+		if (!isInZone(id, fr))
+			return false;
+
+		if ((elevatorFloorRequestsAssigned.get(id).size() + elevatorFloorRequestsInService.get(id).size()) > getProfile(id).getCapacity())
 			return false;
 
 		if (fr.isGoingUp()) {
@@ -207,8 +348,8 @@ public class Scheduler extends Subsystem {
 			if (isElevatorBelowFloor(e, sourceFloor) && isElevatorMovingUp(e))
 				return true;
 
-			// Elevator is stopped && has no requests to move down && 
-			if (e.hasStopped() && isElevatorWaiting(id))
+			// Elevator is stopped or parking && has no requests to move down && 
+			if ((e.hasStopped() || isElevatorParking(id)) && isElevatorWaiting(id))
 				return true;
 		} else {
 			// Elevator is above request source floor && has requests to move down
@@ -216,36 +357,152 @@ public class Scheduler extends Subsystem {
 				return true;
 
 			// Elevator is waiting to receive requests && has no requests to move up
-			if (e.hasStopped() && isElevatorWaiting(id))
+			if ((e.hasStopped() || isElevatorParking(id)) && isElevatorWaiting(id))
 				return true;
 		}
 		return false;
 	}
 
 	/**
-	 * Picks an elevator for the floor request. Currently picks the closest elevator
-	 * out of a list of candidate elevators.
+	 * Gets the floors an elevator has to stop at for the passengers it has been
+	 * given
+	 *
+	 * @param id the elevator
+	 * @return the source floors of its assigned passengers and the destination
+	 *         floors of all its passengers
+	 */
+	public Set<Integer> getStops(int id) {
+		Set<Integer> stops = new HashSet<>();
+		for (FloorRequest fr : elevatorFloorRequestsAssigned.get(id)) {
+			stops.add(fr.getSourceFloor());
+			stops.add(fr.getDestinationFloor());
+		}
+		for (FloorRequest fr : elevatorFloorRequestsInService.get(id))
+			stops.add(fr.getDestinationFloor());
+		return stops;
+	}
+
+	/**
+	 * Gets the profile of an elevator
+	 *
+	 * @param id the elevator
+	 * @return the profile, the standard car if the elevator has not registered
+	 */
+	public ElevatorProfile getProfile(int id) {
+		return elevatorProfiles.getOrDefault(id, ElevatorProfile.STANDARD);
+	}
+
+	/**
+	 * Gets the time an elevator takes to reach the floor of a passenger at its
+	 * speed, without counting the stops on the way
+	 *
+	 * @param fr the floor request
+	 * @param e  the elevator
+	 * @return the time in milliseconds
+	 */
+	private int getArrivalTime(FloorRequest fr, ElevatorMessage e) {
+		return getProfile(e.getId()).getTravelTime(Math.abs(e.getFloor() - fr.getSourceFloor()), e.hasStopped());
+	}
+
+	/**
+	 * Gets the cost of giving a passenger to an elevator in destination dispatch:
+	 * the time to reach the passenger plus a penalty for each stop the passenger
+	 * adds to the elevator's trip. A new stop delays the riders the elevator
+	 * already has as well as the new one, so riders going to the same floors
+	 * share a car and riders going to far apart floors take different cars.
+	 *
+	 * @param fr the floor request
+	 * @param e  the elevator
+	 * @return the cost in milliseconds
+	 */
+	private int getDestinationCost(FloorRequest fr, ElevatorMessage e) {
+		int id = e.getId();
+		Set<Integer> stops = getStops(id);
+		// a car stopped at the passenger's floor picks them up without a new stop
+		boolean atSource = e.hasStopped() && e.getFloor() == fr.getSourceFloor();
+		int newStops = (atSource || stops.contains(fr.getSourceFloor()) ? 0 : 1)
+				+ (stops.contains(fr.getDestinationFloor()) ? 0 : 1);
+		int riders = elevatorFloorRequestsAssigned.get(id).size() + elevatorFloorRequestsInService.get(id).size();
+		return getArrivalTime(fr, e) + newStops * (1 + riders) * STOP_COST_IN_FLOORS * getProfile(id).getFloorTime();
+	}
+
+	/**
+	 * Picks an elevator for the floor request. In collective dispatch this is the
+	 * candidate elevator that reaches the passenger first, and in destination
+	 * dispatch the candidate the passenger adds the fewest stops to. The lowest id
+	 * wins a tie, so the choice does not depend on the order the cars are scored
+	 * in.
+	 *
+	 * A fleet larger than the parallel dispatch threshold is scored on the common
+	 * fork-join pool. The scheduler thread waits in the stream for the result, so
+	 * the maps and request lists of the cars do not change while the workers read
+	 * them, and scoring only reads them.
 	 *
 	 * @param f the floor request
 	 * @return the elevator to be chosen, -1 if there was no elevator
 	 */
 	public int getBestElevator(FloorRequest floorRequest) {
-		ElevatorMessage closestElevator = elevators.values().stream()
+		DispatchDecisionEvent event = new DispatchDecisionEvent();
+		event.begin();
+
+		boolean parallel = elevators.size() > parallelDispatchThreshold;
+		Stream<ElevatorMessage> cars = parallel ? elevators.values().parallelStream() : elevators.values().stream();
+		ToIntFunction<ElevatorMessage> cost = dispatchMode == DispatchMode.DESTINATION
+				? e -> getDestinationCost(floorRequest, e)
+				: e -> getArrivalTime(floorRequest, e);
+		Stream<Candidate> scored = cars
 				// get every candidate elevator
 				.filter(e -> isElevatorCandidate(floorRequest, e))
-				// get elevator closest to source floor of floor request
-				.min((e1, e2) -> Math.abs(e1.getFloor() - floorRequest.getSourceFloor())
-						- Math.abs(e2.getFloor() - floorRequest.getSourceFloor()))
+				// score each once, the time to reach the passenger or the cost of the passenger
+				.map(e -> new Candidate(e.getId(), cost.applyAsInt(e)));
+
+		// the event lists the candidates, which are kept from the same pass
+		List<Candidate> candidates = event.isEnabled() ? scored.collect(Collectors.toList()) : null;
+		Candidate best = (candidates != null ? candidates.stream() : scored)
+				// get the cheapest, the lowest id on a tie
+				.min(Candidate.ORDER)
 				.orElse(null);
 
-		if (closestElevator == null) // no elevators available
-			return -1;
+		int chosenElevator = best == null ? -1 : best.id; // -1 if no elevators available
+
+		// a recording that started during the decision has no candidates to list
+		if (candidates != null && event.shouldCommit()) {
+			event.sourceFloor = floorRequest.getSourceFloor();
+			event.destinationFloor = floorRequest.getDestinationFloor();
+			event.candidateCount = candidates.size();
+			event.candidates = candidates.stream().map(c -> c.id).collect(Collectors.toList()).toString();
+			event.chosenElevator = chosenElevator;
+			event.parallel = parallel;
+			event.waitlistSize = waitlist.size();
+			event.commit();
+		}
+
+		return chosenElevator;
+	}
 
-		return closestElevator.getId();
+	/**
+	 * The cost of a candidate elevator for a floor request
+	 */
+	private static class Candidate {
+		// cheapest first, then lowest id
+		private static final Comparator<Candidate> ORDER = Comparator.<Candidate>comparingInt(c -> c.cost)
+				.thenComparingInt(c -> c.id);
+
+		private final int id;
+		private final int cost;
+
+		private Candidate(int id, int cost) {
+			this.id = id;
+			this.cost = cost;
+		}
 	}
 
 	/**
-	 * Gets the floor requests that can be serviced by an elevator
+	 * Gets the floor requests that can be serviced by an elevator. In collective
+	 * dispatch the riders of a hall call that is assigned to the elevator are
+	 * taken without a new dispatch decision, and riders of calls assigned to other
+	 * elevators are left for them. In destination dispatch every rider gets their
+	 * own decision, so riders of one call can ride different cars.
 	 *
 	 * @param em
 	 * @return the floor requests
@@ -258,11 +515,25 @@ public class Scheduler extends Subsystem {
 		MotorState futureDirection = MotorState.STOPPED; // ensures that elevator will only be sent requests in one direction
 		int passengerCount = elevatorFloorRequestsAssigned.get(id).size() + elevatorFloorRequestsInService.get(id).size();
 
-		while (iter.hasNext() && passengerCount < maxCapacity) {
+		int capacity = getProfile(id).getCapacity();
+		while (iter.hasNext() && passengerCount < capacity) {
 			FloorRequest fr = iter.next();
 			MotorState passengerDirection = fr.isGoingUp() ? MotorState.UP : MotorState.DOWN;
+			if (futureDirection != MotorState.STOPPED && futureDirection != passengerDirection)
+				continue;
 
-			if ((futureDirection  == MotorState.STOPPED || futureDirection  == passengerDirection) && getBestElevator(fr) == em.getId()) {
+			HallCall call = hallCalls.getCall(fr);
+			boolean forThisElevator;
+			if (dispatchMode == DispatchMode.COLLECTIVE && call != null && call.isAssigned()) {
+				// riders going to a floor outside the car's zone wait for another car
+				forThisElevator = call.getElevator() == id && isInZone(id, fr);
+			} else {
+				forThisElevator = getBestElevator(fr) == id;
+				if (forThisElevator)
+					hallCalls.assign(fr, id);
+			}
+
+			if (forThisElevator) {
 				futureDirection  = passengerDirection;
 				floorRequests.add(fr);
 				passengerCount++;
@@ -274,6 +545,43 @@ public class Scheduler extends Subsystem {
 		return floorRequests;
 	}
 
+	/**
+	 * Dispatches a floor request that arrived. In collective dispatch a rider who
+	 * joins an open hall call waits for the call's car, and any other rider is
+	 * sent to the best elevator at once if it is idle, or waits for it otherwise.
+	 *
+	 * @param fr the floor request
+	 */
+	public void dispatch(FloorRequest fr) {
+		HallCall call = hallCalls.add(fr);
+		// in destination dispatch every rider is scored by their own destination
+		boolean joinedCall = dispatchMode == DispatchMode.COLLECTIVE && call.getRiders().size() > 1;
+		int elevatorId = joinedCall ? -1 : getBestElevator(fr);
+		if (joinedCall) {
+			// the rider joins a call that already has a car or is waiting for one
+			waitlist.add(fr);
+			schedulerView.updateWaitlist(waitlist);
+			System.out.println("Joined the " + (call.isUp() ? "up" : "down") + " call on floor "
+					+ call.getFloor() + " with " + (call.getRiders().size() - 1) + " other riders");
+		} else if (elevatorId == -1) {
+			waitlist.add(fr);
+			schedulerView.updateWaitlist(waitlist);
+			System.out.println("No elevators available. Adding to waitlist");
+		} else {
+			if (isElevatorWaiting(elevatorId) && !isElevatorParking(elevatorId)) {
+				List<FloorRequest> requests = new ArrayList<>();
+				requests.add(fr);
+				sendRequestsToElevator(requests, elevatorId);
+				System.out.println("SCHEDULER: Sending " + (requests.isEmpty() ? "no requests" : requests)
+						+ " to Elevator-" + elevatorId);
+			} else {
+				waitlist.add(fr);
+				schedulerView.updateWaitlist(waitlist);
+				System.out.println("Elevator-" + elevatorId + " not receiving. Adding to waitlist");
+			}
+		}
+	}
+
 	/**
 	 * Sends the requests to an elevator
 	 *
@@ -281,11 +589,22 @@ public class Scheduler extends Subsystem {
 	 * @param id
 	 */
 	public void sendRequestsToElevator(List<FloorRequest> floorRequests, int id) {
+		// passengers cancel the parking of the elevator
+		if (!floorRequests.isEmpty())
+			parkingFloors.remove(id);
+
 		for (FloorRequest fr : floorRequests) {
 			if (elevators.get(id).getFloor() == fr.getSourceFloor()) {
 				elevatorFloorRequestsInService.get(id).add(fr);
+				statistics.passengerPickedUp(fr);
+				hallCalls.pickedUp(fr);
+				if (journal != null)
+					journal.pickedUp(fr, id);
 			} else {
 				elevatorFloorRequestsAssigned.get(id).add(fr);
+				hallCalls.assign(fr, id);
+				if (journal != null)
+					journal.assigned(fr, id);
 			}
 		}
 
@@ -305,7 +624,11 @@ public class Scheduler extends Subsystem {
 	 * @param message
 	 */
 	public void register(Register message) {
+		elevatorAdded = true;
+		silencedElevators.remove(message.getID());
 		elevatorPorts.put(message.getID(), message.getPort());
+		elevatorZones.put(message.getID(), message.getZone());
+		elevatorProfiles.put(message.getID(), message.getProfile());
 		elevatorFloorRequestsInService.put(message.getID(), new ArrayList<>());
 		elevatorFloorRequestsAssigned.put(message.getID(), new ArrayList<>());
 	}
@@ -325,7 +648,27 @@ public class Scheduler extends Subsystem {
 			if (elevatorFloorRequestsAssigned.get(id).size() > 0)
 				return false;
 		}
-		return waitlist.isEmpty();
+
+		// trips that no working elevator's zone covers cannot be served
+		for (FloorRequest fr : waitlist) {
+			if (elevators.isEmpty() || isServiceable(fr))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks to see if a working elevator serves both floors of a trip
+	 *
+	 * @param fr the floor request
+	 * @return true if an elevator's zone covers the trip, false otherwise
+	 */
+	private boolean isServiceable(FloorRequest fr) {
+		for (int id : elevators.keySet()) {
+			if (isInZone(id, fr))
+				return true;
+		}
+		return false;
 	}
 
 	/**
@@ -334,10 +677,18 @@ public class Scheduler extends Subsystem {
 	 * @param message elevator message of the broken elevator
 	 */
 	public void handleBrokenElevator(ElevatorMessage e) {
-		int id = e.getId();
+		handleBrokenElevator(e.getId());
+	}
+
+	private void handleBrokenElevator(int id) {
+		failureDetector.remove(id);
+		if (journal != null)
+			journal.broken(id);
 
 		// reallocate the requests for the broken elevator
 		waitlist.addAll(elevatorFloorRequestsAssigned.get(id));
+		hallCalls.unassign(id);
+		parkingFloors.remove(id);
 	
 		// update elevator state
 		elevators.remove(id);
@@ -348,9 +699,123 @@ public class Scheduler extends Subsystem {
 
 		schedulerView.updateWaitlist(waitlist);
 		
-		// sending requests from wait list to idling elevators
+		dispatchWaitlistToIdleElevators();
+	}
+
+	/**
+	 * Takes the elevators the failure detector suspects out of service, the same
+	 * as if they had reported they were broken. A car that was only slow is
+	 * terminated when it reports again.
+	 */
+	public void handleSilentElevators() {
+		long now = now();
+		for (int id : failureDetector.getSuspects(now)) {
+			System.out.printf("SCHEDULER: Elevator-%d silent for too long (phi %.1f), taking it out of service%n", id,
+					failureDetector.phi(id, now));
+			statistics.elevatorSilenced();
+			silencedElevators.add(id);
+			unsynced.remove(id);
+			handleBrokenElevator(id);
+			System.out.println("SCHEDULER: Current wait list: " + waitlist);
+			send(new Terminate(), elevatorPorts.remove(id));
+		}
+	}
+
+	/**
+	 * Gets the time the failure detector is run by, which does not jump with the
+	 * wall clock
+	 */
+	private static long now() {
+		return System.nanoTime() / 1000000;
+	}
+
+	/**
+	 * Gets the parking request of an idle elevator: the busiest floor of the next
+	 * few minutes that no other idle elevator is at or on its way to
+	 *
+	 * @param e   the elevator
+	 * @param now the trace time
+	 * @return the request to move to the floor, null if the elevator should stay
+	 */
+	public FloorRequest getParkingRequest(ElevatorMessage e, long now) {
+		int id = e.getId();
+		if (demandProfile == null || !e.hasStopped() || !isElevatorWaiting(id) || isElevatorParking(id))
+			return null;
+
+		Set<Integer> covered = new HashSet<>(parkingFloors.values());
+		for (ElevatorMessage other : elevators.values()) {
+			if (other.getId() != id && other.hasStopped() && isElevatorWaiting(other.getId()))
+				covered.add(other.getFloor());
+		}
+
+		ServiceZone zone = elevatorZones.getOrDefault(id, ServiceZone.ALL_FLOORS);
+		for (int floor : demandProfile.getHotFloors(now + PARKING_LOOKAHEAD)) {
+			if (!zone.serves(floor) || covered.contains(floor))
+				continue;
+			if (floor == e.getFloor())
+				return null; // already parked at the floor
+			return new FloorRequest((int) now, floor, floor);
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the trace time, which has moved on at the clock speed since the latest
+	 * request arrived
+	 *
+	 * @return the trace time, -1 if no request has arrived
+	 */
+	private long getTraceTime() {
+		if (latestTimestamp == -1)
+			return -1;
+		return latestTimestamp + (long) ((System.nanoTime() - latestTimestampNanos) / 1e6 * Config.CLOCK_SPEED);
+	}
+
+	/**
+	 * Sends an idle elevator to a floor. Parking moves are not passengers, so the
+	 * elevator stays a candidate for passengers on the way.
+	 *
+	 * @param parking the parking request
+	 * @param id      the elevator
+	 */
+	private void parkElevator(FloorRequest parking, int id) {
+		parkingFloors.put(id, parking.getSourceFloor());
+		statistics.parkingMoveStarted();
+		List<FloorRequest> requests = new ArrayList<>();
+		requests.add(parking);
+		send(new RequestListMessage(requests), elevatorPorts.get(id));
+	}
+
+	/**
+	 * Checks to see if an elevator serves both floors of a trip
+	 *
+	 * @param id the elevator
+	 * @param fr the floor request
+	 * @return true if the source and destination are in the elevator's zone, false otherwise
+	 */
+	private boolean isInZone(int id, FloorRequest fr) {
+		ServiceZone zone = elevatorZones.getOrDefault(id, ServiceZone.ALL_FLOORS);
+		return zone.serves(fr.getSourceFloor()) && zone.serves(fr.getDestinationFloor());
+	}
+
+	/**
+	 * Changes the floors an elevator serves. Passengers it already has keep their
+	 * car, and waiting passengers the change lets an idle car serve are sent to it.
+	 *
+	 * @param id   the elevator
+	 * @param zone the floors the elevator serves from now on
+	 */
+	public void setElevatorZone(int id, ServiceZone zone) {
+		elevatorZones.put(id, zone);
+		dispatchWaitlistToIdleElevators();
+	}
+
+	/**
+	 * Sends requests from the wait list to the idling elevators
+	 */
+	private void dispatchWaitlistToIdleElevators() {
 		for (ElevatorMessage em: elevators.values()) {
-			if (isElevatorWaiting(em.getId())){
+			if (isElevatorWaiting(em.getId()) && !isElevatorParking(em.getId())){
 				List<FloorRequest> floorRequests = getFloorRequests(em);
 				if (!floorRequests.isEmpty()) {
 					System.out.println("SCHEDULER: Sending "
@@ -363,6 +828,231 @@ public class Scheduler extends Subsystem {
 	}
 	
 	
+	/**
+	 * Gets the port a floor client receives its responses on
+	 *
+	 * @param clientId the id of the floor client, 0 for the floor subsystem
+	 * @return the port
+	 */
+	private int getFloorPort(int clientId) {
+		return floorClientPorts.getOrDefault(clientId, Helper.FLOOR_PORT);
+	}
+
+	/**
+	 * Updates the state of an elevator and replies with the requests it is given,
+	 * a parking request, or nothing if it has nothing to do
+	 *
+	 * @param em the elevator state
+	 */
+	private void handleElevatorState(ElevatorMessage em) {
+		int id = em.getId();
+		failureDetector.heartbeat(id, now());
+		updateElevatorState(em);
+		System.out.println("SCHEDULER: Current wait list: " + waitlist);
+
+		List<FloorRequest> floorRequests = getFloorRequests(em);
+		long now = getTraceTime();
+		FloorRequest parking = floorRequests.isEmpty() && now != -1 ? getParkingRequest(em, now) : null;
+
+		if (parking != null) {
+			System.out.println("SCHEDULER: Parking Elevator-" + id + " at floor " + parking.getSourceFloor());
+			parkElevator(parking, id);
+		} else if (!floorRequests.isEmpty() || !isElevatorWaiting(id) || isElevatorParking(id)) {
+			System.out.println("SCHEDULER: Sending " + (floorRequests.isEmpty() ? "no requests" : floorRequests)
+					+ " to Elevator-" + id + " | " + elevatorFloorRequestsAssigned.get(id) + " | "
+					+ elevatorFloorRequestsInService.get(id));
+			sendRequestsToElevator(floorRequests, id);
+		} else {
+			System.out.println("SCHEDULER: Withholding response.");
+			failureDetector.idle(id);
+		}
+		schedulerView.updateElevators(elevatorFloorRequestsInService, elevatorFloorRequestsAssigned);
+	}
+
+	/**
+	 * Takes an elevator back from its state dump, after the scheduler restarted
+	 * or took over from another. The elevator's own lists are what it will do, so
+	 * they replace the scheduler's: the requests the scheduler knows keep their
+	 * start times, requests the scheduler never heard of are added, passengers
+	 * the scheduler thought were waiting for the car go back on the waitlist, and
+	 * passengers it thought were in the car but are not have been dropped off.
+	 *
+	 * @param dump the state dump of the elevator
+	 */
+	public void resync(StateDump dump) {
+		int id = dump.getId();
+		unsynced.remove(id);
+		if (!elevatorPorts.containsKey(id)) {
+			register(dump.getRegister());
+			if (journal != null)
+				journal.registered(dump.getRegister());
+		} else {
+			elevatorPorts.put(id, dump.getRegister().getPort());
+		}
+
+		List<FloorRequest> assigned = elevatorFloorRequestsAssigned.get(id);
+		List<FloorRequest> inService = elevatorFloorRequestsInService.get(id);
+		List<FloorRequest> wasAssigned = new ArrayList<>(assigned);
+		List<FloorRequest> wasInService = new ArrayList<>(inService);
+		assigned.clear();
+		inService.clear();
+		parkingFloors.remove(id);
+		hallCalls.unassign(id);
+
+		for (FloorRequest fr : dump.getInService()) {
+			if (fr.isParking())
+				continue;
+			FloorRequest known = takeMatchingRequest(wasInService, fr);
+			if (known == null) {
+				known = takeMatchingRequest(wasAssigned, fr);
+				// the scheduler's state may be from before the request was sent to the car
+				if (known == null)
+					known = takeMatchingRequest(waitlist, fr);
+				if (known == null)
+					known = addResyncedRequest(fr);
+				statistics.passengerPickedUp(known);
+				hallCalls.pickedUp(known);
+				if (journal != null)
+					journal.pickedUp(known, id);
+			}
+			inService.add(known);
+		}
+		for (FloorRequest fr : dump.getAssigned()) {
+			if (fr.isParking()) {
+				parkingFloors.put(id, fr.getSourceFloor());
+				continue;
+			}
+			FloorRequest known = takeMatchingRequest(wasAssigned, fr);
+			if (known == null) {
+				known = takeMatchingRequest(waitlist, fr);
+				if (known == null)
+					known = addResyncedRequest(fr);
+				if (journal != null)
+					journal.assigned(known, id);
+			}
+			assigned.add(known);
+			hallCalls.assign(known, id);
+		}
+
+		// the car never got these, or they got off while the scheduler was down
+		waitlist.addAll(wasAssigned);
+		for (FloorRequest fr : wasInService) {
+			requestStartTimes.remove(fr);
+			statistics.passengerDroppedOff(fr);
+			if (journal != null)
+				journal.droppedOff(fr, id);
+		}
+		System.out.println("SCHEDULER: Resynced Elevator-" + id + ", " + wasAssigned.size()
+				+ " requests back on the waitlist and " + wasInService.size() + " dropped off");
+		schedulerView.updateWaitlist(waitlist);
+	}
+
+	/**
+	 * Removes the first request of a list with the floors of another
+	 *
+	 * @return the request, null if there is none
+	 */
+	private static FloorRequest takeMatchingRequest(List<FloorRequest> requests, FloorRequest fr) {
+		Iterator<FloorRequest> iter = requests.iterator();
+		while (iter.hasNext()) {
+			FloorRequest known = iter.next();
+			if (known.getSourceFloor() == fr.getSourceFloor() && known.getDestinationFloor() == fr.getDestinationFloor()) {
+				iter.remove();
+				return known;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a request the scheduler only learned of from an elevator's state dump
+	 */
+	private FloorRequest addResyncedRequest(FloorRequest fr) {
+		requestStartTimes.put(fr, System.currentTimeMillis());
+		hallCalls.add(fr);
+		if (journal != null)
+			journal.requestArrived(fr, requestStartTimes.get(fr));
+		return fr;
+	}
+
+	/**
+	 * Asks every known elevator for its state before sending it anything, after
+	 * the scheduler's state was recovered or taken over and may be behind the cars
+	 */
+	void resyncElevators() {
+		unsynced.addAll(elevatorPorts.keySet());
+	}
+
+	/**
+	 * Sends the response to a floor request, once the journal has the request
+	 * if there is one
+	 *
+	 * @param fr the floor request
+	 */
+	private void acknowledge(FloorRequest fr) {
+		if (journal == null)
+			send(new Response(fr.getRequestId()), getFloorPort(fr.getClientId()));
+		else
+			unacknowledged.add(fr);
+	}
+
+	/**
+	 * Sends the responses that waited for the journal
+	 */
+	private void flushAcknowledgements() {
+		for (FloorRequest fr : unacknowledged)
+			send(new Response(fr.getRequestId()), getFloorPort(fr.getClientId()));
+		unacknowledged.clear();
+	}
+
+	/**
+	 * Registers a floor client, which gets the responses to its requests on its
+	 * own port
+	 *
+	 * @param fm the register message of the client
+	 */
+	void registerFloorClient(FloorRegister fm) {
+		floorClientPorts.put(fm.getID(), fm.getPort());
+	}
+
+	/**
+	 * Removes a floor client that sent all its requests, and starts shutting down
+	 * once every client has
+	 *
+	 * @param clientId the client, 0 for the floor subsystem on the floor port
+	 */
+	void floorClientTerminated(int clientId) {
+		floorClientPorts.remove(clientId);
+		if (floorClientPorts.isEmpty())
+			terminate();
+	}
+
+	boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Checks if a message is a floor request that was already received, which
+	 * happens when the floor retransmits a request whose response was lost
+	 *
+	 * @param message the message
+	 * @return true if the request ID was seen recently, false otherwise
+	 */
+	boolean isRetransmittedRequest(Message message) {
+		if (message.getHeader() != Helper.FLOOR_REQUEST_MESSAGE || ((FloorRequest) message).getRequestId() == 0)
+			return false;
+		// request IDs are only unique per client
+		FloorRequest fr = (FloorRequest) message;
+		if (!recentRequestIds.add(((long) fr.getClientId() << 32) | (fr.getRequestId() & 0xFFFFFFFFL)))
+			return true;
+		if (recentRequestIds.size() > RECENT_REQUEST_IDS) {
+			Iterator<Long> oldest = recentRequestIds.iterator();
+			oldest.next();
+			oldest.remove();
+		}
+		return false;
+	}
+
 	/**
 	 * Creates a thread receives messages from the messageReceiver thread and if the
 	 * message is a floor request then it saves the floor request and sends back an
@@ -373,43 +1063,48 @@ public class Scheduler extends Subsystem {
 	public void run() {
 		System.out.println("SCHEDULER: STARTED");
 		startMessageReceiver();
+		// recovered elevators are resynced at once, an idle one is waiting for a reply that was lost
+		for (int id : unsynced) {
+			System.out.println("SCHEDULER: Asking Elevator-" + id + " for its state");
+			send(new Resync(), elevatorPorts.get(id));
+			// a car that died with the last scheduler is found out like any other
+			failureDetector.heartbeat(id, now());
+			failureDetector.idle(id);
+		}
 		List<Message> messages;
 		while (running || !isFinished()) {
-			messages = schedulerMessageReceiver.getMessages();
+			messages = schedulerMessageReceiver.getMessages(FAILURE_CHECK_INTERVAL);
 			for (Message message : messages) {
-				if (message.getHeader() == Helper.FLOOR_REQUEST_MESSAGE) {
+				SchedulerMessageEvent event = new SchedulerMessageEvent();
+				event.begin();
+				statistics.startMessage();
+				if (isRetransmittedRequest(message)) {
+					FloorRequest fr = (FloorRequest) message;
+					System.out.println("SCHEDULER: Received retransmitted floor request -> " + fr);
+					acknowledge(fr);
+				} else if (message.getHeader() == Helper.FLOOR_REQUEST_MESSAGE) {
 					FloorRequest fr = (FloorRequest) message;
 					System.out.println("SCHEDULER: Received floor request -> " + fr);
 
 					// save the start time of the floor request
 					requestStartTimes.put(fr, System.currentTimeMillis());
+					if (journal != null)
+						journal.requestArrived(fr, requestStartTimes.get(fr));
+					statistics.requestArrived(fr);
+					latestTimestamp = fr.getTimestamp();
+					latestTimestampNanos = System.nanoTime();
+					if (traceRecorder != null)
+						traceRecorder.record(fr, System.currentTimeMillis());
 					
 					System.out.println("---- Current elevators ----");
 					for (ElevatorMessage em : elevators.values()) {
 						System.out.printf("%-60s || Requests in service --> %s || Requests assigned --> %s\n", em, elevatorFloorRequestsInService.get(em.getId()), elevatorFloorRequestsAssigned.get(em.getId()));
 					}
 
-					int elevatorId = getBestElevator(fr);
-					if (elevatorId == -1) {
-						waitlist.add(fr);
-						schedulerView.updateWaitlist(waitlist);
-						System.out.println("No elevators available. Adding to waitlist");
-					} else {
-						if (isElevatorWaiting(elevatorId)) {
-							List<FloorRequest> requests = new ArrayList<>();
-							requests.add(fr);
-							sendRequestsToElevator(requests, elevatorId);
-							System.out.println("SCHEDULER: Sending " + (requests.isEmpty() ? "no requests" : requests)
-									+ " to Elevator-" + elevatorId);
-						} else {
-							waitlist.add(fr);
-							schedulerView.updateWaitlist(waitlist);
-							System.out.println("Elevator-" + elevatorId + " not receiving. Adding to waitlist");
-						}
-					}
+					dispatch(fr);
 
 					// send an empty reply back to floor
-					send(new Response(), Helper.FLOOR_PORT);
+					acknowledge(fr);
 					schedulerView.updateElevators(elevatorFloorRequestsInService, elevatorFloorRequestsAssigned);
 				} else if (message.getHeader() == Helper.ELEVATOR_STATE_MESSAGE) {
 					ElevatorMessage em = (ElevatorMessage) message;
@@ -417,47 +1112,90 @@ public class Scheduler extends Subsystem {
 
 					System.out.println("SCHEDULER: Received elevator state: " + em);
 					// check if the elevator is broken
-					if (em.getStatus() == Status.BROKEN) {
+					if ((em.getStatus() == Status.BROKEN || silencedElevators.contains(id)) && !elevatorPorts.containsKey(id)) {
+						// a repeat of a state whose terminate crossed with it, or a car that broke while the scheduler was down
+						System.out.println("SCHEDULER: Elevator-" + id + " already terminated");
+						Integer port = schedulerMessageReceiver.getElevatorPort(id);
+						if (port != null)
+							send(new Terminate(), port);
+					} else if (em.getStatus() == Status.BROKEN) {
 						handleBrokenElevator(em);
 						System.out.println("SCHEDULER: Current wait list: " + waitlist);
 						System.out.println("SCHEDULER: Sending terminate to Elevator-" + id);
 						send(new Terminate(), elevatorPorts.get(id));
 						elevatorPorts.remove(id);
+					} else if (!elevatorPorts.containsKey(id) || unsynced.contains(id)) {
+						// nothing is sent to the car until its own view of its requests is known
+						System.out.println("SCHEDULER: Asking Elevator-" + id + " for its state");
+						Integer port = schedulerMessageReceiver.getElevatorPort(id);
+						send(new Resync(), port != null ? port : elevatorPorts.get(id));
+						if (elevatorPorts.containsKey(id))
+							failureDetector.heartbeat(id, now());
 					} else {
-						updateElevatorState(em);
-						System.out.println("SCHEDULER: Current wait list: " + waitlist);
-						
-						List<FloorRequest> floorRequests = getFloorRequests(em);
-
-						if (!floorRequests.isEmpty() || !isElevatorWaiting(id)) {
-							System.out.println("SCHEDULER: Sending "
-									+ (floorRequests.isEmpty() ? "no requests" : floorRequests) + " to Elevator-" + id
-									+ " | " + elevatorFloorRequestsAssigned.get(id) + " | " + elevatorFloorRequestsInService.get(id));
-							sendRequestsToElevator(floorRequests, id);
-						} else {
-							System.out.println("SCHEDULER: Withholding response.");
-						}
-						schedulerView.updateElevators(elevatorFloorRequestsInService, elevatorFloorRequestsAssigned);
+						handleElevatorState(em);
 					}
 
+				} else if (message.getHeader() == Helper.STATE_DUMP_MESSAGE) {
+					StateDump sd = (StateDump) message;
+					System.out.println("SCHEDULER: Received " + sd);
+					resync(sd);
+					handleElevatorState(sd.getState());
+
 				} else if (message.getHeader() == Helper.REGISTER_MESSAGE) {
 					System.out.println("SCHEDULER: Received register.");
 					Register rm = (Register) message;
 					register(rm);
+					failureDetector.heartbeat(rm.getID(), now());
+					if (journal != null)
+						journal.registered(rm);
 					System.out.println("SCHEDULER: Registered Elevator-" + rm.getID() + " to port " + rm.getPort());
 					send(new Response(), rm.getPort());
-					elevatorAdded = true;
+				} else if (message.getHeader() == Helper.ZONE_MESSAGE) {
+					ZoneMessage zm = (ZoneMessage) message;
+					System.out.println("SCHEDULER: Elevator-" + zm.getID() + " now serves floors " + zm.getZone());
+					setElevatorZone(zm.getID(), zm.getZone());
+					if (journal != null)
+						journal.zoneChanged(zm);
+					schedulerView.updateElevators(elevatorFloorRequestsInService, elevatorFloorRequestsAssigned);
+				} else if (message.getHeader() == Helper.FLOOR_REGISTER_MESSAGE) {
+					FloorRegister fm = (FloorRegister) message;
+					registerFloorClient(fm);
+					if (journal != null)
+						journal.floorClientRegistered(fm);
+					System.out.println("SCHEDULER: Registered Floor-" + fm.getID() + " to port " + fm.getPort()
+							+ " for floors " + fm.getLowestFloor() + "-" + fm.getHighestFloor());
+					if (answersFloorClients)
+						send(new Response(), fm.getPort());
 				} else if (message.getHeader() == Helper.TERMINATE) {
-					System.out.println("SCHEDULER: Received terminate.");
+					int clientId = ((Terminate) message).getClientId();
+					System.out.println("SCHEDULER: Received terminate" + (clientId == 0 ? "." : " from Floor-" + clientId + "."));
 
-					terminate();
-					send(new Response(), Helper.FLOOR_PORT);
+					int port = getFloorPort(clientId);
+					floorClientTerminated(clientId);
+					if (journal != null)
+						journal.floorClientTerminated(clientId);
+					if (answersFloorClients)
+						send(new Response(), port);
 					
 				} else {
 					System.out.println("SCHEDULER: Unknown message, ruh roh");
 				}
 				System.out.println("-----------------");
+				statistics.endMessage(message.getHeader());
+				if (event.shouldCommit()) {
+					event.messageType = message.getHeader();
+					event.batchSize = messages.size();
+					event.waitlistSize = waitlist.size();
+					event.commit();
+				}
 			}
+			handleSilentElevators();
+			if (traceRecorder != null)
+				traceRecorder.flushIfDue(System.currentTimeMillis());
+			if (journal != null)
+				journal.commit();
+			flushAcknowledgements();
+			backlog = waitlist.size();
 			if(checkIfElevatorsHaveAllTerminated()) {
 				System.out.println("SCHEDULER: All elevators are finished running.");
 				terminate();
@@ -477,9 +1215,16 @@ public class Scheduler extends Subsystem {
 		}
 		
 		System.out.println("SCHEDULER: Terminated.");
+		for (Lane lane : Lane.values())
+			statistics.setPeakLaneDepth(lane, schedulerMessageReceiver.getPeakDepth(lane));
+		if (traceRecorder != null)
+			traceRecorder.close();
+		if (journal != null)
+			journal.close();
 		endTimerAndPrint();
 		schedulerMessageReceiver.closeSockets();
 		closeSockets();
+		stopped = true;
 	}
 	
 	/**
@@ -511,7 +1256,86 @@ public class Scheduler extends Subsystem {
 		return false;
 	}
 
+	/**
+	 * Records every floor request that arrives from now on
+	 *
+	 * @param recorder the recorder the requests are written to
+	 */
+	public void setTraceRecorder(TraceRecorder recorder) {
+		traceRecorder = recorder;
+	}
+
+	/**
+	 * Writes every state change to a journal, which the state can be recovered
+	 * from after a crash. Open the journal before the scheduler starts, which
+	 * recovers the state it holds.
+	 *
+	 * @param journal the journal
+	 */
+	public void setJournal(SchedulerJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Makes the scheduler a shard of a sharded scheduler: it takes its messages
+	 * from an inbox the router fills, instead of receiving them on the scheduler
+	 * port, and only the first shard answers floor clients
+	 *
+	 * @param inbox               the inbox of the shard
+	 * @param answersFloorClients true for the one shard that answers floor clients
+	 */
+	public void setShardInbox(SchedulerMessageReceiver inbox, boolean answersFloorClients) {
+		schedulerMessageReceiver = inbox;
+		this.answersFloorClients = answersFloorClients;
+	}
+
+	/**
+	 * Sets the fleet size above which the candidates for a request are scored in
+	 * parallel
+	 *
+	 * @param threshold the number of elevators
+	 */
+	public void setParallelDispatchThreshold(int threshold) {
+		parallelDispatchThreshold = threshold;
+	}
+
+	/**
+	 * Sets the failure detector silent elevators are found by
+	 *
+	 * @param detector the failure detector
+	 */
+	public void setFailureDetector(FailureDetector detector) {
+		failureDetector = detector;
+	}
+
+	/**
+	 * Sets how cars are picked for passengers
+	 *
+	 * @param mode the dispatch mode
+	 */
+	public void setDispatchMode(DispatchMode mode) {
+		dispatchMode = mode;
+	}
+
+	/**
+	 * Parks idle elevators at the floors the profile predicts will be busy, and
+	 * teaches the profile the calls of every completed request
+	 *
+	 * @param profile the demand profile, null to leave idle elevators where they stop
+	 */
+	public void setDemandProfile(DemandProfile profile) {
+		demandProfile = profile;
+	}
+
 	/* Getters */
+	public DemandProfile getDemandProfile() {
+		return demandProfile;
+	}
+
+	public Map<FloorRequest, Long> getRequestStartTimes() {
+		return requestStartTimes;
+	}
+
 	public Map<Integer, ElevatorMessage> getElevators() {
 		return elevators;
 	}
@@ -532,4 +1356,26 @@ public class Scheduler extends Subsystem {
 		return elevatorFloorRequestsInService;
 	}
 
+	public HallCallRegister getHallCalls() {
+		return hallCalls;
+	}
+
+	public SchedulerStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Gets the number of requests that were waiting for a car after the last
+	 * batch, which other threads can read
+	 *
+	 * @return the backlog
+	 */
+	public int getBacklog() {
+		return backlog;
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
 }
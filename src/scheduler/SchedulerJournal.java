@@ -0,0 +1,594 @@
+package scheduler;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import common_classes.BinaryTraceFormat;
+import messages.FloorRegister;
+import messages.FloorRequest;
+import messages.Register;
+import messages.ZoneMessage;
+
+/**
+ * An append-only journal of the events that change the scheduler's state, so
+ * a restarted scheduler gets back every pending call. Events are buffered and
+ * written with one write and one force per batch of messages (group commit).
+ * When the journal grows long its events are compacted into a snapshot of the
+ * state, and recovery reads the snapshot and then the journal written since.
+ *
+ * Both files are a header followed by records:
+ *
+ * <pre>
+ * header:  magic (int), version (byte), generation (long)
+ * record:  length (varint), type (byte), fields
+ * </pre>
+ *
+ * Fields are varints in the style of the binary trace format, and the register
+ * events store the bytes of their message. The snapshot of generation n covers
+ * every event before the journal of generation n, so a journal left behind by a
+ * crash during compaction is skipped. A record cut short by a crash ends the
+ * recovery.
+ *
+ * The same records are what a replicator streams to a hot-standby scheduler,
+ * and a journal without files keeps only what the stream needs.
+ *
+ * @see BinaryTraceFormat
+ */
+public class SchedulerJournal {
+
+	public final static int MAGIC = 0x454C564A; // "ELVJ"
+	public final static byte VERSION = 1;
+	public final static int HEADER_LENGTH = 13;
+
+	// the events written since the last snapshot that trigger a new one
+	private static final int SNAPSHOT_RECORDS = 50000;
+
+	// the record types
+	private static final byte REGISTER = 1;
+	private static final byte FLOOR_REGISTER = 2;
+	private static final byte FLOOR_TERMINATE = 3;
+	private static final byte ZONE = 4;
+	private static final byte ARRIVE = 5;
+	private static final byte ASSIGN = 6;
+	private static final byte PICKUP = 7;
+	private static final byte DROP_OFF = 8;
+	private static final byte BROKEN = 9;
+
+	// the longest a record of a floor request can be: seven varints
+	private static final int MAX_RECORD_LENGTH = 80;
+
+	private final Path journalPath;
+	private final Path snapshotPath;
+	private final Scheduler scheduler;
+
+	// the journal file, null if the journal only feeds a replicator
+	private FileChannel channel;
+
+	// the standby the records are streamed to, null if there is none
+	private SchedulerReplicator replicator;
+
+	private long generation = 0;
+
+	// the events not written yet
+	private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+	private int recordsSinceSnapshot = 0;
+
+	// the serial number of every pending request, which the events refer to it by
+	private final Map<FloorRequest, Long> serials = new IdentityHashMap<>();
+	private long nextSerial = 1;
+
+	// the latest register messages, which are written again by every snapshot
+	private final Map<Integer, byte[]> registers = new LinkedHashMap<>();
+	private final Map<Integer, byte[]> zones = new LinkedHashMap<>();
+	private final Map<Integer, byte[]> floorRegisters = new LinkedHashMap<>();
+
+	// the recovery measurements
+	private int recoveredRecords = 0;
+	private long recoveryNanos = 0;
+
+	private SchedulerJournal(String path, Scheduler scheduler) {
+		this.journalPath = path == null ? null : Paths.get(path);
+		this.snapshotPath = path == null ? null : Paths.get(path + ".snapshot");
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Creates a journal that writes no files, for a scheduler that streams its
+	 * records to a standby or is a standby itself
+	 *
+	 * @param scheduler the scheduler
+	 * @return the journal
+	 */
+	public static SchedulerJournal withoutFile(Scheduler scheduler) {
+		return new SchedulerJournal(null, scheduler);
+	}
+
+	/**
+	 * Opens a journal, first recovering the state it holds into the scheduler and
+	 * compacting it into a new snapshot
+	 *
+	 * @param path      the path of the journal, the snapshot is next to it
+	 * @param scheduler a scheduler that has not started
+	 * @return the journal
+	 * @throws IOException if the files cannot be read or written
+	 */
+	public static SchedulerJournal open(String path, Scheduler scheduler) throws IOException {
+		SchedulerJournal journal = new SchedulerJournal(path, scheduler);
+		journal.recover();
+		// the cars may have moved on since the journal was written
+		scheduler.resyncElevators();
+		journal.channel = FileChannel.open(journal.journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.READ);
+		journal.snapshot();
+		return journal;
+	}
+
+	/* The events */
+	public void registered(Register rm) {
+		byte[] data = rm.getData();
+		registers.put(rm.getID(), data);
+		append(REGISTER, data);
+	}
+
+	public void zoneChanged(ZoneMessage zm) {
+		byte[] data = zm.getData();
+		zones.put(zm.getID(), data);
+		append(ZONE, data);
+	}
+
+	public void floorClientRegistered(FloorRegister fm) {
+		byte[] data = fm.getData();
+		floorRegisters.put(fm.getID(), data);
+		append(FLOOR_REGISTER, data);
+	}
+
+	public void floorClientTerminated(int clientId) {
+		floorRegisters.remove(clientId);
+		ByteBuffer record = startRecord(FLOOR_TERMINATE);
+		BinaryTraceFormat.putVarLong(record, clientId);
+		endRecord();
+	}
+
+	public void requestArrived(FloorRequest fr, long startTime) {
+		long serial = nextSerial++;
+		serials.put(fr, serial);
+		putRequest(fr, serial, startTime);
+	}
+
+	public void assigned(FloorRequest fr, int id) {
+		putMove(ASSIGN, fr, id);
+	}
+
+	public void pickedUp(FloorRequest fr, int id) {
+		putMove(PICKUP, fr, id);
+	}
+
+	public void droppedOff(FloorRequest fr, int id) {
+		putMove(DROP_OFF, fr, id);
+		serials.remove(fr);
+	}
+
+	public void broken(int id) {
+		// the passengers in the car are not recovered
+		List<FloorRequest> inService = scheduler.getElevatorFloorRequestsInService().get(id);
+		if (inService != null) {
+			for (FloorRequest fr : inService)
+				serials.remove(fr);
+		}
+		registers.remove(id);
+		zones.remove(id);
+		ByteBuffer record = startRecord(BROKEN);
+		BinaryTraceFormat.putVarLong(record, id);
+		endRecord();
+	}
+
+	/**
+	 * Writes the buffered events and forces them to the disk, taking a snapshot
+	 * instead when the journal has grown long
+	 */
+	public void commit() {
+		byte[] batch = null;
+		if (replicator != null)
+			batch = Arrays.copyOf(pending.array(), pending.position());
+		try {
+			if (channel != null && recordsSinceSnapshot >= SNAPSHOT_RECORDS) {
+				snapshot();
+			} else if (channel != null && pending.position() > 0) {
+				pending.flip();
+				write(channel, pending);
+				channel.force(false);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		pending.clear();
+		if (channel == null)
+			recordsSinceSnapshot = 0;
+
+		// the records are on the disk before the standby has them
+		if (replicator != null)
+			replicator.send(batch, this::stateRecords);
+	}
+
+	/**
+	 * Streams the records to a standby from the next commit, the first standby to
+	 * connect is sent the whole state
+	 *
+	 * @param replicator the replicator
+	 */
+	public void setReplicator(SchedulerReplicator replicator) {
+		this.replicator = replicator;
+	}
+
+	/**
+	 * Applies records streamed from the scheduler a standby follows
+	 *
+	 * @param records the records
+	 */
+	public void applyRecords(ByteBuffer records) {
+		replay(records, replicated);
+	}
+
+	// the requests of the streamed records by serial number
+	private final Map<Long, FloorRequest> replicated = new HashMap<>();
+
+	/**
+	 * Closes the journal at the end of the scheduler's run. A scheduler that shut
+	 * down cleanly has nothing to recover, so the files are removed.
+	 */
+	public void close() {
+		if (replicator != null)
+			replicator.close();
+		if (channel == null)
+			return;
+		try {
+			channel.close();
+			Files.deleteIfExists(journalPath);
+			Files.deleteIfExists(snapshotPath);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the scheduler's state to a new snapshot and empties the journal. The
+	 * snapshot replaces the old one in one move, and the journal is only emptied
+	 * once the new snapshot is in place.
+	 */
+	private void snapshot() throws IOException {
+		generation++;
+		ByteBuffer state = ByteBuffer.wrap(stateRecords());
+
+		Path temporary = Paths.get(snapshotPath + ".tmp");
+		try (FileChannel snapshot = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(snapshot, header());
+			write(snapshot, state);
+			snapshot.force(true);
+		}
+		Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		channel.truncate(0);
+		channel.position(0);
+		write(channel, header());
+		channel.force(true);
+	}
+
+	/**
+	 * Writes the records that rebuild the scheduler's current state, dropping the
+	 * records not written yet
+	 *
+	 * @return the records
+	 */
+	private byte[] stateRecords() {
+		pending.clear();
+
+		for (Map.Entry<Integer, byte[]> register : registers.entrySet()) {
+			if (scheduler.getElevatorPorts().containsKey(register.getKey()))
+				append(REGISTER, register.getValue());
+		}
+		for (byte[] zone : zones.values())
+			append(ZONE, zone);
+		for (byte[] floorRegister : floorRegisters.values())
+			append(FLOOR_REGISTER, floorRegister);
+		if (!scheduler.isRunning()) {
+			ByteBuffer record = startRecord(FLOOR_TERMINATE);
+			BinaryTraceFormat.putVarLong(record, 0);
+			endRecord();
+		}
+
+		// pending requests keep their serial numbers
+		Map<FloorRequest, Long> startTimes = scheduler.getRequestStartTimes();
+		long now = System.currentTimeMillis();
+		for (FloorRequest fr : scheduler.getWaitlist())
+			putRequest(fr, serialOf(fr), startTimes.getOrDefault(fr, now));
+		for (Map.Entry<Integer, List<FloorRequest>> assigned : scheduler.getElevatorFloorRequestsAssigned().entrySet()) {
+			for (FloorRequest fr : assigned.getValue()) {
+				putRequest(fr, serialOf(fr), startTimes.getOrDefault(fr, now));
+				putMove(ASSIGN, fr, assigned.getKey());
+			}
+		}
+		for (Map.Entry<Integer, List<FloorRequest>> inService : scheduler.getElevatorFloorRequestsInService()
+				.entrySet()) {
+			for (FloorRequest fr : inService.getValue()) {
+				putRequest(fr, serialOf(fr), startTimes.getOrDefault(fr, now));
+				putMove(PICKUP, fr, inService.getKey());
+			}
+		}
+
+		byte[] records = Arrays.copyOf(pending.array(), pending.position());
+		pending.clear();
+		recordsSinceSnapshot = 0;
+		return records;
+	}
+
+	/**
+	 * Reads the snapshot and the journal written since into the scheduler
+	 */
+	private void recover() throws IOException {
+		long start = System.nanoTime();
+		Map<Long, FloorRequest> requests = new HashMap<>();
+
+		long snapshotGeneration = 0;
+		if (Files.exists(snapshotPath)) {
+			ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(snapshotPath));
+			snapshotGeneration = readHeader(snapshot);
+			replay(snapshot, requests);
+		}
+		generation = snapshotGeneration;
+
+		if (Files.exists(journalPath)) {
+			ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+			// a journal older than the snapshot was compacted into it already
+			if (journal.remaining() >= HEADER_LENGTH && readHeader(journal) == snapshotGeneration)
+				replay(journal, requests);
+		}
+
+		recoveryNanos = System.nanoTime() - start;
+		if (recoveredRecords > 0)
+			System.out.printf("SCHEDULER JOURNAL: recovered %d events and %d pending requests in %.3f ms%n",
+					recoveredRecords, serials.size(), recoveryNanos / 1e6);
+	}
+
+	/**
+	 * Applies the records of a file to the scheduler, up to the first record cut
+	 * short
+	 */
+	private void replay(ByteBuffer file, Map<Long, FloorRequest> requests) {
+		while (file.hasRemaining()) {
+			ByteBuffer record;
+			try {
+				int length = (int) BinaryTraceFormat.getVarLong(file);
+				if (length <= 0 || length > file.remaining())
+					return;
+				record = file.slice();
+				record.limit(length);
+				file.position(file.position() + length);
+			} catch (BufferUnderflowException | IllegalArgumentException e) {
+				return;
+			}
+			apply(record, requests);
+			recoveredRecords++;
+		}
+	}
+
+	private void apply(ByteBuffer record, Map<Long, FloorRequest> requests) {
+		byte type = record.get();
+		byte[] data;
+		switch (type) {
+		case REGISTER:
+			Register rm = (Register) Register.datagramToMessage(remaining(record));
+			registers.put(rm.getID(), rm.getData());
+			scheduler.register(rm);
+			break;
+		case ZONE:
+			ZoneMessage zm = (ZoneMessage) ZoneMessage.datagramToMessage(remaining(record));
+			zones.put(zm.getID(), zm.getData());
+			scheduler.setElevatorZone(zm.getID(), zm.getZone());
+			break;
+		case FLOOR_REGISTER:
+			data = remaining(record);
+			FloorRegister fm = (FloorRegister) FloorRegister.datagramToMessage(data);
+			floorRegisters.put(fm.getID(), data);
+			scheduler.registerFloorClient(fm);
+			break;
+		case FLOOR_TERMINATE:
+			int clientId = (int) BinaryTraceFormat.getVarLong(record);
+			floorRegisters.remove(clientId);
+			scheduler.floorClientTerminated(clientId);
+			break;
+		case ARRIVE:
+			long serial = BinaryTraceFormat.getVarLong(record);
+			FloorRequest fr = new FloorRequest((int) BinaryTraceFormat.unzigzag(BinaryTraceFormat.getVarLong(record)),
+					(int) BinaryTraceFormat.unzigzag(BinaryTraceFormat.getVarLong(record)),
+					(int) BinaryTraceFormat.unzigzag(BinaryTraceFormat.getVarLong(record)));
+			fr.setRequestId((int) BinaryTraceFormat.getVarLong(record));
+			fr.setClientId((int) BinaryTraceFormat.getVarLong(record));
+			long startTime = BinaryTraceFormat.getVarLong(record);
+			requests.put(serial, fr);
+			serials.put(fr, serial);
+			nextSerial = Math.max(nextSerial, serial + 1);
+
+			scheduler.isRetransmittedRequest(fr); // remember the request ID
+			scheduler.getRequestStartTimes().put(fr, startTime);
+			scheduler.getHallCalls().add(fr);
+			scheduler.getWaitlist().add(fr);
+			break;
+		case ASSIGN:
+		case PICKUP:
+		case DROP_OFF:
+			fr = requests.get(BinaryTraceFormat.getVarLong(record));
+			int id = (int) BinaryTraceFormat.getVarLong(record);
+			List<FloorRequest> assigned = scheduler.getElevatorFloorRequestsAssigned().get(id);
+			List<FloorRequest> inService = scheduler.getElevatorFloorRequestsInService().get(id);
+			if (fr == null || assigned == null)
+				break;
+			if (type == ASSIGN) {
+				removeRequest(scheduler.getWaitlist(), fr);
+				assigned.add(fr);
+				scheduler.getHallCalls().assign(fr, id);
+			} else if (type == PICKUP) {
+				if (!removeRequest(assigned, fr))
+					removeRequest(scheduler.getWaitlist(), fr);
+				inService.add(fr);
+				scheduler.getHallCalls().pickedUp(fr);
+			} else {
+				removeRequest(inService, fr);
+				scheduler.getRequestStartTimes().remove(fr);
+				serials.remove(fr);
+			}
+			break;
+		case BROKEN:
+			id = (int) BinaryTraceFormat.getVarLong(record);
+			registers.remove(id);
+			zones.remove(id);
+			if (scheduler.getElevatorFloorRequestsAssigned().containsKey(id)) {
+				scheduler.getWaitlist().addAll(scheduler.getElevatorFloorRequestsAssigned().remove(id));
+				for (FloorRequest passenger : scheduler.getElevatorFloorRequestsInService().remove(id))
+					serials.remove(passenger);
+				scheduler.getHallCalls().unassign(id);
+			}
+			scheduler.getElevatorPorts().remove(id);
+			break;
+		}
+	}
+
+	/**
+	 * Removes a request from a list by identity, since equal requests can be
+	 * different passengers
+	 */
+	private static boolean removeRequest(List<FloorRequest> list, FloorRequest fr) {
+		Iterator<FloorRequest> iter = list.iterator();
+		while (iter.hasNext()) {
+			if (iter.next() == fr) {
+				iter.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long serialOf(FloorRequest fr) {
+		Long serial = serials.get(fr);
+		if (serial == null) {
+			serial = nextSerial++;
+			serials.put(fr, serial);
+		}
+		return serial;
+	}
+
+	private void putRequest(FloorRequest fr, long serial, long startTime) {
+		ByteBuffer record = startRecord(ARRIVE);
+		BinaryTraceFormat.putVarLong(record, serial);
+		BinaryTraceFormat.putVarLong(record, BinaryTraceFormat.zigzag(fr.getTimestamp()));
+		BinaryTraceFormat.putVarLong(record, BinaryTraceFormat.zigzag(fr.getSourceFloor()));
+		BinaryTraceFormat.putVarLong(record, BinaryTraceFormat.zigzag(fr.getDestinationFloor()));
+		BinaryTraceFormat.putVarLong(record, fr.getRequestId() & 0xFFFFFFFFL);
+		BinaryTraceFormat.putVarLong(record, fr.getClientId() & 0xFFFFFFFFL);
+		BinaryTraceFormat.putVarLong(record, startTime);
+		endRecord();
+	}
+
+	private void putMove(byte type, FloorRequest fr, int id) {
+		Long serial = serials.get(fr);
+		if (serial == null) // the request arrived before the journal was opened
+			return;
+		ByteBuffer record = startRecord(type);
+		BinaryTraceFormat.putVarLong(record, serial);
+		BinaryTraceFormat.putVarLong(record, id);
+		endRecord();
+	}
+
+	private void append(byte type, byte[] data) {
+		startRecord(type);
+		ensureCapacity(data.length);
+		pending.put(data);
+		endRecord();
+	}
+
+	// the position of the record being written, whose length is filled in at the end
+	private int recordStart;
+
+	/**
+	 * Starts a record, leaving room for a length of up to two varint bytes
+	 */
+	private ByteBuffer startRecord(byte type) {
+		ensureCapacity(MAX_RECORD_LENGTH);
+		recordStart = pending.position();
+		pending.position(recordStart + 2);
+		pending.put(type);
+		return pending;
+	}
+
+	private void endRecord() {
+		int length = pending.position() - recordStart - 2;
+		// the length is written as a two byte varint so it fits the room left for it
+		pending.put(recordStart, (byte) ((length & 0x7F) | 0x80));
+		pending.put(recordStart + 1, (byte) (length >>> 7));
+		recordsSinceSnapshot++;
+	}
+
+	private void ensureCapacity(int length) {
+		if (pending.remaining() >= length)
+			return;
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + length));
+		pending.flip();
+		larger.put(pending);
+		pending = larger;
+	}
+
+	private ByteBuffer header() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(MAGIC);
+		header.put(VERSION);
+		header.putLong(generation);
+		header.flip();
+		return header;
+	}
+
+	private static long readHeader(ByteBuffer file) throws IOException {
+		if (file.remaining() < HEADER_LENGTH || file.getInt() != MAGIC)
+			throw new IOException("Not a scheduler journal");
+		if (file.get() != VERSION)
+			throw new IOException("Unsupported scheduler journal version");
+		return file.getLong();
+	}
+
+	private static byte[] remaining(ByteBuffer record) {
+		byte[] data = new byte[record.remaining()];
+		record.get(data);
+		return data;
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/* Getters */
+	public int getRecoveredRecords() {
+		return recoveredRecords;
+	}
+
+	public long getRecoveryNanos() {
+		return recoveryNanos;
+	}
+
+	public int getPendingRequests() {
+		return serials.size();
+	}
+}
@@ -1,18 +1,64 @@
 package scheduler;
 
 import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.util.EnumMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import common_classes.Helper;
 import common_classes.Subsystem;
+import elevator_subsystem.Status;
+import messages.ElevatorMessage;
 import messages.Message;
 
 public class SchedulerMessageReceiver extends Subsystem implements Runnable {
 	public SchedulerMessageReceiver() {
 		super(Helper.SCHEDULER_PORT);
+		router = null;
+		createLanes();
 	}
 
+	/**
+	 * Creates a receiver on a scheduler port socket that is already bound, such
+	 * as the one a standby claimed from a dead scheduler
+	 *
+	 * @param socket the socket bound to the scheduler port
+	 */
+	public SchedulerMessageReceiver(DatagramSocket socket) {
+		super(socket);
+		router = null;
+		createLanes();
+	}
+
+	/**
+	 * Creates the inbox of one shard of a sharded scheduler, which the router puts
+	 * the shard's messages in instead of a socket
+	 *
+	 * @param router the receiver on the scheduler port
+	 */
+	public SchedulerMessageReceiver(SchedulerMessageReceiver router) {
+		super();
+		this.router = router;
+		createLanes();
+	}
+
+	// the receiver on the scheduler port when this is the inbox of a shard, null otherwise
+	private final SchedulerMessageReceiver router;
+
+	private void createLanes() {
+		for (Lane lane : Lane.values()) {
+			lanes.put(lane, new LinkedList<>());
+			peakDepths.put(lane, 0);
+		}
+	}
+
+	// the port each elevator last sent its state from, which it also receives on
+	private final Map<Integer, Integer> elevatorPorts = new ConcurrentHashMap<>();
+
 	@Override
 	public void run() {
 		while (true) {
@@ -28,16 +74,96 @@ public class SchedulerMessageReceiver extends Subsystem implements Runnable {
 		System.out.println("SCHEDULER RECEIVER: Terminated.");
 	}
 
+	/**
+	 * Converts bytes to message, noting the port of an elevator state so an
+	 * elevator the scheduler does not know can be answered
+	 */
+	@Override
+	public Message datagramToMessage(DatagramPacket datagram) {
+		Message message = super.datagramToMessage(datagram);
+		if (message instanceof ElevatorMessage)
+			elevatorPorts.put(((ElevatorMessage) message).getId(), datagram.getPort());
+		return message;
+	}
+
+	/**
+	 * Drops an elevator state that arrives after a newer one from the same car,
+	 * which would move the car back to where it was
+	 */
+	@Override
+	protected boolean acceptsLate(Message message) {
+		return !(message instanceof ElevatorMessage);
+	}
+
+	/**
+	 * Gets the port an elevator sent its last state from
+	 *
+	 * @param id the elevator
+	 * @return the port, null if no state came from the elevator
+	 */
+	public Integer getElevatorPort(int id) {
+		if (router != null)
+			return router.getElevatorPort(id);
+		return elevatorPorts.get(id);
+	}
+
+	/**
+	 * The lanes of the scheduler's inbox, in the order they are served. Each batch
+	 * takes at most the weight of a lane from it, so a flood of one kind of
+	 * message delays the lanes behind it by one batch at most, and a failure
+	 * report never waits behind more than a batch of routine messages.
+	 */
+	public enum Lane {
+		// registrations, failure reports, state dumps, zones and terminates
+		CONTROL(Integer.MAX_VALUE),
+		// floor requests
+		HALL_CALLS(32),
+		// the routine states of the elevators
+		STATES(32);
+
+		// the most messages a batch takes from the lane
+		private final int weight;
+
+		private Lane(int weight) {
+			this.weight = weight;
+		}
+
+		/**
+		 * Gets the lane a message waits in
+		 *
+		 * @param message the message
+		 * @return the lane
+		 */
+		public static Lane of(Message message) {
+			if (message.getHeader() == Helper.FLOOR_REQUEST_MESSAGE)
+				return HALL_CALLS;
+			if (message.getHeader() == Helper.ELEVATOR_STATE_MESSAGE
+					&& ((ElevatorMessage) message).getStatus() != Status.BROKEN)
+				return STATES;
+			return CONTROL;
+		}
+	}
+
 	/* Handles communication with Scheduler */
-	private List<Message> messages = new LinkedList<Message>();
+	private final Map<Lane, LinkedList<Message>> lanes = new EnumMap<>(Lane.class);
+
+	// the most messages that waited in each lane at once
+	private final Map<Lane, Integer> peakDepths = new EnumMap<>(Lane.class);
 
 	public synchronized void putMessage(Message message) {
-		messages.add(message);
+		Lane lane = Lane.of(message);
+		if (lane == Lane.CONTROL && message.getHeader() == Helper.ELEVATOR_STATE_MESSAGE) {
+			// the car's routine states waiting behind its failure report are out of date
+			int id = ((ElevatorMessage) message).getId();
+			lanes.get(Lane.STATES).removeIf(m -> ((ElevatorMessage) m).getId() == id);
+		}
+		lanes.get(lane).add(message);
+		peakDepths.put(lane, Math.max(peakDepths.get(lane), lanes.get(lane).size()));
 		notifyAll();
 	}
 	
 	public synchronized List<Message> getMessages() {
-		while (messages.isEmpty()) {
+		while (isEmpty()) {
 			try {
 					wait();
 			} catch (InterruptedException e) {
@@ -45,8 +171,68 @@ public class SchedulerMessageReceiver extends Subsystem implements Runnable {
 			}
 		}
 
-		List<Message> messages = new LinkedList<>(this.messages);
-		this.messages.clear();
-		return messages;
+		return takeMessages();
+	}
+
+	/**
+	 * Gets the messages that arrived, waiting a while for one if there are none
+	 *
+	 * @param timeout the longest to wait, in milliseconds
+	 * @return the messages, empty if none arrived in time
+	 */
+	public synchronized List<Message> getMessages(long timeout) {
+		long deadline = System.currentTimeMillis() + timeout;
+		long remaining = timeout;
+		while (isEmpty() && remaining > 0) {
+			try {
+				wait(remaining);
+			} catch (InterruptedException e) {
+				return null;
+			}
+			remaining = deadline - System.currentTimeMillis();
+		}
+
+		return takeMessages();
+	}
+
+	private boolean isEmpty() {
+		for (LinkedList<Message> messages : lanes.values()) {
+			if (!messages.isEmpty())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Takes the next batch, every lane in turn up to its weight
+	 */
+	private List<Message> takeMessages() {
+		List<Message> batch = new LinkedList<>();
+		for (Lane lane : Lane.values()) {
+			LinkedList<Message> messages = lanes.get(lane);
+			for (int i = 0; i < lane.weight && !messages.isEmpty(); i++)
+				batch.add(messages.removeFirst());
+		}
+		return batch;
+	}
+
+	/**
+	 * Gets the number of messages waiting in a lane
+	 *
+	 * @param lane the lane
+	 * @return the depth of the lane
+	 */
+	public synchronized int getDepth(Lane lane) {
+		return lanes.get(lane).size();
+	}
+
+	/**
+	 * Gets the most messages that waited in a lane at once
+	 *
+	 * @param lane the lane
+	 * @return the peak depth of the lane
+	 */
+	public synchronized int getPeakDepth(Lane lane) {
+		return peakDepths.get(lane);
 	}
 }
@@ -0,0 +1,158 @@
+package scheduler;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.function.Supplier;
+
+/**
+ * Streams the scheduler's journal records to a hot-standby scheduler over a
+ * local TCP connection. The standby is sent the whole state when it connects
+ * and then every batch of records the journal commits, so it holds the same
+ * state as the scheduler one batch behind at most. A heartbeat is sent whenever
+ * nothing else has been for a while, which the standby detects a dead
+ * scheduler by.
+ *
+ * Frames are a type (byte) and a length (int) followed by that many bytes of
+ * journal records.
+ *
+ * @see SchedulerStandby
+ */
+public class SchedulerReplicator implements Runnable {
+
+	// the frame types
+	public static final byte HEARTBEAT = 0;
+	public static final byte RECORDS = 1;
+	public static final byte SHUTDOWN = 2;
+
+	// the longest the standby goes without a frame
+	public static final int HEARTBEAT_INTERVAL = 50;
+
+	private final ServerSocket serverSocket;
+
+	// the standby being streamed to, null until one connects
+	private Socket standby;
+	private DataOutputStream out;
+
+	// true when a standby connected and has not been sent the state yet
+	private boolean standbyConnected = false;
+
+	private long lastSendNanos = System.nanoTime();
+	private volatile boolean running = true;
+
+	/**
+	 * Listens for a standby on a port and starts sending heartbeats once one
+	 * connects
+	 *
+	 * @param port the port, 0 for any free port
+	 * @throws IOException if the port cannot be bound
+	 */
+	public SchedulerReplicator(int port) throws IOException {
+		serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+		Thread thread = new Thread(this, "SCHEDULER REPLICATOR");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Accepts standbys and sends them heartbeats, a new standby replaces the last
+	 */
+	@Override
+	public void run() {
+		Thread accepter = new Thread(() -> {
+			while (running) {
+				try {
+					Socket socket = serverSocket.accept();
+					socket.setTcpNoDelay(true);
+					connected(socket);
+				} catch (IOException e) {
+					if (running)
+						e.printStackTrace();
+				}
+			}
+		}, "SCHEDULER REPLICATOR ACCEPT");
+		accepter.setDaemon(true);
+		accepter.start();
+
+		while (running) {
+			try {
+				Thread.sleep(HEARTBEAT_INTERVAL / 2);
+			} catch (InterruptedException e) {
+				return;
+			}
+			synchronized (this) {
+				if (out != null && System.nanoTime() - lastSendNanos >= HEARTBEAT_INTERVAL * 1000000L)
+					send(HEARTBEAT, new byte[0]);
+			}
+		}
+	}
+
+	private synchronized void connected(Socket socket) throws IOException {
+		if (standby != null)
+			standby.close();
+		standby = socket;
+		out = new DataOutputStream(socket.getOutputStream());
+		standbyConnected = true;
+		System.out.println("SCHEDULER REPLICATOR: standby connected from port " + socket.getPort());
+		send(HEARTBEAT, new byte[0]);
+	}
+
+	/**
+	 * Sends a batch of journal records to the standby, if there is one. A standby
+	 * that connected since the last batch is sent the whole state instead, which
+	 * is decided under the same lock a standby connects under, so no standby is
+	 * sent a batch before the state.
+	 *
+	 * @param records the records
+	 * @param state   gets the records of the whole state
+	 */
+	public synchronized void send(byte[] records, Supplier<byte[]> state) {
+		if (out == null)
+			return;
+		if (standbyConnected) {
+			standbyConnected = false;
+			send(RECORDS, state.get());
+		} else if (records.length > 0) {
+			send(RECORDS, records);
+		}
+	}
+
+	private void send(byte type, byte[] data) {
+		try {
+			out.writeByte(type);
+			out.writeInt(data.length);
+			out.write(data);
+			out.flush();
+			lastSendNanos = System.nanoTime();
+		} catch (IOException e) {
+			// the standby is gone, the next one to connect gets the whole state
+			System.out.println("SCHEDULER REPLICATOR: standby disconnected");
+			out = null;
+		}
+	}
+
+	/**
+	 * Tells the standby the scheduler shut down cleanly, so it does not take over,
+	 * and stops listening
+	 */
+	public void close() {
+		running = false;
+		synchronized (this) {
+			if (out != null)
+				send(SHUTDOWN, new byte[0]);
+			try {
+				if (standby != null)
+					standby.close();
+				serverSocket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+}
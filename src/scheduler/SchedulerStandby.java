@@ -0,0 +1,180 @@
+package scheduler;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+
+import common_classes.Helper;
+import common_classes.Subsystem;
+
+/**
+ * A hot-standby scheduler. It follows the record stream of a running
+ * scheduler's replicator, applying every batch to a scheduler of its own that
+ * has not started, and takes over the scheduler port when the heartbeats stop.
+ * The elevators and floor clients keep sending to the scheduler port, so they
+ * re-attach by themselves once the standby is bound to it.
+ *
+ * @see SchedulerReplicator
+ */
+public class SchedulerStandby extends Subsystem {
+
+	// the longest the standby waits for a frame before the scheduler is taken as dead
+	public static final int FAILOVER_TIMEOUT = 250;
+
+	// the longest the standby waits for the scheduler to start, and for its port to be released
+	private static final int BIND_TIMEOUT = 5000;
+
+	private final Scheduler scheduler;
+	private final SchedulerJournal journal;
+
+	// the scheduler port, bound once the scheduler is taken as dead
+	private DatagramSocket schedulerSocket;
+
+	// the time the last frame arrived
+	private long lastFrameNanos;
+	private long failoverNanos = 0;
+	private int frames = 0;
+
+	/**
+	 * Creates a standby that keeps the state of the scheduler it follows in a
+	 * scheduler of its own
+	 *
+	 * @param scheduler a scheduler that has not started
+	 */
+	public SchedulerStandby(Scheduler scheduler) {
+		super();
+		this.scheduler = scheduler;
+		this.journal = SchedulerJournal.withoutFile(scheduler);
+	}
+
+	/**
+	 * Follows the record stream of a scheduler until it stops
+	 *
+	 * @param port the replication port of the scheduler
+	 * @return true if the scheduler died and the standby should take over, false
+	 *         if it shut down cleanly or could not be reached
+	 */
+	public boolean follow(int port) {
+		try (Socket socket = connect(port)) {
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(FAILOVER_TIMEOUT);
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			System.out.println("SCHEDULER STANDBY: following the scheduler on port " + port);
+			lastFrameNanos = System.nanoTime();
+			while (true) {
+				byte type = in.readByte();
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				lastFrameNanos = System.nanoTime();
+				frames++;
+				if (type == SchedulerReplicator.SHUTDOWN) {
+					System.out.println("SCHEDULER STANDBY: scheduler shut down");
+					return false;
+				} else if (type == SchedulerReplicator.RECORDS) {
+					journal.applyRecords(ByteBuffer.wrap(data));
+				}
+			}
+		} catch (SocketTimeoutException e) {
+			System.out.println("SCHEDULER STANDBY: no heartbeat for " + FAILOVER_TIMEOUT + " ms");
+		} catch (IOException e) {
+			if (lastFrameNanos == 0) {
+				System.out.println("SCHEDULER STANDBY: no scheduler on port " + port);
+				return false;
+			}
+			System.out.println("SCHEDULER STANDBY: scheduler connection lost");
+		}
+		return true;
+	}
+
+	/**
+	 * Connects to the replication port, waiting for a scheduler that is starting
+	 */
+	private Socket connect(int port) throws IOException {
+		long deadline = System.currentTimeMillis() + BIND_TIMEOUT;
+		while (true) {
+			try {
+				return new Socket(InetAddress.getLoopbackAddress(), port);
+			} catch (ConnectException e) {
+				if (System.currentTimeMillis() >= deadline)
+					throw e;
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException ie) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Binds the scheduler port, waiting for the dead scheduler's process to
+	 * release it. The socket is kept for the scheduler that takes over, so no other
+	 * process can bind the port in between.
+	 *
+	 * @return true if the port is bound, false if the takeover has to be given up
+	 */
+	public boolean claimSchedulerPort() {
+		long deadline = System.currentTimeMillis() + BIND_TIMEOUT;
+		while (true) {
+			try {
+				schedulerSocket = new DatagramSocket(Helper.SCHEDULER_PORT);
+				return true;
+			} catch (BindException e) {
+				if (System.currentTimeMillis() >= deadline) {
+					System.out.println("SCHEDULER STANDBY: scheduler port still in use, giving up the takeover");
+					return false;
+				}
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException ie) {
+					System.out.println("SCHEDULER STANDBY: interrupted, giving up the takeover");
+					return false;
+				}
+			} catch (SocketException e) {
+				e.printStackTrace();
+				System.out.println("SCHEDULER STANDBY: cannot bind the scheduler port, giving up the takeover");
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Takes over from the dead scheduler: runs the scheduler on the claimed
+	 * scheduler port with the state that was streamed to the standby. Every
+	 * elevator is resynced first, since the last batch may not have reached the
+	 * standby. Returns when the scheduler terminates.
+	 *
+	 * @see #claimSchedulerPort()
+	 */
+	public void takeOver() {
+		scheduler.setJournal(journal);
+		scheduler.resyncElevators();
+		scheduler.startMessageReceiver(schedulerSocket);
+
+		failoverNanos = System.nanoTime() - lastFrameNanos;
+		System.out.printf("SCHEDULER STANDBY: took over %.1f ms after the last frame with %d elevators and %d waiting requests%n",
+				failoverNanos / 1e6, scheduler.getElevatorPorts().size(), scheduler.getWaitlist().size());
+		scheduler.run();
+		closeSockets();
+	}
+
+	/* Getters */
+	public SchedulerJournal getJournal() {
+		return journal;
+	}
+
+	public long getFailoverNanos() {
+		return failoverNanos;
+	}
+
+	public int getFrames() {
+		return frames;
+	}
+}
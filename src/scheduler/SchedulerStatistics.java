@@ -0,0 +1,278 @@
+package scheduler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import messages.FloorRequest;
+import scheduler.SchedulerMessageReceiver.Lane;
+
+/**
+ * Collects the performance measurements of a scheduler run: the wait time
+ * (arrival to pickup) and ride time (pickup to drop off) of every passenger,
+ * and the number, CPU time and allocation of the messages the scheduler
+ * handled. All times are in real nanoseconds.
+ *
+ * Only the scheduler thread updates the statistics.
+ */
+public class SchedulerStatistics {
+
+	// the largest message header that is counted separately
+	private static final int MAX_HEADER = 15;
+
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	// the time each request arrived at and was picked up at
+	private final Map<FloorRequest, Long> arrivalTimes = new IdentityHashMap<>();
+	private final Map<FloorRequest, Long> pickupTimes = new IdentityHashMap<>();
+
+	private final List<Long> waitTimes = new ArrayList<>();
+	private final List<Long> rideTimes = new ArrayList<>();
+
+	// the number of messages handled by header
+	private final long[] messageCounts = new long[MAX_HEADER + 1];
+	private long totalMessages = 0;
+
+	private long cpuNanos = 0;
+	private long allocatedBytes = 0;
+
+	// the measurements at the start of the message being handled
+	private long messageStartCpu;
+	private long messageStartAllocated;
+
+	private final long startTime = System.nanoTime();
+
+	// the number of stops of every finished round trip
+	private final List<Integer> roundTripStops = new ArrayList<>();
+
+	// the number of times an idle elevator was sent to park at a floor
+	private long parkingMoves = 0;
+
+	// the number of elevators taken out of service for going silent
+	private long silencedElevators = 0;
+
+	// the most messages that waited in each lane of the inbox at once
+	private final Map<Lane, Integer> peakLaneDepths = new EnumMap<>(Lane.class);
+
+	/**
+	 * Records that a request arrived at the scheduler
+	 *
+	 * @param fr the floor request
+	 */
+	public void requestArrived(FloorRequest fr) {
+		arrivalTimes.put(fr, System.nanoTime());
+	}
+
+	/**
+	 * Records that the passenger of a request got on an elevator
+	 *
+	 * @param fr the floor request
+	 */
+	public void passengerPickedUp(FloorRequest fr) {
+		long now = System.nanoTime();
+		Long arrival = arrivalTimes.remove(fr);
+		if (arrival != null) {
+			waitTimes.add(now - arrival);
+			pickupTimes.put(fr, now);
+		}
+	}
+
+	/**
+	 * Records that the passenger of a request got off an elevator
+	 *
+	 * @param fr the floor request
+	 */
+	public void passengerDroppedOff(FloorRequest fr) {
+		Long pickup = pickupTimes.remove(fr);
+		if (pickup != null)
+			rideTimes.add(System.nanoTime() - pickup);
+	}
+
+	/**
+	 * Records that an elevator finished a round trip and went idle
+	 *
+	 * @param stops the number of floors the elevator stopped at for passengers
+	 */
+	public void roundTripCompleted(int stops) {
+		roundTripStops.add(stops);
+	}
+
+	/**
+	 * Records that an idle elevator was sent to park at a floor
+	 */
+	public void parkingMoveStarted() {
+		parkingMoves++;
+	}
+
+	public long getParkingMoves() {
+		return parkingMoves;
+	}
+
+	/**
+	 * Records that an elevator was taken out of service for going silent
+	 */
+	public void elevatorSilenced() {
+		silencedElevators++;
+	}
+
+	public long getSilencedElevators() {
+		return silencedElevators;
+	}
+
+	/**
+	 * Records the most messages that waited in a lane of the inbox at once
+	 *
+	 * @param lane  the lane
+	 * @param depth the peak depth
+	 */
+	public void setPeakLaneDepth(Lane lane, int depth) {
+		peakLaneDepths.put(lane, depth);
+	}
+
+	public int getPeakLaneDepth(Lane lane) {
+		return peakLaneDepths.getOrDefault(lane, 0);
+	}
+
+	/**
+	 * Combines the statistics of the shards of a sharded scheduler. Counts and
+	 * times are added up and the peak lane depths are the highest of any shard.
+	 *
+	 * @param shards the statistics of each shard, which have stopped changing
+	 * @return the statistics of the whole scheduler
+	 */
+	public static SchedulerStatistics combine(List<SchedulerStatistics> shards) {
+		SchedulerStatistics combined = new SchedulerStatistics();
+		for (SchedulerStatistics shard : shards) {
+			combined.waitTimes.addAll(shard.waitTimes);
+			combined.rideTimes.addAll(shard.rideTimes);
+			for (int header = 0; header <= MAX_HEADER; header++)
+				combined.messageCounts[header] += shard.messageCounts[header];
+			combined.totalMessages += shard.totalMessages;
+			combined.cpuNanos += shard.cpuNanos;
+			combined.allocatedBytes += shard.allocatedBytes;
+			combined.roundTripStops.addAll(shard.roundTripStops);
+			combined.parkingMoves += shard.parkingMoves;
+			combined.silencedElevators += shard.silencedElevators;
+			for (Lane lane : Lane.values())
+				combined.peakLaneDepths.put(lane, Math.max(combined.getPeakLaneDepth(lane), shard.getPeakLaneDepth(lane)));
+		}
+		return combined;
+	}
+
+	/**
+	 * Gets the average number of stops per round trip
+	 *
+	 * @return the average, 0 if no round trip has finished
+	 */
+	public double getAverageStopsPerRoundTrip() {
+		if (roundTripStops.isEmpty())
+			return 0;
+		long total = 0;
+		for (int stops : roundTripStops)
+			total += stops;
+		return (double) total / roundTripStops.size();
+	}
+
+	public int getRoundTrips() {
+		return roundTripStops.size();
+	}
+
+	/**
+	 * Takes the CPU time and allocation of the scheduler thread before a message
+	 * is handled
+	 */
+	public void startMessage() {
+		messageStartCpu = threadCpuTime();
+		messageStartAllocated = threadAllocatedBytes();
+	}
+
+	/**
+	 * Adds the CPU time and allocation used since startMessage to the totals
+	 *
+	 * @param header the header of the message that was handled
+	 */
+	public void endMessage(int header) {
+		cpuNanos += threadCpuTime() - messageStartCpu;
+		allocatedBytes += threadAllocatedBytes() - messageStartAllocated;
+		if (header >= 0 && header <= MAX_HEADER)
+			messageCounts[header]++;
+		totalMessages++;
+	}
+
+	private long threadCpuTime() {
+		return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : 0;
+	}
+
+	private long threadAllocatedBytes() {
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+			if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled())
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets a percentile of a list of times
+	 *
+	 * @param times      the times
+	 * @param percentile the percentile between 0 and 100
+	 * @return the time at the percentile, 0 if there are no times
+	 */
+	public static long percentile(List<Long> times, double percentile) {
+		if (times.isEmpty())
+			return 0;
+		List<Long> sorted = new ArrayList<>(times);
+		Collections.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+	}
+
+	/**
+	 * Gets the average of a list of times
+	 *
+	 * @param times the times
+	 * @return the average, 0 if there are no times
+	 */
+	public static double average(List<Long> times) {
+		return times.stream().mapToLong(Long::longValue).average().orElse(0);
+	}
+
+	/* Getters */
+	public List<Long> getWaitTimes() {
+		return waitTimes;
+	}
+
+	public List<Long> getRideTimes() {
+		return rideTimes;
+	}
+
+	public int getCompletedRequests() {
+		return rideTimes.size();
+	}
+
+	public long getMessageCount(int header) {
+		return header >= 0 && header <= MAX_HEADER ? messageCounts[header] : 0;
+	}
+
+	public long getTotalMessages() {
+		return totalMessages;
+	}
+
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+}
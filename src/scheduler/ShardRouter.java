@@ -0,0 +1,275 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import common_classes.Helper;
+import common_classes.ServiceZone;
+import elevator_subsystem.Status;
+import messages.ElevatorMessage;
+import messages.FloorRequest;
+import messages.Message;
+import messages.Register;
+import messages.StateDump;
+import messages.ZoneMessage;
+
+/**
+ * The receiver on the scheduler port of a sharded scheduler. Each shard is a
+ * scheduler with its own event loop that owns a bank of cars and a range of
+ * floors, and the router puts every message that arrives in the inbox of the
+ * shard it belongs to:
+ *
+ * <ul>
+ * <li>the messages of a car go to the shard that owns the car, which is the
+ * shard whose floors its zone serves the most of when it first reports, or the
+ * shard with the fewest cars</li>
+ * <li>a floor request goes to the shard that owns its source floor, unless no
+ * car of that shard serves the trip, or the shard is saturated and another
+ * shard that serves the trip has a shorter backlog per car</li>
+ * <li>floor client registrations and terminates go to every shard</li>
+ * </ul>
+ *
+ * Only the router thread routes, so the router's maps are not shared.
+ */
+public class ShardRouter extends SchedulerMessageReceiver {
+
+	// the waiting requests per car at which a shard is saturated and its floor requests are rebalanced
+	public static final int SATURATION = 2;
+
+	// the number of recent requests whose shard is remembered, so a retransmitted request goes to the same shard
+	private static final int RECENT_REQUESTS = 1024;
+
+	private final int numFloors;
+	private final List<Scheduler> shards = new ArrayList<>();
+	private final List<SchedulerMessageReceiver> inboxes = new ArrayList<>();
+
+	// the shard of every car that reported, and the zone of every car that has not broken
+	private final Map<Integer, Integer> carShards = new HashMap<>();
+	private final Map<Integer, ServiceZone> carZones = new HashMap<>();
+
+	// the shard each recent request went to, by client and request ID
+	private final Map<Long, Integer> requestShards = new LinkedHashMap<Long, Integer>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+			return size() > RECENT_REQUESTS;
+		}
+	};
+
+	// the number of floor requests sent to a shard other than the one owning their floor
+	private volatile long rebalancedRequests = 0;
+
+	/**
+	 * Creates a router for the floors of a building, which are split evenly
+	 * between the shards
+	 *
+	 * @param numFloors the number of floors
+	 */
+	public ShardRouter(int numFloors) {
+		super();
+		this.numFloors = numFloors;
+	}
+
+	/**
+	 * Adds a shard, which takes its messages from an inbox the router fills.
+	 * Shards are added before the router starts.
+	 *
+	 * @param scheduler a scheduler that has not started
+	 */
+	public void addShard(Scheduler scheduler) {
+		SchedulerMessageReceiver inbox = new SchedulerMessageReceiver(this);
+		scheduler.setShardInbox(inbox, shards.isEmpty());
+		shards.add(scheduler);
+		inboxes.add(inbox);
+	}
+
+	/**
+	 * Puts a message in the inbox of the shard it belongs to
+	 */
+	@Override
+	public void putMessage(Message message) {
+		switch (message.getHeader()) {
+		case Helper.FLOOR_REQUEST_MESSAGE:
+			inboxes.get(getShard((FloorRequest) message)).putMessage(message);
+			break;
+		case Helper.ELEVATOR_STATE_MESSAGE:
+			ElevatorMessage em = (ElevatorMessage) message;
+			inboxes.get(getCarShard(em.getId(), null)).putMessage(message);
+			if (em.getStatus() == Status.BROKEN)
+				carZones.remove(em.getId());
+			break;
+		case Helper.REGISTER_MESSAGE:
+			Register register = (Register) message;
+			inboxes.get(getCarShard(register.getID(), register.getZone())).putMessage(message);
+			carZones.put(register.getID(), register.getZone());
+			break;
+		case Helper.STATE_DUMP_MESSAGE:
+			Register dumped = ((StateDump) message).getRegister();
+			inboxes.get(getCarShard(dumped.getID(), dumped.getZone())).putMessage(message);
+			carZones.put(dumped.getID(), dumped.getZone());
+			break;
+		case Helper.ZONE_MESSAGE:
+			ZoneMessage zm = (ZoneMessage) message;
+			inboxes.get(getCarShard(zm.getID(), zm.getZone())).putMessage(message);
+			if (carZones.containsKey(zm.getID()))
+				carZones.put(zm.getID(), zm.getZone());
+			break;
+		case Helper.FLOOR_REGISTER_MESSAGE:
+		case Helper.TERMINATE:
+			for (SchedulerMessageReceiver inbox : inboxes)
+				inbox.putMessage(message);
+			break;
+		default:
+			inboxes.get(0).putMessage(message);
+		}
+	}
+
+	/**
+	 * Gets the shard of a car, giving a car that has not reported before to the
+	 * shard whose floors its zone serves the most of, or the one with the fewest
+	 * cars if the zone serves them alike
+	 *
+	 * @param id   the car
+	 * @param zone the zone of the car, null if it is not known
+	 * @return the shard
+	 */
+	int getCarShard(int id, ServiceZone zone) {
+		Integer shard = carShards.get(id);
+		if (shard != null)
+			return shard;
+
+		int[] cars = new int[shards.size()];
+		for (int s : carShards.values())
+			cars[s]++;
+		int best = 0;
+		int bestServed = -1;
+		for (int s = 0; s < shards.size(); s++) {
+			int served = 0;
+			if (zone != null) {
+				for (int floor = getLowestFloor(s); floor <= getHighestFloor(s); floor++) {
+					if (zone.serves(floor))
+						served++;
+				}
+			}
+			if (served > bestServed || (served == bestServed && cars[s] < cars[best])) {
+				best = s;
+				bestServed = served;
+			}
+		}
+		carShards.put(id, best);
+		System.out.println("SCHEDULER ROUTER: Elevator-" + id + " belongs to shard " + best);
+		return best;
+	}
+
+	/**
+	 * Gets the shard a floor request goes to. A retransmitted request goes where
+	 * it went the first time, so the shard that has it acknowledges it.
+	 *
+	 * @param fr the floor request
+	 * @return the shard
+	 */
+	int getShard(FloorRequest fr) {
+		long key = ((long) fr.getClientId() << 32) | (fr.getRequestId() & 0xFFFFFFFFL);
+		if (fr.getRequestId() != 0 && requestShards.containsKey(key))
+			return requestShards.get(key);
+
+		int home = getFloorShard(fr.getSourceFloor());
+		int shard = home;
+		if (!serves(home, fr) || isSaturated(home)) {
+			// the eligible shard with the shortest backlog per car
+			int best = -1;
+			for (int s = 0; s < shards.size(); s++) {
+				if (s != home && serves(s, fr) && (best == -1 || getLoad(s) < getLoad(best)))
+					best = s;
+			}
+			if (best == -1 && !hasCars(home)) {
+				// no car serves the trip, so it goes to a shard with cars, which finishes without it
+				for (int s = 0; s < shards.size(); s++) {
+					if (hasCars(s) && (best == -1 || getLoad(s) < getLoad(best)))
+						best = s;
+				}
+			}
+			if (best != -1 && (!serves(home, fr) || getLoad(best) < getLoad(home))) {
+				shard = best;
+				rebalancedRequests++;
+				System.out.println("SCHEDULER ROUTER: Sending " + fr + " to shard " + shard + " instead of shard " + home);
+			}
+		}
+		if (fr.getRequestId() != 0)
+			requestShards.put(key, shard);
+		return shard;
+	}
+
+	/**
+	 * Gets the shard that owns a floor. Floors outside the building belong to the
+	 * nearest shard.
+	 */
+	int getFloorShard(int floor) {
+		int shard = (int) ((long) (floor - 1) * shards.size() / numFloors);
+		return Math.max(0, Math.min(shards.size() - 1, shard));
+	}
+
+	private int getLowestFloor(int shard) {
+		return (int) ((long) shard * numFloors / shards.size()) + 1;
+	}
+
+	private int getHighestFloor(int shard) {
+		return (int) ((long) (shard + 1) * numFloors / shards.size());
+	}
+
+	/**
+	 * Checks if a shard is running and has a working car that serves both floors
+	 * of a trip
+	 */
+	private boolean serves(int shard, FloorRequest fr) {
+		if (shards.get(shard).isStopped())
+			return false;
+		for (Map.Entry<Integer, ServiceZone> car : carZones.entrySet()) {
+			ServiceZone zone = car.getValue();
+			if (carShards.get(car.getKey()) == shard && zone.serves(fr.getSourceFloor())
+					&& zone.serves(fr.getDestinationFloor()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the requests waiting in a shard per working car
+	 */
+	private double getLoad(int shard) {
+		int cars = 0;
+		for (int id : carZones.keySet()) {
+			if (carShards.get(id) == shard)
+				cars++;
+		}
+		int waiting = shards.get(shard).getBacklog() + inboxes.get(shard).getDepth(Lane.HALL_CALLS);
+		return cars == 0 ? Double.MAX_VALUE : (double) waiting / cars;
+	}
+
+	/**
+	 * Checks if a shard is running and has a working car. A shard without cars
+	 * never finishes while a request waits in it.
+	 */
+	private boolean hasCars(int shard) {
+		return !shards.get(shard).isStopped() && carZones.keySet().stream().anyMatch(id -> carShards.get(id) == shard);
+	}
+
+	private boolean isSaturated(int shard) {
+		return getLoad(shard) >= SATURATION;
+	}
+
+	/* Getters */
+	public List<Scheduler> getShards() {
+		return shards;
+	}
+
+	public SchedulerMessageReceiver getInbox(int shard) {
+		return inboxes.get(shard);
+	}
+
+	public long getRebalancedRequests() {
+		return rebalancedRequests;
+	}
+}
@@ -0,0 +1,101 @@
+package scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A scheduler split into shards that dispatch on their own threads. Each shard
+ * is a scheduler that owns a bank of cars and a range of floors, with its own
+ * maps and event loop, and a router on the scheduler port hands each shard its
+ * messages, so dispatch for a large building is spread over the cores.
+ *
+ * A car is only dispatched by its own shard, so a passenger is carried by a car
+ * of the shard their request went to. The router sends a request to another
+ * shard when no car of the shard owning its floor serves the trip, or when that
+ * shard is saturated.
+ *
+ * @see ShardRouter
+ */
+public class ShardedScheduler implements Runnable {
+
+	private final ShardRouter router;
+
+	/**
+	 * Creates a sharded scheduler
+	 *
+	 * @param shards    the shards, schedulers that have not started
+	 * @param numFloors the number of floors, which are split evenly between the
+	 *                  shards
+	 */
+	public ShardedScheduler(List<Scheduler> shards, int numFloors) {
+		router = new ShardRouter(numFloors);
+		for (Scheduler shard : shards)
+			router.addShard(shard);
+	}
+
+	/**
+	 * Runs every shard on its own thread and routes the messages on the scheduler
+	 * port to them, until all shards have terminated
+	 */
+	@Override
+	public void run() {
+		System.out.println("SCHEDULER: STARTED " + router.getShards().size() + " shards");
+		Thread routerThread = new Thread(router, "SCHEDULER ROUTER");
+		routerThread.start();
+
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < router.getShards().size(); i++) {
+			Thread thread = new Thread(router.getShards().get(i)::run, "SCHEDULER SHARD-" + i);
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+
+		System.out.println("SCHEDULER: Routed " + router.getRebalancedRequests()
+				+ " floor requests to a shard other than their floor's");
+		router.closeSockets();
+		try {
+			routerThread.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets the statistics of every shard combined
+	 *
+	 * @return the statistics
+	 */
+	public SchedulerStatistics getStatistics() {
+		List<SchedulerStatistics> statistics = new ArrayList<>();
+		for (Scheduler shard : router.getShards())
+			statistics.add(shard.getStatistics());
+		return SchedulerStatistics.combine(statistics);
+	}
+
+	/**
+	 * Gets the hall calls of every shard
+	 *
+	 * @return the hall call registers
+	 */
+	public List<HallCallRegister> getHallCalls() {
+		List<HallCallRegister> hallCalls = new ArrayList<>();
+		for (Scheduler shard : router.getShards())
+			hallCalls.add(shard.getHallCalls());
+		return hallCalls;
+	}
+
+	public List<Scheduler> getShards() {
+		return router.getShards();
+	}
+
+	public ShardRouter getRouter() {
+		return router;
+	}
+}
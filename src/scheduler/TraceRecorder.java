@@ -0,0 +1,150 @@
+package scheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import common_classes.BinaryTraceFormat;
+import messages.FloorRequest;
+
+/**
+ * Records the floor requests that arrive at the scheduler in the binary trace
+ * format, so live traffic can be replayed later by the floor subsystem.
+ * Requests are buffered into blocks; a block is written when it is full or
+ * when it has been open for a minute, even if no request follows, so little is
+ * lost if the scheduler dies.
+ *
+ * @see BinaryTraceFormat
+ */
+public class TraceRecorder {
+
+	// the longest a block is kept in memory before it is written
+	private static final long FLUSH_INTERVAL = 60000;
+
+	private final FileChannel channel;
+
+	// the records of the block being filled
+	private final ByteBuffer block = ByteBuffer
+			.allocate(BinaryTraceFormat.RECORDS_PER_BLOCK * BinaryTraceFormat.MAX_RECORD_LENGTH);
+	private int blockRecords = 0;
+	private long blockFirstTime;
+	private long previousTime;
+
+	// the first timestamp, offset and record count of each written block
+	private final List<long[]> index = new ArrayList<>();
+
+	/**
+	 * Creates a trace file, replacing any file at the path
+	 *
+	 * @param path the path of the trace
+	 * @throws IOException if the file cannot be created
+	 */
+	public TraceRecorder(String path) throws IOException {
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		ByteBuffer header = ByteBuffer.allocate(BinaryTraceFormat.HEADER_LENGTH);
+		header.putInt(BinaryTraceFormat.MAGIC);
+		header.put(BinaryTraceFormat.VERSION);
+		header.flip();
+		write(header);
+	}
+
+	/**
+	 * Records the arrival of a floor request
+	 *
+	 * @param fr   the floor request
+	 * @param time the epoch time in milliseconds the request arrived at
+	 */
+	public void record(FloorRequest fr, long time) {
+		if (blockRecords == 0) {
+			blockFirstTime = time;
+			previousTime = time;
+		}
+
+		BinaryTraceFormat.putVarLong(block, BinaryTraceFormat.zigzag(time - previousTime));
+		BinaryTraceFormat.putVarLong(block, BinaryTraceFormat.zigzag(fr.getSourceFloor()));
+		BinaryTraceFormat.putVarLong(block, BinaryTraceFormat.zigzag(fr.getDestinationFloor()));
+		BinaryTraceFormat.putVarLong(block, fr.getRequestId() & 0xFFFFFFFFL);
+		previousTime = time;
+		blockRecords++;
+
+		if (blockRecords == BinaryTraceFormat.RECORDS_PER_BLOCK)
+			flushBlock();
+		else
+			flushIfDue(time);
+	}
+
+	/**
+	 * Writes the block being filled if it has been open for the flush interval.
+	 * The scheduler calls this after every batch, including the empty batches of
+	 * a quiet period.
+	 *
+	 * @param now the epoch time in milliseconds
+	 */
+	public void flushIfDue(long now) {
+		if (blockRecords > 0 && now - blockFirstTime >= FLUSH_INTERVAL)
+			flushBlock();
+	}
+
+	/**
+	 * Writes the block being filled to the file
+	 */
+	private void flushBlock() {
+		if (blockRecords == 0)
+			return;
+
+		try {
+			long offset = channel.position();
+			block.flip();
+
+			ByteBuffer header = ByteBuffer.allocate(BinaryTraceFormat.BLOCK_HEADER_LENGTH);
+			header.putInt(block.remaining());
+			header.putInt(blockRecords);
+			header.putLong(blockFirstTime);
+			header.flip();
+			write(header);
+			write(block);
+
+			index.add(new long[] { blockFirstTime, offset, blockRecords });
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		block.clear();
+		blockRecords = 0;
+	}
+
+	/**
+	 * Writes the last block, the block index and the footer, and closes the file
+	 */
+	public void close() {
+		flushBlock();
+		try {
+			long indexOffset = channel.position();
+			ByteBuffer bb = ByteBuffer
+					.allocate(index.size() * BinaryTraceFormat.INDEX_ENTRY_LENGTH + BinaryTraceFormat.FOOTER_LENGTH);
+			for (long[] entry : index) {
+				bb.putLong(entry[0]);
+				bb.putLong(entry[1]);
+				bb.putInt((int) entry[2]);
+			}
+			bb.putLong(indexOffset);
+			bb.putInt(index.size());
+			bb.putInt(BinaryTraceFormat.MAGIC);
+			bb.flip();
+			write(bb);
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void write(ByteBuffer bb) throws IOException {
+		while (bb.hasRemaining())
+			channel.write(bb);
+	}
+}
@@ -0,0 +1,306 @@
+package views;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.BitSet;
+import java.util.Map;
+
+import javax.swing.JPanel;
+
+import elevator_subsystem.DoorState;
+import elevator_subsystem.ElevatorButton;
+import elevator_subsystem.MotorState;
+import elevator_subsystem.Status;
+
+/**
+ * A single component view of the whole building. Instead of building one panel
+ * per elevator and one panel per button, the shafts, elevator positions and lit
+ * destination buttons are painted directly from a snapshot of the elevator
+ * states. Only the cells inside the clip (the visible region when placed in a
+ * scroll pane) are painted, and an update only repaints the rows of the shaft
+ * that changed.
+ *
+ */
+public class BuildingView extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int SHAFT_WIDTH = 28;
+	private static final int FLOOR_HEIGHT = 14;
+	private static final int HEADER_HEIGHT = 18;
+	private static final int LABEL_WIDTH = 32;
+
+	private static final Color SHAFT_COLOR = new Color(40, 40, 40);
+	private static final Color GRID_COLOR = new Color(70, 70, 70);
+
+	private final int numElevators;
+	private final int numFloors;
+
+	// the state snapshot of every elevator, guarded by this
+	private final int[] floors;
+	private final MotorState[] motorStates;
+	private final DoorState[] doorStates;
+	private final Status[] statuses;
+	private final boolean[] terminated;
+	private final BitSet[] litButtons;
+
+	/**
+	 * Constructs a view of numElevators shafts that each span numFloors floors
+	 *
+	 * @param numElevators the number of elevators in the building
+	 * @param numFloors    the number of floors in the building
+	 */
+	public BuildingView(int numElevators, int numFloors) {
+		this.numElevators = numElevators;
+		this.numFloors = numFloors;
+
+		floors = new int[numElevators];
+		motorStates = new MotorState[numElevators];
+		doorStates = new DoorState[numElevators];
+		statuses = new Status[numElevators];
+		terminated = new boolean[numElevators];
+		litButtons = new BitSet[numElevators];
+		for (int i = 0; i < numElevators; i++) {
+			floors[i] = 1;
+			motorStates[i] = MotorState.STOPPED;
+			doorStates[i] = DoorState.CLOSED;
+			statuses[i] = Status.ARRIVED;
+			litButtons[i] = new BitSet(numFloors + 1);
+		}
+
+		setBackground(Color.BLACK);
+		setOpaque(true);
+		setFont(new Font(Font.MONOSPACED, Font.PLAIN, 10));
+		setPreferredSize(new Dimension(LABEL_WIDTH + numElevators * SHAFT_WIDTH, HEADER_HEIGHT + numFloors * FLOOR_HEIGHT));
+	}
+
+	/**
+	 * Gets the display that an elevator subsystem reports to
+	 *
+	 * @param id the ID of the elevator
+	 * @return the display of the elevator's shaft
+	 */
+	public ElevatorDisplay getElevatorDisplay(int id) {
+		return new ShaftDisplay(id);
+	}
+
+	/**
+	 * Paints the header, floor labels and every shaft cell that intersects the clip
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		super.paintComponent(g);
+
+		Rectangle clip = g.getClipBounds();
+		if (clip == null)
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+		int firstElevator = Math.max(0, (clip.x - LABEL_WIDTH) / SHAFT_WIDTH);
+		int lastElevator = Math.min(numElevators - 1, (clip.x + clip.width - LABEL_WIDTH) / SHAFT_WIDTH);
+		int firstRow = Math.max(0, (clip.y - HEADER_HEIGHT) / FLOOR_HEIGHT);
+		int lastRow = Math.min(numFloors - 1, (clip.y + clip.height - HEADER_HEIGHT) / FLOOR_HEIGHT);
+
+		// copy the visible part of the state so painting does not hold the lock
+		int count = Math.max(0, lastElevator - firstElevator + 1);
+		int[] floorSnapshot = new int[count];
+		MotorState[] motorSnapshot = new MotorState[count];
+		DoorState[] doorSnapshot = new DoorState[count];
+		Status[] statusSnapshot = new Status[count];
+		boolean[] terminatedSnapshot = new boolean[count];
+		BitSet[] buttonSnapshot = new BitSet[count];
+		synchronized (this) {
+			for (int i = 0; i < count; i++) {
+				int id = firstElevator + i;
+				floorSnapshot[i] = floors[id];
+				motorSnapshot[i] = motorStates[id];
+				doorSnapshot[i] = doorStates[id];
+				statusSnapshot[i] = statuses[id];
+				terminatedSnapshot[i] = terminated[id];
+				buttonSnapshot[i] = (BitSet) litButtons[id].clone();
+			}
+		}
+
+		// floor labels
+		g.setColor(Color.WHITE);
+		if (clip.x < LABEL_WIDTH) {
+			for (int row = firstRow; row <= lastRow; row++) {
+				g.drawString(Integer.toString(rowToFloor(row)), 2, rowToY(row) + FLOOR_HEIGHT - 3);
+			}
+		}
+
+		for (int i = 0; i < count; i++) {
+			int id = firstElevator + i;
+			int x = LABEL_WIDTH + id * SHAFT_WIDTH;
+
+			// header
+			if (clip.y < HEADER_HEIGHT) {
+				g.setColor(headerColor(statusSnapshot[i], terminatedSnapshot[i]));
+				g.fillRect(x, 0, SHAFT_WIDTH - 1, HEADER_HEIGHT - 1);
+				g.setColor(Color.BLACK);
+				g.drawString(Integer.toString(id), x + 3, HEADER_HEIGHT - 5);
+			}
+
+			for (int row = firstRow; row <= lastRow; row++) {
+				int floor = rowToFloor(row);
+				int y = rowToY(row);
+
+				if (floor == floorSnapshot[i]) {
+					paintElevator(g, x, y, motorSnapshot[i], doorSnapshot[i], statusSnapshot[i]);
+				} else {
+					g.setColor(buttonSnapshot[i].get(floor) ? Color.ORANGE : SHAFT_COLOR);
+					g.fillRect(x, y, SHAFT_WIDTH - 1, FLOOR_HEIGHT - 1);
+				}
+			}
+
+			g.setColor(GRID_COLOR);
+			g.drawLine(x + SHAFT_WIDTH - 1, Math.max(clip.y, HEADER_HEIGHT), x + SHAFT_WIDTH - 1, clip.y + clip.height);
+		}
+	}
+
+	/**
+	 * Paints the elevator car in the cell at (x, y)
+	 */
+	private void paintElevator(Graphics g, int x, int y, MotorState ms, DoorState ds, Status status) {
+		g.setColor(status == Status.BROKEN ? Color.RED : Color.GREEN);
+		g.fillRect(x, y, SHAFT_WIDTH - 1, FLOOR_HEIGHT - 1);
+
+		g.setColor(Color.BLACK);
+		if (ds == DoorState.OPEN)
+			g.drawRect(x + 2, y + 2, SHAFT_WIDTH - 6, FLOOR_HEIGHT - 6);
+
+		int cx = x + SHAFT_WIDTH / 2;
+		int top = y + 3;
+		int bottom = y + FLOOR_HEIGHT - 4;
+		switch (ms) {
+		case UP:
+			g.fillPolygon(new int[] { cx - 4, cx, cx + 4 }, new int[] { bottom, top, bottom }, 3);
+			break;
+		case DOWN:
+			g.fillPolygon(new int[] { cx - 4, cx, cx + 4 }, new int[] { top, bottom, top }, 3);
+			break;
+		case STOPPED:
+			break;
+		}
+	}
+
+	private Color headerColor(Status status, boolean isTerminated) {
+		if (status == Status.BROKEN)
+			return Color.RED;
+		if (isTerminated)
+			return Color.GREEN;
+		return Color.WHITE;
+	}
+
+	/* Helper methods for converting between floors and pixels. The top floor is drawn first */
+	private int rowToFloor(int row) {
+		return numFloors - row;
+	}
+
+	private int rowToY(int row) {
+		return HEADER_HEIGHT + row * FLOOR_HEIGHT;
+	}
+
+	private int floorToY(int floor) {
+		return rowToY(numFloors - floor);
+	}
+
+	/**
+	 * Repaints the rows of a shaft between two floors (inclusive)
+	 */
+	private void repaintShaft(int id, int floor1, int floor2) {
+		int top = Math.max(Math.max(floor1, floor2), 1);
+		int bottom = Math.min(Math.min(floor1, floor2), numFloors);
+		if (top > numFloors)
+			top = numFloors;
+		if (bottom < 1)
+			bottom = 1;
+		repaint(LABEL_WIDTH + id * SHAFT_WIDTH, floorToY(top), SHAFT_WIDTH, (top - bottom + 1) * FLOOR_HEIGHT);
+	}
+
+	/**
+	 * Repaints the header of a shaft
+	 */
+	private void repaintHeader(int id) {
+		repaint(LABEL_WIDTH + id * SHAFT_WIDTH, 0, SHAFT_WIDTH, HEADER_HEIGHT);
+	}
+
+	/**
+	 * The display of one shaft of the building. Updates the snapshot of that
+	 * elevator and repaints only the region that changed.
+	 */
+	private class ShaftDisplay implements ElevatorDisplay {
+
+		private final int id;
+
+		private ShaftDisplay(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public void setFloor(int floor, Status status, Map<Integer, ElevatorButton> buttons) {
+			int prevFloor;
+			int lowestChange = floor, highestChange = floor;
+			boolean statusChanged;
+
+			synchronized (BuildingView.this) {
+				prevFloor = floors[id];
+				statusChanged = statuses[id] != status;
+				floors[id] = floor;
+				statuses[id] = status;
+
+				BitSet lit = litButtons[id];
+				for (ElevatorButton button : buttons.values()) {
+					int num = button.getButtonNumber();
+					if (lit.get(num) != button.isLit()) {
+						lit.set(num, button.isLit());
+						lowestChange = Math.min(lowestChange, num);
+						highestChange = Math.max(highestChange, num);
+					}
+				}
+			}
+
+			if (prevFloor != floor) {
+				lowestChange = Math.min(lowestChange, prevFloor);
+				highestChange = Math.max(highestChange, prevFloor);
+			}
+			repaintShaft(id, lowestChange, highestChange);
+			if (statusChanged)
+				repaintHeader(id);
+		}
+
+		@Override
+		public void setMotorState(MotorState ms) {
+			int floor;
+			synchronized (BuildingView.this) {
+				if (motorStates[id] == ms)
+					return;
+				motorStates[id] = ms;
+				floor = floors[id];
+			}
+			repaintShaft(id, floor, floor);
+		}
+
+		@Override
+		public void setDoorState(DoorState ds) {
+			int floor;
+			synchronized (BuildingView.this) {
+				if (doorStates[id] == ds)
+					return;
+				doorStates[id] = ds;
+				floor = floors[id];
+			}
+			repaintShaft(id, floor, floor);
+		}
+
+		@Override
+		public void terminate(int floor) {
+			synchronized (BuildingView.this) {
+				terminated[id] = true;
+			}
+			repaintHeader(id);
+		}
+	}
+}
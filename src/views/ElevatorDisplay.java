@@ -0,0 +1,45 @@
+package views;
+
+import java.util.Map;
+
+import elevator_subsystem.DoorState;
+import elevator_subsystem.ElevatorButton;
+import elevator_subsystem.MotorState;
+import elevator_subsystem.Status;
+
+/**
+ * The display that an elevator subsystem reports its elevator state to
+ *
+ */
+public interface ElevatorDisplay {
+
+	/**
+	 * Displays the current floor, status and lit buttons of the elevator
+	 *
+	 * @param floor   the current floor of the elevator
+	 * @param status  the status of the elevator
+	 * @param buttons the buttons of the elevator
+	 */
+	void setFloor(int floor, Status status, Map<Integer, ElevatorButton> buttons);
+
+	/**
+	 * Displays the motor state of the elevator
+	 *
+	 * @param ms the motor state
+	 */
+	void setMotorState(MotorState ms);
+
+	/**
+	 * Displays the door state of the elevator
+	 *
+	 * @param ds the door state
+	 */
+	void setDoorState(DoorState ds);
+
+	/**
+	 * Displays that the elevator has finished its duties
+	 *
+	 * @param floor the floor the elevator terminated at
+	 */
+	void terminate(int floor);
+}
@@ -23,7 +23,7 @@ import elevator_subsystem.ElevatorButton;
 import elevator_subsystem.MotorState;
 import elevator_subsystem.Status;
 
-public class ElevatorView extends JPanel {
+public class ElevatorView extends JPanel implements ElevatorDisplay {
 
 	private static final long serialVersionUID = 1L;
 
@@ -111,6 +111,7 @@ public class ElevatorView extends JPanel {
 	/*
 	 * Setter methods
 	 */
+	@Override
 	public void setFloor(int floor, Status status, Map<Integer, ElevatorButton> buttons) {
 		floorLabel.setText(status + (status == Status.APPROACHING ? " floor " : " at floor ") + floor);
 
@@ -134,6 +135,7 @@ public class ElevatorView extends JPanel {
 		revalidate();
 	}
 
+	@Override
 	public void setMotorState(MotorState ms) {
 		motorStateLabel.setText("" + ms);
 
@@ -157,6 +159,7 @@ public class ElevatorView extends JPanel {
 		revalidate();
 	}
 
+	@Override
 	public void setDoorState(DoorState ds) {
 		doorStateLabel.setText("" + ds);
 
@@ -179,6 +182,7 @@ public class ElevatorView extends JPanel {
 		revalidate();
 	}
 
+	@Override
 	public void terminate(int floor) {
 		idPanel.setBackground(Color.GREEN);
 		idLabel.setForeground(Color.BLACK);
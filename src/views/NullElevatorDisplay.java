@@ -0,0 +1,31 @@
+package views;
+
+import java.util.Map;
+
+import elevator_subsystem.DoorState;
+import elevator_subsystem.ElevatorButton;
+import elevator_subsystem.MotorState;
+import elevator_subsystem.Status;
+
+/**
+ * An elevator display that shows nothing, used when running without a screen
+ *
+ */
+public class NullElevatorDisplay implements ElevatorDisplay {
+
+	@Override
+	public void setFloor(int floor, Status status, Map<Integer, ElevatorButton> buttons) {
+	}
+
+	@Override
+	public void setMotorState(MotorState ms) {
+	}
+
+	@Override
+	public void setDoorState(DoorState ds) {
+	}
+
+	@Override
+	public void terminate(int floor) {
+	}
+}
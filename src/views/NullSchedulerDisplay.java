@@ -0,0 +1,22 @@
+package views;
+
+import java.util.List;
+import java.util.Map;
+
+import messages.FloorRequest;
+
+/**
+ * A scheduler display that shows nothing, used when running without a screen
+ *
+ */
+public class NullSchedulerDisplay implements SchedulerDisplay {
+
+	@Override
+	public void updateWaitlist(List<FloorRequest> list) {
+	}
+
+	@Override
+	public void updateElevators(Map<Integer, List<FloorRequest>> elevatorFloorRequestsInService,
+			Map<Integer, List<FloorRequest>> elevatorAssignedFloorRequests) {
+	}
+}
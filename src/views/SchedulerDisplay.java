@@ -0,0 +1,29 @@
+package views;
+
+import java.util.List;
+import java.util.Map;
+
+import messages.FloorRequest;
+
+/**
+ * The display that the scheduler reports its waitlist and elevator requests to
+ *
+ */
+public interface SchedulerDisplay {
+
+	/**
+	 * Displays the current waitlist
+	 *
+	 * @param list the most current representation of the waitlist
+	 */
+	void updateWaitlist(List<FloorRequest> list);
+
+	/**
+	 * Displays the requests of every elevator
+	 *
+	 * @param elevatorFloorRequestsInService the requests in service by elevator
+	 * @param elevatorAssignedFloorRequests  the requests assigned by elevator
+	 */
+	void updateElevators(Map<Integer, List<FloorRequest>> elevatorFloorRequestsInService,
+			Map<Integer, List<FloorRequest>> elevatorAssignedFloorRequests);
+}
@@ -21,7 +21,7 @@ import javax.swing.table.DefaultTableModel;
 
 import messages.FloorRequest;
 
-public class SchedulerView extends JPanel {
+public class SchedulerView extends JPanel implements SchedulerDisplay {
 
 	private static final long serialVersionUID = 1L;
 
@@ -123,6 +123,7 @@ public class SchedulerView extends JPanel {
 	 *
 	 * @param list the most current representation of the waitlist
 	 */
+	@Override
 	@SuppressWarnings("unchecked")
 	public void updateWaitlist(List<FloorRequest> list) {
 		DefaultTableModel tm = (DefaultTableModel) waitlistTable.getModel();
@@ -149,6 +150,7 @@ public class SchedulerView extends JPanel {
 		this.revalidate();
 	}
 
+	@Override
 	@SuppressWarnings("unchecked")
 	public void updateElevators(Map<Integer, List<FloorRequest>> elevatorFloorRequestsInService,
 			Map<Integer, List<FloorRequest>> elevatorAssignedFloorRequests) {
@@ -7,9 +7,11 @@ import java.awt.event.ActionListener;
 import java.io.File;
 
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 
 import elevator_subsystem.ElevatorSubsystem;
@@ -18,8 +20,12 @@ import scheduler.Scheduler;
 
 public class SystemView {
 
+	// buildings with more shaft cells than this are always shown in a building view
+	private static final int BUILDING_VIEW_THRESHOLD = 200;
+
 	JFrame frame = new JFrame("Elevators");
 	JTextField numberOfElevators, numberOfFloors, requestFile;
+	JCheckBox useBuildingView;
 
 	/**
 	 * Constructs the initial view of the System, allowing the user to configure
@@ -35,6 +41,7 @@ public class SystemView {
 		numberOfFloors.setPreferredSize(new Dimension(50, 30));
 		requestFile = new JTextField();
 		requestFile.setPreferredSize(new Dimension(50, 30));
+		useBuildingView = new JCheckBox("Show the whole building in a single view");
 
 		JButton submit = new JButton("Submit");
 		submit.addActionListener(new ActionListener() {
@@ -55,6 +62,7 @@ public class SystemView {
 		optionPanel.add(numberOfFloors);
 		optionPanel.add(new JLabel("Input path to request file (a default will be used if there is no input)"));
 		optionPanel.add(requestFile);
+		optionPanel.add(useBuildingView);
 		optionPanel.add(submit);
 
 		frame.add(optionPanel);
@@ -101,12 +109,24 @@ public class SystemView {
 		}).start();
 
 		JPanel subsystemPanel = new JPanel();
-		for (int i = 0; i < numElevators; i++) {
-			ElevatorView ev = new ElevatorView(i, numFloors);
-			subsystemPanel.add(ev);
-			ElevatorSubsystem elevatorSubsystem = new ElevatorSubsystem(i, numFloors, ev);
-			Thread elevatorSubsystemThread = new Thread(elevatorSubsystem);
-			elevatorSubsystemThread.start();
+		if (useBuildingView.isSelected() || numElevators * numFloors > BUILDING_VIEW_THRESHOLD) {
+			BuildingView bv = new BuildingView(numElevators, numFloors);
+			JScrollPane buildingScrollPane = new JScrollPane(bv);
+			buildingScrollPane.setPreferredSize(new Dimension(650, 575));
+			subsystemPanel.add(buildingScrollPane);
+			for (int i = 0; i < numElevators; i++) {
+				ElevatorSubsystem elevatorSubsystem = new ElevatorSubsystem(i, numFloors, bv.getElevatorDisplay(i));
+				Thread elevatorSubsystemThread = new Thread(elevatorSubsystem);
+				elevatorSubsystemThread.start();
+			}
+		} else {
+			for (int i = 0; i < numElevators; i++) {
+				ElevatorView ev = new ElevatorView(i, numFloors);
+				subsystemPanel.add(ev);
+				ElevatorSubsystem elevatorSubsystem = new ElevatorSubsystem(i, numFloors, ev);
+				Thread elevatorSubsystemThread = new Thread(elevatorSubsystem);
+				elevatorSubsystemThread.start();
+			}
 		}
 
 		FloorSubsystem fs = new FloorSubsystem(requestFile.getText());
@@ -1,8 +1,15 @@
 package tests;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,8 +17,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import common_classes.Helper;
+import floor_subsystem.BinaryTraceReader;
 import floor_subsystem.FloorSubsystem;
+import floor_subsystem.ReplayClock;
+import floor_subsystem.TextTraceReader;
+import floor_subsystem.TrafficGenerator;
+import floor_subsystem.TrafficGenerator.TrafficModel;
 import messages.FloorRequest;
+import scheduler.TraceRecorder;
 
 public class FloorTest {
 	FloorSubsystem floorSubsystem;
@@ -34,7 +47,148 @@ public class FloorTest {
 
 		assertEquals(expResult, actResult);
 	}
-	
-	
-	
+
+	/**
+	 * Verifies that the streaming reader parses the same timestamps as
+	 * Helper.timeStringToMilliseconds, with Windows line endings and blank lines.
+	 */
+	@Test
+	void traceReaderParsesLinesTest() throws IOException {
+		File file = File.createTempFile("trace", ".txt");
+		file.deleteOnExit();
+		try (FileWriter writer = new FileWriter(file)) {
+			writer.write("14:05:15.0 2 Up 4\r\n\r\n09:00:01.5 1 Up 12\n23:59:59.999 12 Down 1");
+		}
+
+		List<FloorRequest> actResult = new ArrayList<>();
+		TextTraceReader reader = new TextTraceReader(file.getPath());
+		while (reader.hasNext())
+			actResult.add(reader.next());
+		reader.close();
+
+		List<FloorRequest> expResult = new ArrayList<FloorRequest>();
+		expResult.add(new FloorRequest(Helper.timeStringToMilliseconds("14:05:15.0"), 2, 4));
+		expResult.add(new FloorRequest(Helper.timeStringToMilliseconds("09:00:01.5"), 1, 12));
+		expResult.add(new FloorRequest(Helper.timeStringToMilliseconds("23:59:59.999"), 12, 1));
+
+		assertEquals(expResult, actResult);
+	}
+
+	/**
+	 * Verifies that a recorded binary trace replays with times since midnight of
+	 * its first day, and that seeking skips to the first request at or after a time.
+	 */
+	@Test
+	void binaryTraceRecordAndSeekTest() throws IOException {
+		File file = File.createTempFile("trace", ".bin");
+		file.deleteOnExit();
+		long midnight = LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+		// requests more than a minute apart are written in separate blocks
+		TraceRecorder recorder = new TraceRecorder(file.getPath());
+		recorder.record(new FloorRequest(0, 1, 5), midnight + 1000);
+		recorder.record(new FloorRequest(0, 5, 1), midnight + 90000);
+		recorder.record(new FloorRequest(0, 3, 200), midnight + 200000);
+		recorder.close();
+
+		assertTrue(BinaryTraceReader.isBinaryTrace(file.getPath()));
+		List<FloorRequest> expResult = new ArrayList<FloorRequest>();
+		expResult.add(new FloorRequest(1000, 1, 5));
+		expResult.add(new FloorRequest(90000, 5, 1));
+		expResult.add(new FloorRequest(200000, 3, 200));
+		assertEquals(expResult, floorSubsystem.getFloorRequests(file.getPath()));
+
+		BinaryTraceReader reader = new BinaryTraceReader(file.getPath());
+		reader.seek(90000);
+		assertEquals(new FloorRequest(90000, 5, 1), reader.next());
+		reader.seek(90001);
+		assertEquals(new FloorRequest(200000, 3, 200), reader.next());
+		assertFalse(reader.hasNext());
+		reader.close();
+	}
+
+	/**
+	 * Verifies that a quiet recorder writes its open block once the flush interval
+	 * has passed, and that recorded request IDs are replayed.
+	 */
+	@Test
+	void binaryTraceIdleFlushTest() throws IOException {
+		File file = File.createTempFile("trace", ".bin");
+		file.deleteOnExit();
+		long midnight = LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+		TraceRecorder recorder = new TraceRecorder(file.getPath());
+		FloorRequest fr = new FloorRequest(0, 2, 7);
+		fr.setRequestId(42);
+		recorder.record(fr, midnight + 1000);
+		long length = file.length();
+		recorder.flushIfDue(midnight + 30000);
+		assertEquals(file.length(), length);
+		recorder.flushIfDue(midnight + 61000);
+		assertTrue(file.length() > length);
+		recorder.close();
+
+		BinaryTraceReader reader = new BinaryTraceReader(file.getPath());
+		FloorRequest replayed = reader.next();
+		assertEquals(replayed, new FloorRequest(1000, 2, 7));
+		assertEquals(replayed.getRequestId(), 42);
+		reader.close();
+	}
+
+	/**
+	 * Verifies that up-peak traffic mostly leaves the lobby, stays within the
+	 * building and the duration, and replays the same from a written trace.
+	 */
+	@Test
+	void trafficGeneratorUpPeakTest() throws IOException {
+		int start = Helper.timeStringToMilliseconds("08:00:00");
+		int duration = Helper.timeStringToMilliseconds("01:00:00");
+		List<FloorRequest> requests = new ArrayList<>();
+		TrafficGenerator generator = new TrafficGenerator(TrafficModel.UP_PEAK, 22, 1200, start, duration, 42);
+		while (generator.hasNext()) {
+			requests.add(generator.next());
+		}
+
+		int fromLobby = 0;
+		int prevTime = start;
+		for (FloorRequest fr : requests) {
+			assertTrue(fr.getTimestamp() >= prevTime && fr.getTimestamp() <= start + duration);
+			assertTrue(fr.getSourceFloor() >= 1 && fr.getSourceFloor() <= 22);
+			assertTrue(fr.getDestinationFloor() >= 1 && fr.getDestinationFloor() <= 22);
+			assertTrue(fr.getSourceFloor() != fr.getDestinationFloor());
+			if (fr.getSourceFloor() == 1)
+				fromLobby++;
+			prevTime = fr.getTimestamp();
+		}
+		assertTrue(requests.size() > 1000 && requests.size() < 1400);
+		assertTrue(fromLobby > requests.size() * 3 / 4);
+
+		File file = File.createTempFile("traffic", ".txt");
+		file.deleteOnExit();
+		new TrafficGenerator(TrafficModel.UP_PEAK, 22, 1200, start, duration, 42).writeTrace(file.getPath());
+		assertEquals(requests, floorSubsystem.getFloorRequests(file.getPath()));
+	}
+
+	/**
+	 * Verifies that replay deadlines are scaled by the speed and measured from the
+	 * first request, so a late send does not delay the requests after it.
+	 */
+	@Test
+	void replayClockDeadlineTest() {
+		ReplayClock clock = new ReplayClock(10);
+		long first = clock.deadlineOf(5000);
+		assertEquals(10000000L, clock.deadlineOf(5100) - first);
+
+		// the first request is sent 20 ms late, the second is still due at 10 ms
+		Helper.sleep(20);
+		clock.recordSend(first);
+		long second = clock.deadlineOf(5100);
+		clock.awaitDeadline(second);
+		clock.recordSend(second);
+		assertTrue(System.nanoTime() - first >= 20000000L);
+		assertEquals(2, clock.getSends());
+		assertTrue(clock.getMaxDriftNanos() >= 20000000L);
+
+		assertThrows(IllegalArgumentException.class, () -> new ReplayClock(2000));
+	}
 }
@@ -1,23 +1,35 @@
 package tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.net.DatagramPacket;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import common_classes.ElevatorProfile;
 import common_classes.Helper;
+import common_classes.ServiceZone;
+import common_classes.Subsystem;
+import common_classes.WireFormat;
 import elevator_subsystem.DoorState;
 import elevator_subsystem.MotorState;
 import elevator_subsystem.Status;
 import messages.ElevatorMessage;
+import messages.FloorRegister;
 import messages.FloorRequest;
 import messages.Message;
 import messages.Register;
+import messages.RequestListMessage;
 import messages.Response;
+import messages.StateDump;
 import messages.Terminate;
+import messages.ZoneMessage;
 
 /**
  * Tests message classes.
@@ -104,6 +116,104 @@ public class MessageTest {
 		assertEquals(expected, actual);
 	}
 
+	@Test
+	public void testFloorRequestWithRequestId() {
+		FloorRequest expected = new FloorRequest(1, 4, 2);
+		expected.setRequestId(300);
+
+		byte[] data = expected.getData();
+		assertEquals(11, data.length);
+
+		FloorRequest actual = (FloorRequest) FloorRequest.datagramToMessage(data);
+		assertEquals(expected, actual);
+		assertEquals(300, actual.getRequestId());
+	}
+
+	@Test
+	public void testBaselineFormatDecoded() {
+		// a floor request and an empty reply as sent before sequence numbers and the versioned format
+		byte[] request = new byte[] { Helper.FLOOR_REQUEST_MESSAGE, 0, 0, 3, (byte) 0xE8, 4, 2 };
+		byte[] reply = new byte[] { Helper.EMPTY_REPLY_MESSAGE };
+		assertFalse(WireFormat.isSequenced(request[0]) || WireFormat.isVersioned(request[0]));
+		assertFalse(WireFormat.isSequenced(reply[0]) || WireFormat.isVersioned(reply[0]));
+
+		FloorRequest actual = (FloorRequest) FloorRequest.datagramToMessage(request);
+		assertEquals(new FloorRequest(1000, 4, 2), actual);
+		assertEquals(0, actual.getRequestId());
+		assertTrue(Response.datagramToMessage(reply) instanceof Response);
+
+		// and the messages still have that layout before they are framed
+		assertTrue(Arrays.equals(request, new FloorRequest(1000, 4, 2).getData()));
+		assertTrue(Arrays.equals(reply, new Response().getData()));
+		assertTrue(WireFormat.isSequenced(Subsystem.frame(new Response(), 1)[0]));
+	}
+
+	@Test
+	public void testFloorRequestWithClientId() {
+		FloorRequest expected = new FloorRequest(1, 4, 2);
+		expected.setClientId(3);
+
+		byte[] data = expected.getData();
+		assertEquals(15, data.length);
+
+		FloorRequest actual = (FloorRequest) FloorRequest.datagramToMessage(data);
+		assertEquals(0, actual.getRequestId());
+		assertEquals(3, actual.getClientId());
+	}
+
+	@Test
+	public void testFloorRequestAboveByteFloors() {
+		FloorRequest expected = new FloorRequest(90000, 300, -4);
+		expected.setRequestId(70000);
+
+		byte[] data = expected.getData();
+		assertTrue(WireFormat.isVersioned(data[0]));
+		assertEquals(Helper.FLOOR_REQUEST_MESSAGE, WireFormat.getType(data[0]));
+
+		FloorRequest actual = (FloorRequest) FloorRequest.datagramToMessage(data);
+		assertEquals(expected, actual);
+		assertEquals(300, actual.getSourceFloor());
+		assertEquals(70000, actual.getRequestId());
+	}
+
+	@Test
+	public void testRequestListAboveByteFloors() {
+		RequestListMessage small = new RequestListMessage(Arrays.asList(new FloorRequest(0, 4, 2)));
+		assertEquals(Helper.REQUEST_LIST_MESSAGE, small.getData()[0]);
+
+		RequestListMessage expected = new RequestListMessage(
+				Arrays.asList(new FloorRequest(0, 4, 2), new FloorRequest(0, 128, 1000), new FloorRequest(0, -2, 0)));
+		byte[] data = expected.getData();
+		assertTrue(WireFormat.isVersioned(data[0]));
+		assertEquals(expected, RequestListMessage.datagramToMessage(data));
+	}
+
+	@Test
+	public void testStateDumpAboveByteFloors() {
+		Register register = new Register(2, 4000);
+		ElevatorMessage state = new ElevatorMessage(2, 150, MotorState.UP, DoorState.CLOSED, Status.APPROACHING);
+		List<FloorRequest> assigned = new ArrayList<>();
+		for (int i = 0; i < 200; i++)
+			assigned.add(new FloorRequest(0, 160, 1));
+		StateDump expected = new StateDump(register, state, Arrays.asList(new FloorRequest(0, 1, 140)), assigned);
+
+		byte[] data = expected.getData();
+		assertTrue(WireFormat.isVersioned(data[0]));
+		assertEquals(expected, StateDump.datagramToMessage(data));
+	}
+
+	@Test
+	public void testFloorRegisterDatagramToMessage() {
+		FloorRegister expected = new FloorRegister(2, 5000, 11, 20);
+
+		byte[] data = expected.getData();
+		assertEquals(Helper.FLOOR_REGISTER_MESSAGE, data[0]);
+
+		Message actual = FloorRegister.datagramToMessage(data);
+		assertEquals(FloorRegister.class, actual.getClass());
+		assertEquals(expected, actual);
+	}
+
 	@Test
 	public void testRegisterGetData() {
 		byte type = Helper.REGISTER_MESSAGE;
@@ -136,6 +246,73 @@ public class MessageTest {
 		assertEquals(expected, actual);
 	}
 
+	@Test
+	public void testRegisterWithZone() {
+		ServiceZone zone = ServiceZone.parse("1,31-60");
+		Register expected = new Register(4, 1, zone);
+
+		// the zone follows the legacy encoding
+		byte[] data = expected.getData();
+		assertEquals(9 + zone.getLength(), data.length);
+
+		Register actual = (Register) Register.datagramToMessage(data);
+		assertEquals(expected, actual);
+		assertTrue(actual.getZone().serves(1));
+		assertFalse(actual.getZone().serves(2));
+		assertTrue(actual.getZone().serves(45));
+	}
+
+	@Test
+	public void testRegisterWithProfile() {
+		Register expected = new Register(4, 1, ServiceZone.ALL_FLOORS, ElevatorProfile.FREIGHT);
+
+		// a car that is not standard writes the zone of all floors before its profile
+		byte[] data = expected.getData();
+		assertEquals(9 + ServiceZone.ALL_FLOORS.getLength() + ElevatorProfile.LENGTH, data.length);
+
+		Register actual = (Register) Register.datagramToMessage(data);
+		assertEquals(expected, actual);
+		assertEquals(ElevatorProfile.FREIGHT.getCapacity(), actual.getProfile().getCapacity());
+		assertEquals(ElevatorProfile.parse("floor=3000,capacity=8"), new ElevatorProfile(3000, 5000, 1000, 2000, 2000, 8));
+	}
+
+	@Test
+	public void testZoneMessageDatagramToMessage() {
+		ZoneMessage expected = new ZoneMessage(3, ServiceZone.parse("1-30"));
+
+		byte[] data = expected.getData();
+		assertEquals(Helper.ZONE_MESSAGE, data[0]);
+
+		Message actual = ZoneMessage.datagramToMessage(data);
+		assertEquals(ZoneMessage.class, actual.getClass());
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testStateDumpDatagramToMessage() {
+		Register register = new Register(2, 4000, ServiceZone.parse("1,31-60"), ElevatorProfile.SHUTTLE);
+		ElevatorMessage state = new ElevatorMessage(2, 35, MotorState.UP, DoorState.CLOSED, Status.APPROACHING);
+		StateDump expected = new StateDump(register, state, Arrays.asList(new FloorRequest(0, 1, 40)),
+				Arrays.asList(new FloorRequest(0, 45, 1), new FloorRequest(0, 50, 1)));
+
+		byte[] data = expected.getData();
+		assertEquals(Helper.STATE_DUMP_MESSAGE, data[0]);
+
+		Message actual = StateDump.datagramToMessage(data);
+		assertEquals(StateDump.class, actual.getClass());
+		assertEquals(expected, actual);
+		assertEquals(ElevatorProfile.SHUTTLE, ((StateDump) actual).getRegister().getProfile());
+	}
+
+	@Test
+	public void testServiceZoneParse() {
+		assertEquals(ServiceZone.ALL_FLOORS, ServiceZone.parse("all"));
+		assertEquals("1,31-60", ServiceZone.parse("1, 31-60").toString());
+		assertTrue(ServiceZone.parse("-2-1").serves(-1));
+		assertThrows(IllegalArgumentException.class, () -> ServiceZone.parse("30-1"));
+		assertThrows(IllegalArgumentException.class, () -> ServiceZone.parse("lobby"));
+	}
+
 	@Test
 	public void testResponseGetData() {
 		byte type = Helper.EMPTY_REPLY_MESSAGE;
@@ -163,6 +340,15 @@ public class MessageTest {
 
 
 
+	@Test
+	public void testResponseWithRequestId() {
+		Response expected = new Response(300);
+
+		byte[] data = expected.getData();
+		assertTrue(Arrays.equals(new byte[] { Helper.EMPTY_REPLY_MESSAGE, 0, 0, 1, 44 }, data));
+		assertEquals(300, ((Response) Response.datagramToMessage(data)).getRequestId());
+	}
+
 	@Test
 	public void testTerminateGetData() {
 		byte type = Helper.TERMINATE;
@@ -174,6 +360,13 @@ public class MessageTest {
 		assertTrue(Arrays.equals(expected, em.getData()));
 	}
 
+	@Test
+	public void testTerminateWithClientId() {
+		byte[] data = new Terminate(2).getData();
+		assertTrue(Arrays.equals(new byte[] { Helper.TERMINATE, 0, 0, 0, 2 }, data));
+		assertEquals(2, ((Terminate) Terminate.datagramToMessage(data)).getClientId());
+	}
+
 	@Test
 	public void testTerminateDatagramToMessage() {
 		byte type = Helper.TERMINATE;
@@ -2,18 +2,47 @@ package tests;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import common_classes.Helper;
+
+import common_classes.ElevatorProfile;
+import common_classes.ServiceZone;
+
 import elevator_subsystem.DoorState;
 import elevator_subsystem.MotorState;
 import elevator_subsystem.Status;
 import messages.ElevatorMessage;
+import messages.FloorRegister;
 import messages.FloorRequest;
+import messages.Message;
 import messages.Register;
+import messages.StateDump;
+import scheduler.DemandProfile;
+import scheduler.DispatchMode;
+import scheduler.FailureDetector;
+import scheduler.HallCallRegister;
+import scheduler.HallCallRegister.HallCall;
 import scheduler.Scheduler;
+import scheduler.SchedulerJournal;
+import scheduler.SchedulerMessageReceiver;
+import scheduler.SchedulerMessageReceiver.Lane;
+import scheduler.ShardRouter;
+import scheduler.ShardedScheduler;
+import scheduler.SchedulerReplicator;
+import scheduler.SchedulerStandby;
 import views.SchedulerView;
 
 public class SchedulerTest {
@@ -100,6 +129,207 @@ public class SchedulerTest {
 		assertEquals(scheduler.getFloorRequests(em).size(), 2);
 	}
 
+	@Test
+	public void TestElevatorZones() {
+		// elevator 1 is a low-rise car, elevator 2 an express car to the upper floors
+		ElevatorMessage em1 = new ElevatorMessage(1, 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em1.getId(), 0, ServiceZone.parse("1-30")));
+		scheduler.updateElevatorState(em1);
+		ElevatorMessage em2 = new ElevatorMessage(2, 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em2.getId(), 0, ServiceZone.parse("1,31-60")));
+		scheduler.updateElevatorState(em2);
+
+		assertEquals(scheduler.getBestElevator(new FloorRequest(0, 1, 45)), 2);
+		assertEquals(scheduler.getBestElevator(new FloorRequest(0, 1, 12)), 1);
+		assertFalse(scheduler.isElevatorCandidate(new FloorRequest(0, 12, 45), em2));
+
+		// moving the zone boundary lets elevator 1 serve floor 35
+		FloorRequest fr = new FloorRequest(0, 1, 35);
+		scheduler.setElevatorZone(em2.getId(), ServiceZone.parse("1,41-60"));
+		assertEquals(scheduler.getBestElevator(fr), -1);
+		scheduler.setElevatorZone(em1.getId(), ServiceZone.parse("1-40"));
+		assertEquals(scheduler.getBestElevator(fr), 1);
+	}
+
+	@Test
+	public void TestElevatorProfiles() {
+		// a standard car on floor 4 and a faster shuttle on floor 1
+		ElevatorMessage em1 = new ElevatorMessage(1, 4, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em1.getId(), 0));
+		scheduler.updateElevatorState(em1);
+		ElevatorMessage em2 = new ElevatorMessage(2, 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em2.getId(), 0, ServiceZone.ALL_FLOORS, ElevatorProfile.SHUTTLE));
+		scheduler.updateElevatorState(em2);
+
+		// the standard car reaches floor 6 first, the shuttle reaches floor 10 first
+		assertEquals(scheduler.getBestElevator(new FloorRequest(0, 6, 8)), 1);
+		assertEquals(scheduler.getBestElevator(new FloorRequest(0, 10, 12)), 2);
+
+		// the shuttle is given more passengers than a standard car holds
+		for (int i = 0; i < 10; i++)
+			scheduler.getWaitlist().add(new FloorRequest(0, 2, 3));
+		assertEquals(scheduler.getFloorRequests(em2).size(), ElevatorProfile.SHUTTLE.getCapacity());
+	}
+
+	@Test
+	public void TestDemandProfile() throws IOException {
+		int nine = Helper.timeStringToMilliseconds("09:00:00");
+		DemandProfile profile = new DemandProfile();
+		for (int i = 0; i < 5; i++)
+			profile.record(new FloorRequest(nine + i * 1000, 1, 8));
+		for (int i = 0; i < 3; i++)
+			profile.record(new FloorRequest(nine + i * 1000, 12, 1));
+		profile.record(new FloorRequest(nine, 6, 1));
+
+		// floor 6 had too few calls to park at, and nothing was learned for 10 am
+		assertEquals(profile.getHotFloors(nine + 60000), Arrays.asList(1, 12));
+		assertTrue(profile.getHotFloors(nine + DemandProfile.BUCKET_MILLIS * 4).isEmpty());
+
+		File file = File.createTempFile("demand", ".txt");
+		file.deleteOnExit();
+		profile.save(file.getPath());
+		DemandProfile loaded = new DemandProfile();
+		loaded.load(file.getPath());
+		assertEquals(loaded.getDemand(1, nine), 5);
+		assertEquals(loaded.getDemand(12, nine), 3);
+	}
+
+	@Test
+	public void TestJournalRecovery() throws IOException {
+		File file = File.createTempFile("scheduler", ".journal");
+		file.deleteOnExit();
+		new File(file.getPath() + ".snapshot").deleteOnExit();
+		SchedulerJournal journal = SchedulerJournal.open(file.getPath(), scheduler);
+		scheduler.setJournal(journal);
+
+		Register rm = new Register(1, 1);
+		scheduler.register(rm);
+		journal.registered(rm);
+		ElevatorMessage em = new ElevatorMessage(1, 1, MotorState.STOPPED, DoorState.OPEN, Status.ARRIVED);
+		scheduler.updateElevatorState(em);
+
+		FloorRequest assigned = new FloorRequest(0, 4, 1);
+		FloorRequest waiting = new FloorRequest(0, 9, 2);
+		journal.requestArrived(assigned, 100);
+		journal.requestArrived(waiting, 200);
+		scheduler.getWaitlist().add(waiting);
+		scheduler.sendRequestsToElevator(Arrays.asList(assigned), 1);
+		journal.commit();
+
+		// the scheduler crashes without closing the journal, and a new one recovers
+		Scheduler recovered = new Scheduler(sv);
+		SchedulerJournal reopened = SchedulerJournal.open(file.getPath(), recovered);
+		assertEquals(reopened.getRecoveredRecords(), 4);
+		assertEquals(recovered.getElevatorPorts().get(1), 1);
+		assertEquals(recovered.getElevatorFloorRequestsAssigned().get(1), Arrays.asList(assigned));
+		assertEquals(recovered.getWaitlist(), Arrays.asList(waiting));
+		assertEquals((long) recovered.getRequestStartTimes().get(recovered.getWaitlist().get(0)), 200);
+		reopened.close();
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void TestStandbyReplication() throws Exception {
+		SchedulerJournal journal = SchedulerJournal.withoutFile(scheduler);
+		SchedulerReplicator replicator = new SchedulerReplicator(0);
+		journal.setReplicator(replicator);
+		scheduler.setJournal(journal);
+
+		Scheduler standbyScheduler = new Scheduler(sv);
+		SchedulerStandby standby = new SchedulerStandby(standbyScheduler);
+		CompletableFuture<Boolean> followed = CompletableFuture.supplyAsync(() -> standby.follow(replicator.getPort()));
+		for (int i = 0; i < 200 && standby.getFrames() == 0; i++)
+			Thread.sleep(10);
+
+		// the standby is sent the state at the first commit and the records of the next
+		Register rm = new Register(1, 1);
+		scheduler.register(rm);
+		journal.registered(rm);
+		scheduler.updateElevatorState(new ElevatorMessage(1, 1, MotorState.STOPPED, DoorState.OPEN, Status.ARRIVED));
+		FloorRequest assigned = new FloorRequest(0, 4, 1);
+		journal.requestArrived(assigned, 100);
+		scheduler.sendRequestsToElevator(Arrays.asList(assigned), 1);
+		journal.commit();
+		FloorRequest waiting = new FloorRequest(0, 9, 2);
+		journal.requestArrived(waiting, 200);
+		scheduler.getWaitlist().add(waiting);
+		journal.commit();
+
+		// a clean shutdown is not taken over
+		journal.close();
+		assertFalse(followed.get(5, TimeUnit.SECONDS));
+		standby.closeSockets();
+		assertEquals(standbyScheduler.getElevatorPorts().get(1), 1);
+		assertEquals(standbyScheduler.getElevatorFloorRequestsAssigned().get(1), Arrays.asList(assigned));
+		assertEquals(standbyScheduler.getWaitlist(), Arrays.asList(waiting));
+	}
+
+	@Test
+	public void TestStandbyDetectsFailure() throws Exception {
+		// a scheduler that accepts the standby and then hangs
+		try (ServerSocket hung = new ServerSocket(0)) {
+			SchedulerStandby standby = new SchedulerStandby(new Scheduler(sv));
+			long start = System.nanoTime();
+			assertTrue(standby.follow(hung.getLocalPort()));
+			assertTrue(System.nanoTime() - start < 1000000000L);
+			standby.closeSockets();
+		}
+	}
+
+	@Test
+	public void TestParkingRequest() {
+		int nine = Helper.timeStringToMilliseconds("09:00:00");
+		DemandProfile profile = new DemandProfile();
+		for (int i = 0; i < 5; i++)
+			profile.record(new FloorRequest(nine, 1, 8));
+		for (int i = 0; i < 3; i++)
+			profile.record(new FloorRequest(nine, 12, 1));
+		scheduler.setDemandProfile(profile);
+
+		ElevatorMessage em1 = new ElevatorMessage(1, 1, MotorState.STOPPED, DoorState.OPEN, Status.ARRIVED);
+		scheduler.register(new Register(em1.getId(), 0));
+		scheduler.updateElevatorState(em1);
+		ElevatorMessage em2 = new ElevatorMessage(2, 5, MotorState.STOPPED, DoorState.OPEN, Status.ARRIVED);
+		scheduler.register(new Register(em2.getId(), 0));
+		scheduler.updateElevatorState(em2);
+
+		// elevator 1 is at the lobby already, so elevator 2 goes to the next busiest floor
+		assertNull(scheduler.getParkingRequest(em1, nine));
+		FloorRequest parking = scheduler.getParkingRequest(em2, nine);
+		assertTrue(parking.isParking());
+		assertEquals(parking.getSourceFloor(), 12);
+
+		// nothing is busy at 10 am
+		assertNull(scheduler.getParkingRequest(em2, nine + DemandProfile.BUCKET_MILLIS * 4));
+	}
+
+	@Test
+	public void TestResync() {
+		Register rm = new Register(1, 0);
+		scheduler.register(rm);
+		FloorRequest pickedUp = new FloorRequest(0, 4, 1);
+		FloorRequest neverSent = new FloorRequest(0, 6, 2);
+		FloorRequest droppedOff = new FloorRequest(0, 3, 9);
+		scheduler.getElevatorFloorRequestsAssigned().get(1).addAll(Arrays.asList(pickedUp, neverSent));
+		scheduler.getElevatorFloorRequestsInService().get(1).add(droppedOff);
+		// a request the car was given after the state the scheduler has was saved
+		FloorRequest alreadySent = new FloorRequest(0, 7, 3);
+		scheduler.getWaitlist().add(alreadySent);
+
+		// while the scheduler was down the car picked up at floor 4, dropped off at 9 and took a passenger it was not told of
+		ElevatorMessage em = new ElevatorMessage(1, 2, MotorState.DOWN, DoorState.CLOSED, Status.APPROACHING);
+		FloorRequest unknown = new FloorRequest(0, 5, 1);
+		scheduler.resync(new StateDump(rm, em, Arrays.asList(new FloorRequest(0, 4, 1), unknown),
+				Arrays.asList(new FloorRequest(0, 7, 3))));
+
+		assertTrue(scheduler.getElevatorFloorRequestsInService().get(1).get(0) == pickedUp);
+		assertTrue(scheduler.getElevatorFloorRequestsInService().get(1).get(1) == unknown);
+		assertEquals(scheduler.getElevatorFloorRequestsAssigned().get(1).size(), 1);
+		assertTrue(scheduler.getElevatorFloorRequestsAssigned().get(1).get(0) == alreadySent);
+		assertEquals(scheduler.getWaitlist(), Arrays.asList(neverSent));
+		assertFalse(scheduler.getRequestStartTimes().containsKey(droppedOff));
+	}
+
 	@Test
 	public void TestHandleBrokenElevator() {
 		int id = 1;
@@ -122,4 +352,268 @@ public class SchedulerTest {
 		assertEquals(scheduler.getWaitlist().size(), 1);
 	}
 
+	@Test
+	public void TestFailureDetector() {
+		FailureDetector detector = new FailureDetector(8, 5000, 5000);
+		for (int i = 0; i <= 10; i++)
+			detector.heartbeat(1, i * 200);
+
+		// a car that reports every 200 ms is only suspected a while after it misses its pause allowance
+		assertTrue(detector.phi(1, 2200) < 1);
+		assertTrue(detector.phi(1, 3000) < 8);
+		assertTrue(detector.phi(1, 5000) >= 8);
+		assertEquals(detector.getSuspects(5000), Arrays.asList(1));
+
+		// an idle car is judged against its report interval instead
+		detector.heartbeat(1, 2200);
+		detector.idle(1);
+		assertTrue(detector.phi(1, 7500) < 1);
+		assertTrue(detector.phi(1, 10000) >= 8);
+
+		// the idle wait is not learned as an interval
+		detector.heartbeat(1, 7300);
+		assertTrue(detector.phi(1, 7500) < 1);
+		assertTrue(detector.phi(1, 10000) >= 8);
+
+		// a car without a history is judged by the first estimate
+		detector.heartbeat(2, 0);
+		assertTrue(detector.phi(2, 5000) < 1);
+		assertTrue(detector.getSuspects(15000).contains(2));
+	}
+
+	@Test
+	public void TestSilentElevator() {
+		int id = 1;
+		scheduler.register(new Register(id, 1));
+		scheduler.updateElevatorState(new ElevatorMessage(id, 4, MotorState.UP, DoorState.CLOSED, Status.ARRIVED));
+		FloorRequest fr = new FloorRequest(0, 2, 1);
+		scheduler.getElevatorFloorRequestsAssigned().get(id).add(fr);
+
+		// the car was last heard from a minute ago
+		FailureDetector detector = new FailureDetector(FailureDetector.DEFAULT_THRESHOLD, 5000, 5000);
+		detector.heartbeat(id, System.nanoTime() / 1000000 - 60000);
+		scheduler.setFailureDetector(detector);
+		scheduler.handleSilentElevators();
+
+		assertEquals(scheduler.getWaitlist(), Arrays.asList(fr));
+		assertFalse(scheduler.getElevatorPorts().containsKey(id));
+		assertEquals(scheduler.getStatistics().getSilencedElevators(), 1);
+		assertTrue(detector.getSuspects(System.nanoTime() / 1000000).isEmpty());
+	}
+
+	@Test
+	public void TestMessageLanes() {
+		SchedulerMessageReceiver receiver = new SchedulerMessageReceiver();
+		for (int i = 0; i < 40; i++) {
+			receiver.putMessage(new ElevatorMessage(i % 4, i, MotorState.UP, DoorState.CLOSED, Status.APPROACHING));
+			receiver.putMessage(new FloorRequest(i, 1, 5));
+		}
+		receiver.putMessage(new ElevatorMessage(1, 9, MotorState.STOPPED, DoorState.CLOSED, Status.BROKEN));
+		receiver.putMessage(new Register(5, 1));
+		assertEquals(receiver.getDepth(Lane.STATES), 30);
+		assertEquals(receiver.getPeakDepth(Lane.STATES), 40);
+
+		// the failure report and the registration jump the queue, and the broken car's states are dropped
+		List<Message> batch = receiver.getMessages(0);
+		assertEquals(batch.get(0).getHeader(), Helper.ELEVATOR_STATE_MESSAGE);
+		assertEquals(((ElevatorMessage) batch.get(0)).getStatus(), Status.BROKEN);
+		assertEquals(batch.get(1).getHeader(), Helper.REGISTER_MESSAGE);
+		assertEquals(batch.size(), 2 + 32 + 30);
+		assertEquals(receiver.getDepth(Lane.HALL_CALLS), 8);
+
+		batch = receiver.getMessages(0);
+		assertEquals(batch.size(), 8);
+		assertTrue(receiver.getMessages(0).isEmpty());
+		receiver.closeSockets();
+	}
+
+	@Test
+	public void TestShardRouting() {
+		ShardedScheduler sharded = new ShardedScheduler(Arrays.asList(new Scheduler(sv), new Scheduler(sv)), 10);
+		ShardRouter router = sharded.getRouter();
+
+		// a car goes to the shard its zone serves, a car serving every floor to the shard with fewer cars
+		router.putMessage(new Register(0, 1, ServiceZone.parse("1-5")));
+		router.putMessage(new Register(1, 2, ServiceZone.parse("6-10")));
+		router.putMessage(new Register(2, 3, ServiceZone.ALL_FLOORS));
+		router.putMessage(new ElevatorMessage(1, 7, MotorState.UP, DoorState.CLOSED, Status.APPROACHING));
+		assertEquals(router.getInbox(0).getDepth(Lane.CONTROL), 2);
+		assertEquals(router.getInbox(1).getDepth(Lane.CONTROL), 1);
+		assertEquals(router.getInbox(1).getDepth(Lane.STATES), 1);
+
+		// a request goes to the shard owning its source floor, or to one with a car serving the trip
+		router.putMessage(new FloorRequest(0, 8, 9));
+		router.putMessage(new FloorRequest(0, 2, 8));
+		router.putMessage(new FloorRequest(0, 7, 3));
+		assertEquals(router.getInbox(0).getDepth(Lane.HALL_CALLS), 2);
+		assertEquals(router.getInbox(1).getDepth(Lane.HALL_CALLS), 1);
+		assertEquals(router.getRebalancedRequests(), 1L);
+
+		// the one car of shard 1 has two requests waiting, so the next goes to the less loaded shard
+		router.putMessage(new FloorRequest(0, 9, 10));
+		FloorRequest retransmitted = new FloorRequest(0, 6, 8);
+		retransmitted.setClientId(1);
+		retransmitted.setRequestId(7);
+		router.putMessage(retransmitted);
+		assertEquals(router.getInbox(1).getDepth(Lane.HALL_CALLS), 2);
+		assertEquals(router.getInbox(0).getDepth(Lane.HALL_CALLS), 3);
+		assertEquals(router.getRebalancedRequests(), 2L);
+
+		// a retransmitted request follows the first copy, and floor clients register with every shard
+		router.getInbox(0).getMessages(0);
+		router.putMessage(retransmitted);
+		router.putMessage(new FloorRegister(1, 4, 1, 10));
+		assertEquals(router.getInbox(0).getDepth(Lane.HALL_CALLS), 1);
+		assertEquals(router.getInbox(0).getDepth(Lane.CONTROL), 1);
+		assertEquals(router.getInbox(1).getDepth(Lane.CONTROL), 2);
+		router.closeSockets();
+	}
+
+	@Test
+	public void TestHallCallCoalescing() {
+		HallCallRegister hallCalls = new HallCallRegister();
+		FloorRequest fr1 = new FloorRequest(0, 1, 5);
+		FloorRequest fr2 = new FloorRequest(0, 1, 9);
+		FloorRequest fr3 = new FloorRequest(0, 1, 5);
+		FloorRequest down = new FloorRequest(0, 3, 1);
+
+		// riders pressing the same button join one call
+		HallCall call = hallCalls.add(fr1);
+		assertEquals(hallCalls.add(fr2), call);
+		assertEquals(hallCalls.add(fr3), call);
+		assertFalse(hallCalls.add(down) == call);
+		assertEquals(hallCalls.size(), 2);
+		assertEquals(hallCalls.getCoalesced(), 2L);
+		assertEquals(call.getRiders().size(), 3);
+
+		// a rider left behind unassigns the call so it gets a new car
+		hallCalls.assign(fr1, 4);
+		assertEquals(call.getElevator(), 4);
+		hallCalls.pickedUp(fr1);
+		hallCalls.pickedUp(fr2);
+		assertFalse(call.isAssigned());
+		assertEquals(hallCalls.getCall(fr3), call);
+
+		hallCalls.pickedUp(fr3);
+		assertEquals(hallCalls.size(), 1);
+	}
+
+	@Test
+	public void TestGetFloorRequestsLeavesCallsOfOtherElevators() {
+		ElevatorMessage em1 = new ElevatorMessage(1, 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em1.getId(), 0));
+		scheduler.updateElevatorState(em1);
+		ElevatorMessage em2 = new ElevatorMessage(2, 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em2.getId(), 0));
+		scheduler.updateElevatorState(em2);
+
+		// both riders wait behind the up button of floor 4, and the call is elevator 2's
+		FloorRequest fr1 = new FloorRequest(0, 4, 6);
+		FloorRequest fr2 = new FloorRequest(0, 4, 8);
+		scheduler.getHallCalls().add(fr1);
+		scheduler.getHallCalls().add(fr2);
+		scheduler.getHallCalls().assign(fr1, 2);
+		scheduler.getWaitlist().add(fr1);
+		scheduler.getWaitlist().add(fr2);
+
+		assertEquals(scheduler.getFloorRequests(em1).size(), 0);
+		assertEquals(scheduler.getFloorRequests(em2).size(), 2);
+	}
+
+	@Test
+	public void TestDestinationDispatchSplitsHallCall() {
+		scheduler.setDispatchMode(DispatchMode.DESTINATION);
+		ElevatorMessage em1 = new ElevatorMessage(1, 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em1.getId(), 0));
+		scheduler.updateElevatorState(em1);
+		ElevatorMessage em2 = new ElevatorMessage(2, 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em2.getId(), 0));
+		scheduler.updateElevatorState(em2);
+
+		// two riders behind the lobby's up button, one going to the top and one a floor up, take both free cars
+		FloorRequest far = new FloorRequest(0, 1, 20);
+		FloorRequest near = new FloorRequest(0, 1, 2);
+		scheduler.dispatch(far);
+		scheduler.dispatch(near);
+		assertEquals(scheduler.getElevatorFloorRequestsInService().get(1), Arrays.asList(far));
+		assertEquals(scheduler.getElevatorFloorRequestsInService().get(2), Arrays.asList(near));
+
+		// a third rider going to the top waits for the car already going there
+		FloorRequest sameFloor = new FloorRequest(0, 1, 20);
+		scheduler.dispatch(sameFloor);
+		assertEquals(scheduler.getWaitlist(), Arrays.asList(sameFloor));
+		assertTrue(scheduler.getFloorRequests(em2).isEmpty());
+		assertEquals(scheduler.getFloorRequests(em1), Arrays.asList(sameFloor));
+
+		// a rider waiting behind a call another car has is still scored for the free car
+		FloorRequest assigned = new FloorRequest(0, 4, 6);
+		FloorRequest waiting = new FloorRequest(0, 4, 18);
+		scheduler.getHallCalls().add(assigned);
+		scheduler.getHallCalls().add(waiting);
+		scheduler.getHallCalls().assign(assigned, 1);
+		scheduler.getWaitlist().add(waiting);
+		scheduler.getElevatorFloorRequestsInService().get(2).clear();
+		assertEquals(scheduler.getFloorRequests(em2), Arrays.asList(waiting));
+	}
+
+	@Test
+	public void TestCollectiveDispatchCoalescesHallCall() {
+		ElevatorMessage em1 = new ElevatorMessage(1, 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em1.getId(), 0));
+		scheduler.updateElevatorState(em1);
+		ElevatorMessage em2 = new ElevatorMessage(2, 3, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em2.getId(), 0));
+		scheduler.updateElevatorState(em2);
+
+		// the second rider joins the first rider's call and waits for its car
+		FloorRequest first = new FloorRequest(0, 2, 20);
+		FloorRequest second = new FloorRequest(0, 2, 3);
+		scheduler.dispatch(first);
+		scheduler.dispatch(second);
+		assertEquals(scheduler.getElevatorFloorRequestsAssigned().get(1), Arrays.asList(first));
+		assertEquals(scheduler.getWaitlist(), Arrays.asList(second));
+	}
+
+	@Test
+	public void TestParallelDispatch() {
+		// ten idle cars on each floor from 1 to 10
+		for (int id = 99; id >= 0; id--) {
+			scheduler.register(new Register(id, 0));
+			scheduler.updateElevatorState(new ElevatorMessage(id, id % 10 + 1, MotorState.STOPPED, DoorState.CLOSED, Status.ARRIVED));
+		}
+		FloorRequest fr = new FloorRequest(0, 5, 9);
+
+		// the cars on floor 5 tie, and the lowest id wins however the fleet is scored
+		scheduler.setParallelDispatchThreshold(Integer.MAX_VALUE);
+		assertEquals(scheduler.getBestElevator(fr), 4);
+		scheduler.setParallelDispatchThreshold(0);
+		for (int i = 0; i < 50; i++)
+			assertEquals(scheduler.getBestElevator(fr), 4);
+		scheduler.setDispatchMode(DispatchMode.DESTINATION);
+		for (int i = 0; i < 50; i++)
+			assertEquals(scheduler.getBestElevator(fr), 4);
+	}
+
+	@Test
+	public void TestDestinationDispatch() {
+		scheduler.setDispatchMode(DispatchMode.DESTINATION);
+
+		// elevator 1 is already taking a passenger to floor 9, elevator 2 to floor 3
+		ElevatorMessage em1 = new ElevatorMessage(1, 2, MotorState.UP, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em1.getId(), 0));
+		scheduler.updateElevatorState(em1);
+		scheduler.getElevatorFloorRequestsInService().get(em1.getId()).add(new FloorRequest(0, 1, 9));
+
+		ElevatorMessage em2 = new ElevatorMessage(2, 3, MotorState.UP, DoorState.CLOSED, Status.ARRIVED);
+		scheduler.register(new Register(em2.getId(), 0));
+		scheduler.updateElevatorState(em2);
+		scheduler.getElevatorFloorRequestsInService().get(em2.getId()).add(new FloorRequest(0, 1, 5));
+
+		// elevator 2 is closer, but only elevator 1 already stops at floor 9
+		FloorRequest fr = new FloorRequest(0, 4, 9);
+		assertEquals(scheduler.getBestElevator(fr), 1);
+
+		scheduler.setDispatchMode(DispatchMode.COLLECTIVE);
+		assertEquals(scheduler.getBestElevator(fr), 2);
+	}
 }
@@ -6,12 +6,20 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.net.DatagramPacket;
+import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.Test;
 
+import common_classes.SequenceWindow;
+import common_classes.SequenceWindow.Arrival;
 import common_classes.Subsystem;
+import common_classes.WireFormat;
 import elevator_subsystem.DoorState;
 import elevator_subsystem.MotorState;
 import elevator_subsystem.Status;
@@ -65,6 +73,103 @@ public class SubsystemTest {
 		assertEquals(3 * timeout, end - start, 500);
 	}
 
+	@Test
+	public void testSequenceWindow() {
+		SequenceWindow window = new SequenceWindow();
+		assertEquals(Arrival.IN_ORDER, window.arrive(Integer.MAX_VALUE - 1));
+		assertEquals(Arrival.DUPLICATE, window.arrive(Integer.MAX_VALUE - 1));
+
+		// the numbers wrap past the largest int
+		assertEquals(Arrival.IN_ORDER, window.arrive(Integer.MIN_VALUE + 1));
+		assertEquals(Arrival.LATE, window.arrive(Integer.MAX_VALUE));
+		assertEquals(Arrival.DUPLICATE, window.arrive(Integer.MAX_VALUE));
+		assertEquals(Arrival.LATE, window.arrive(Integer.MIN_VALUE));
+
+		// too old to tell from a duplicate
+		assertEquals(Arrival.IN_ORDER, window.arrive(Integer.MIN_VALUE + 1 + SequenceWindow.SIZE));
+		assertEquals(Arrival.DUPLICATE, window.arrive(Integer.MAX_VALUE - 5));
+
+		// a sender that restarted
+		assertEquals(Arrival.IN_ORDER, window.arrive(12345));
+		assertEquals(Arrival.LATE, window.arrive(12344));
+	}
+
+	@Test
+	public void testDuplicateAndLateDatagramsDropped() throws Exception {
+		s.updateSocketTimeout(1000);
+		ElevatorMessage older = new ElevatorMessage(1, 2, MotorState.UP, DoorState.CLOSED, Status.APPROACHING);
+		ElevatorMessage newer = new ElevatorMessage(1, 3, MotorState.UP, DoorState.CLOSED, Status.APPROACHING);
+		try (DatagramSocket scheduler = new DatagramSocket(common_classes.Helper.SCHEDULER_PORT)) {
+			// the subsystem's request is answered twice by the network, then with a late reply and an empty one
+			CompletableFuture<Message> reply = CompletableFuture.supplyAsync(() -> s.rpcSendAndReceive(newer));
+			DatagramPacket request = new DatagramPacket(new byte[104], 104);
+			scheduler.receive(request);
+			for (byte[] data : Arrays.asList(Subsystem.frame(newer, 7), Subsystem.frame(newer, 7),
+					Subsystem.frame(older, 6), Subsystem.frame(new Response(), 8)))
+				scheduler.send(new DatagramPacket(data, data.length, request.getSocketAddress()));
+
+			assertEquals(((ElevatorMessage) reply.get()).getFloor(), 3);
+			assertEquals(((ElevatorMessage) s.rpcSendAndReceive(newer)).getFloor(), 2);
+			assertTrue(s.rpcSendAndReceive(newer) instanceof Response);
+			assertEquals(s.getDroppedMessages(), 1);
+		}
+	}
+
+	/**
+	 * A subsystem whose messages can be sent and received by the tests
+	 */
+	static class Peer extends Subsystem {
+		void sendTo(Message message, Peer peer) {
+			send(message, peer.receiveSocket.getLocalPort());
+		}
+
+		Message next() throws Exception {
+			return receive();
+		}
+
+		int getPort() {
+			return receiveSocket.getLocalPort();
+		}
+	}
+
+	@Test
+	public void testFragmentedRequestList() throws Exception {
+		Peer sender = new Peer(), receiver = new Peer();
+		List<FloorRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 2000; i++)
+			requests.add(new FloorRequest(0, i % 300, 299 - i % 300));
+		RequestListMessage expected = new RequestListMessage(requests);
+		assertTrue(expected.getData().length > WireFormat.MAX_DATAGRAM_LENGTH);
+
+		sender.sendTo(expected, receiver);
+		sender.sendTo(new Response(), receiver);
+		assertEquals(expected, receiver.next());
+		assertTrue(receiver.next() instanceof Response);
+		sender.closeSockets();
+		receiver.closeSockets();
+	}
+
+	@Test
+	public void testUnsequencedDatagramsFromBaselineSender() throws Exception {
+		Peer receiver = new Peer();
+		receiver.updateSocketTimeout(1000);
+		// a floor request and an empty reply as sent before sequence numbers, with no mark in their header
+		byte[] request = ByteBuffer.allocate(7).put(common_classes.Helper.FLOOR_REQUEST_MESSAGE).putInt(1000)
+				.put((byte) 2).put((byte) 7).array();
+		byte[] reply = new byte[] { common_classes.Helper.EMPTY_REPLY_MESSAGE };
+		try (DatagramSocket sender = new DatagramSocket()) {
+			for (byte[] data : Arrays.asList(request, request, reply))
+				sender.send(new DatagramPacket(data, data.length, InetAddress.getLocalHost(), receiver.getPort()));
+
+			// without a sequence number nothing is taken for a duplicate
+			assertEquals(receiver.next(), new FloorRequest(1000, 2, 7));
+			assertEquals(receiver.next(), new FloorRequest(1000, 2, 7));
+			assertTrue(receiver.next() instanceof Response);
+			assertEquals(receiver.getDroppedMessages(), 0);
+		}
+		receiver.closeSockets();
+	}
+
 	@Test
 	public void testDatagramToElevatorMessage() {
 